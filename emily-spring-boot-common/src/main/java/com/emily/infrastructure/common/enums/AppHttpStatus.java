@@ -37,6 +37,9 @@ public enum AppHttpStatus {
     SERVER_RETRY_EXCEPTION(200009, "服务不可以重复提交，请稍后再试"),
     SERVER_ILLEGAL_ACCESS(200010, "非法访问"),
     SERVER_CIRCUIT_BREAKER(200011, "触发服务降级处理"),
+    SERVER_REJECTED_EXCEPTION(200012, "服务繁忙，请求被拒绝，请稍后再试"),
+    SERVER_OVERLOAD_EXCEPTION(200013, "服务过载，请求被拒绝，请重试其它服务节点"),
+    SERVER_DEADLINE_EXCEEDED(200014, "请求已超过截止时间，服务端未执行"),
 
     DATABASE_EXCEPTION(300000, "数据库异常"),
 
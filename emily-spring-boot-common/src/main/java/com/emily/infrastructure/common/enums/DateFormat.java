@@ -2,6 +2,8 @@ package com.emily.infrastructure.common.enums;
 
 import org.apache.commons.lang3.ArrayUtils;
 
+import java.time.format.DateTimeFormatter;
+
 /**
  * @Description: 日期格式
  * @Version: 1.0
@@ -63,6 +65,10 @@ public enum DateFormat {
 
 
     private final String format;
+    /**
+     * 日期格式化器，首次使用时创建
+     */
+    private volatile DateTimeFormatter formatter;
 
     DateFormat(String format) {
         this.format = format;
@@ -72,6 +78,20 @@ public enum DateFormat {
         return format;
     }
 
+    /**
+     * 获取日期格式化器，DateTimeFormatter线程安全，每种格式只创建一次
+     *
+     * @return
+     */
+    public DateTimeFormatter getFormatter() {
+        DateTimeFormatter formatter = this.formatter;
+        if (formatter == null) {
+            formatter = DateTimeFormatter.ofPattern(format);
+            this.formatter = formatter;
+        }
+        return formatter;
+    }
+
     /**
      * 获取所有日期格式
      *
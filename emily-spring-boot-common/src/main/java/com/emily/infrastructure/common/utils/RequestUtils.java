@@ -34,9 +34,9 @@ public class RequestUtils {
      */
     private static String SERVER_IP = null;
     /**
-     * 是否是内网正则表达式
+     * 是否是内网正则表达式，预编译
      */
-    private static String INTERNET = "^(127\\.0\\.0\\.1)|(localhost)|(10\\.\\d{1,3}\\.\\d{1,3}\\.\\d{1,3})|(172\\.((1[6-9])|(2\\d)|(3[01]))\\.\\d{1,3}\\.\\d{1,3})|(192\\.168\\.\\d{1,3}\\.\\d{1,3})$";
+    private static final Pattern INTERNET = Pattern.compile("^(127\\.0\\.0\\.1)|(localhost)|(10\\.\\d{1,3}\\.\\d{1,3}\\.\\d{1,3})|(172\\.((1[6-9])|(2\\d)|(3[01]))\\.\\d{1,3}\\.\\d{1,3})|(192\\.168\\.\\d{1,3}\\.\\d{1,3})$");
 
     /**
      * 获取客户端IP
@@ -99,8 +99,7 @@ public class RequestUtils {
         if (StringUtils.equals("0:0:0:0:0:0:0:1", ip)) {
             return true;
         }
-        Pattern reg = Pattern.compile(INTERNET);
-        Matcher match = reg.matcher(ip);
+        Matcher match = INTERNET.matcher(ip);
         return match.find();
     }
 
@@ -13,7 +13,9 @@ import java.time.format.DateTimeFormatter;
 import java.time.temporal.TemporalAdjusters;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author Emily
@@ -23,6 +25,25 @@ import java.util.Objects;
  */
 @SuppressWarnings("all")
 public class DateUtils {
+    /**
+     * 日期格式化器缓存，DateTimeFormatter线程安全，同一格式只创建一次
+     */
+    private static final Map<String, DateTimeFormatter> FORMATTER_CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * 获取指定格式的日期格式化器
+     *
+     * @param format 格式@{@link DateFormat}
+     * @return
+     */
+    public static DateTimeFormatter getFormatter(String format) {
+        DateTimeFormatter formatter = FORMATTER_CACHE.get(format);
+        if (formatter == null) {
+            formatter = FORMATTER_CACHE.computeIfAbsent(format, DateTimeFormatter::ofPattern);
+        }
+        return formatter;
+    }
+
     /**
      * 字符串日期格式化
      *
@@ -320,7 +341,7 @@ public class DateUtils {
         if (Objects.isNull(date)) {
             throw new BasicException(AppHttpStatus.ILLEGAL_PARAMETER.getStatus(), "日期参数不可以为空");
         }
-        return Long.valueOf(date.format(DateTimeFormatter.ofPattern(format)));
+        return Long.valueOf(date.format(getFormatter(format)));
     }
 
     /**
@@ -334,7 +355,7 @@ public class DateUtils {
         if (Objects.isNull(date)) {
             throw new BasicException(AppHttpStatus.ILLEGAL_PARAMETER.getStatus(), "日期参数不可以为空");
         }
-        return Long.valueOf(date.format(DateTimeFormatter.ofPattern(format)));
+        return Long.valueOf(date.format(getFormatter(format)));
     }
 
     /**
@@ -365,7 +386,7 @@ public class DateUtils {
         if (String.valueOf(date).length() > 8) {
             throw new BasicException(AppHttpStatus.ILLEGAL_PARAMETER.getStatus(), "数字类型日期不可以包含时间");
         }
-        return LocalDate.parse(String.valueOf(date), DateTimeFormatter.ofPattern(format));
+        return LocalDate.parse(String.valueOf(date), getFormatter(format));
     }
 
     /**
@@ -382,7 +403,7 @@ public class DateUtils {
         if (String.valueOf(date).length() < 10) {
             throw new BasicException(AppHttpStatus.ILLEGAL_PARAMETER.getStatus(), "数字类型日期必须包含时间");
         }
-        return LocalDateTime.parse(String.valueOf(date), DateTimeFormatter.ofPattern(format));
+        return LocalDateTime.parse(String.valueOf(date), getFormatter(format));
     }
 
     /**
@@ -5,6 +5,7 @@ import com.emily.infrastructure.common.enums.DateFormat;
 import com.emily.infrastructure.common.exception.BasicException;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.core.JsonGenerationException;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
@@ -336,6 +337,20 @@ public class JSONUtils {
 
     }
 
+    /**
+     * 创建直接写入字节流的JsonGenerator，writeObject按统一的序列化配置输出对象，使用完后需关闭
+     *
+     * @param outputStream 字节流
+     * @return
+     */
+    public static JsonGenerator createGenerator(OutputStream outputStream) {
+        try {
+            return objectMapper.getFactory().createGenerator(outputStream);
+        } catch (IOException e) {
+            throw new BasicException(AppHttpStatus.JSON_PARSE_EXCEPTION.getStatus(), "创建JsonGenerator异常，" + e);
+        }
+    }
+
     /**
      * 将指定的java对象转换为指定的class对象
      *
@@ -1,12 +1,16 @@
 package com.emily.infrastructure.core.context.holder;
 
 import com.alibaba.ttl.TransmittableThreadLocal;
+import com.emily.infrastructure.common.constant.CharacterInfo;
 import com.emily.infrastructure.common.constant.HeaderInfo;
 import com.emily.infrastructure.common.utils.RequestUtils;
 import com.emily.infrastructure.core.helper.SystemNumberHelper;
+import com.emily.infrastructure.core.logger.TraceLogger;
+import org.apache.commons.lang3.StringUtils;
 
-import java.util.Objects;
-import java.util.UUID;
+import javax.servlet.http.HttpServletRequest;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @Description: 全链路追踪上下文
@@ -22,6 +26,11 @@ public class ContextHolder {
         }
     };
 
+    /**
+     * 当前线程正在执行的耗时区间，不随上下文传递给子线程，子线程中开始的区间挂在根区间下
+     */
+    private static final ThreadLocal<TraceSpan> CURRENT_SPAN = new ThreadLocal<>();
+
     /**
      * 设置当前线程持有的数据源
      */
@@ -45,6 +54,99 @@ public class ContextHolder {
         }
     }
 
+    /**
+     * 开始耗时区间并设为当前线程的当前区间，之后在当前线程中开始的区间作为其子区间；请求中的第一个区间为根区间
+     *
+     * @param stage 阶段
+     * @param name  名称，如：请求路径、类名.方法名
+     * @return 需在finally中调用{@link #endSpan(TraceSpan)}结束
+     */
+    public static TraceSpan startSpan(Stage stage, String name) {
+        TraceSpan span = newSpan(stage, name);
+        span.previous = CURRENT_SPAN.get();
+        CURRENT_SPAN.set(span);
+        return span;
+    }
+
+    /**
+     * 开始在其它线程中结束的耗时区间，如异步调用，不设为当前线程的当前区间
+     *
+     * @param stage 阶段
+     * @param name  名称
+     * @return
+     */
+    public static TraceSpan startAsyncSpan(Stage stage, String name) {
+        return newSpan(stage, name);
+    }
+
+    /**
+     * 创建耗时区间，挂在当前线程同一请求中未结束的当前区间下，没有时挂在根区间下；
+     * 子线程共享请求上下文，根区间只创建一次，结束后迟到的区间只计时，不挂在调用树中也不开始新的调用链；
+     * servlet请求中根区间只能是请求阶段，控制器之前的过滤器、拦截器中开始的区间只计时，避免其成为根区间使整个请求丢失调用链
+     *
+     * @param stage 阶段
+     * @param name  名称
+     * @return
+     */
+    private static TraceSpan newSpan(Stage stage, String name) {
+        RequestHolder holder = get();
+        TraceSpan root = holder.rootSpan;
+        if (root == null) {
+            synchronized (holder) {
+                root = holder.rootSpan;
+                if (root == null) {
+                    if (stage != Stage.REQUEST && holder.isServletContext()) {
+                        return TraceSpan.root(stage, name);
+                    }
+                    root = TraceSpan.root(stage, name);
+                    root.holder = holder;
+                    holder.rootSpan = root;
+                    return root;
+                }
+            }
+        }
+        if (root.isEnded()) {
+            //不关联请求上下文，结束时不输出汇总日志
+            return TraceSpan.root(stage, name);
+        }
+        TraceSpan parent = CURRENT_SPAN.get();
+        if (parent == null || parent.isEnded() || !parent.belongsTo(root)) {
+            parent = root;
+        }
+        return parent.startChild(stage, name);
+    }
+
+    /**
+     * 结束耗时区间，恢复当前线程的当前区间；根区间结束且有子区间时输出一条包含各阶段耗时的汇总日志
+     *
+     * @param span 耗时区间，可重复调用
+     */
+    public static void endSpan(TraceSpan span) {
+        if (span == null || !span.end()) {
+            return;
+        }
+        if (CURRENT_SPAN.get() == span) {
+            TraceSpan previous = span.previous;
+            if (previous == null || previous.isEnded()) {
+                CURRENT_SPAN.remove();
+            } else {
+                CURRENT_SPAN.set(previous);
+            }
+        }
+        span.previous = null;
+        if (span.isRoot() && span.holder != null && span.hasChildren()) {
+            TraceLogger.record(span.holder, span);
+        }
+    }
+
+    /**
+     * 请求结束时删除当前线程持有的数据，包括servlet容器上下文，避免请求线程复用时读取到上一个请求缓存的数据
+     */
+    public static void clear() {
+        CONTEXT.remove();
+        CURRENT_SPAN.remove();
+    }
+
     public static class RequestHolder {
         /**
          * 事务唯一编号
@@ -62,6 +164,14 @@ public class ContextHolder {
          * 开启时间
          */
         private Long startTime;
+        /**
+         * 开启时间，System.nanoTime()，用于计算耗时
+         */
+        private long startNanos;
+        /**
+         * 请求的根耗时区间
+         */
+        private volatile TraceSpan rootSpan;
         /**
          * 客户端IP
          */
@@ -70,6 +180,18 @@ public class ContextHolder {
          * 服务端IP
          */
         private String serverIp;
+        /**
+         * 请求URL，不包含查询参数
+         */
+        private String url;
+        /**
+         * 请求路径
+         */
+        private String requestUri;
+        /**
+         * 请求头，首次获取时读取
+         */
+        private Map<String, String> headers;
         /**
          * (逻辑)是否servlet容器上下文，默认：false
          */
@@ -84,11 +206,16 @@ public class ContextHolder {
 
         public RequestHolder() {
             this.startTime = System.currentTimeMillis();
+            this.startNanos = System.nanoTime();
             this.systemNumber = SystemNumberHelper.getSystemNumber();
             if (RequestUtils.isServletContext()) {
-                this.traceId = RequestUtils.getRequest().getHeader(HeaderInfo.TRACE_ID);
-                this.clientIp = RequestUtils.getClientIp();
+                //每个请求只读取一次，各阶段拦截器直接使用
+                HttpServletRequest request = RequestUtils.getRequest();
+                this.traceId = request.getHeader(HeaderInfo.TRACE_ID);
+                this.clientIp = RequestUtils.getClientIp(request);
                 this.serverIp = RequestUtils.getServerIp();
+                this.url = StringUtils.substringBefore(String.valueOf(request.getRequestURL()), CharacterInfo.ASK_SIGN_EN);
+                this.requestUri = request.getRequestURI();
                 this.servletContext = true;
             }
             if (Objects.isNull(traceId)) {
@@ -113,6 +240,23 @@ public class ContextHolder {
             this.startTime = startTime;
         }
 
+        public long getStartNanos() {
+            return startNanos;
+        }
+
+        /**
+         * 请求开始至今的耗时，单位：毫秒
+         *
+         * @return
+         */
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        }
+
+        public TraceSpan getRootSpan() {
+            return rootSpan;
+        }
+
         public String getClientIp() {
             return clientIp;
         }
@@ -129,6 +273,45 @@ public class ContextHolder {
             this.serverIp = serverIp;
         }
 
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getRequestUri() {
+            return requestUri;
+        }
+
+        public void setRequestUri(String requestUri) {
+            this.requestUri = requestUri;
+        }
+
+        /**
+         * 获取请求头，首次获取时从当前线程的请求中读取并缓存；子线程中无法读取请求时返回空
+         *
+         * @return
+         */
+        public Map<String, String> getHeaders() {
+            if (headers == null && servletContext && RequestUtils.isServletContext()) {
+                HttpServletRequest request = RequestUtils.getRequest();
+                Map<String, String> headers = new HashMap<>();
+                Enumeration<String> headerNames = request.getHeaderNames();
+                while (headerNames != null && headerNames.hasMoreElements()) {
+                    String name = headerNames.nextElement();
+                    headers.put(name, request.getHeader(name));
+                }
+                this.headers = Collections.unmodifiableMap(headers);
+            }
+            return headers == null ? Collections.emptyMap() : headers;
+        }
+
+        public void setHeaders(Map<String, String> headers) {
+            this.headers = headers;
+        }
+
         public String getSystemNumber() {
             return systemNumber;
         }
@@ -176,6 +359,8 @@ public class ContextHolder {
         HTTP,
         //Mybatis日志记录
         MYBATIS,
+        //Rpc客户端调用
+        RPC,
         //其它阶段
         OTHER;
     }
@@ -0,0 +1,250 @@
+package com.emily.infrastructure.core.context.holder;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @program: spring-parent
+ * @description: 请求各阶段的耗时区间，以System.nanoTime()计时，子区间挂在开始时所在的区间下形成调用树；
+ * 同一请求的区间共享一个汇总对象，按阶段累计次数及耗时，保留的区间数超过上限后只累计不保留
+ * @author: Emily
+ * @create: 2022/04/28
+ */
+public class TraceSpan {
+    /**
+     * 每个请求最多保留的区间数，避免循环调用时占用过多内存
+     */
+    static final int MAX_SPANS = 256;
+
+    private final ContextHolder.Stage stage;
+    private final String name;
+    private final TraceSpan parent;
+    /**
+     * 所属请求的汇总信息
+     */
+    private final Trace trace;
+    private final long startNanos;
+    /**
+     * 耗时，单位：纳秒，未结束时为-1
+     */
+    private volatile long durationNanos = -1;
+    /**
+     * 子区间，只在持有自身锁时读写
+     */
+    private List<TraceSpan> children;
+    /**
+     * 成为当前线程的当前区间之前，线程的当前区间
+     */
+    TraceSpan previous;
+    /**
+     * 根区间所属的请求上下文，用于输出汇总日志
+     */
+    ContextHolder.RequestHolder holder;
+
+    private TraceSpan(ContextHolder.Stage stage, String name, TraceSpan parent, Trace trace) {
+        this.stage = stage;
+        this.name = name;
+        this.parent = parent;
+        this.trace = trace;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * 创建请求的根区间
+     *
+     * @param stage 阶段
+     * @param name  名称
+     * @return
+     */
+    static TraceSpan root(ContextHolder.Stage stage, String name) {
+        return new TraceSpan(stage, name, null, new Trace());
+    }
+
+    /**
+     * 开始子区间
+     *
+     * @param stage 阶段
+     * @param name  名称
+     * @return
+     */
+    TraceSpan startChild(ContextHolder.Stage stage, String name) {
+        TraceSpan child = new TraceSpan(stage, name, this, trace);
+        if (trace.retain()) {
+            synchronized (this) {
+                if (children == null) {
+                    children = new ArrayList<>(4);
+                }
+                children.add(child);
+            }
+        }
+        return child;
+    }
+
+    /**
+     * 结束区间，可在其它线程中结束
+     *
+     * @return 是否首次结束
+     */
+    boolean end() {
+        synchronized (this) {
+            if (durationNanos >= 0) {
+                return false;
+            }
+            durationNanos = System.nanoTime() - startNanos;
+        }
+        trace.add(stage, durationNanos);
+        return true;
+    }
+
+    public boolean isEnded() {
+        return durationNanos >= 0;
+    }
+
+    public boolean isRoot() {
+        return parent == null;
+    }
+
+    public TraceSpan getParent() {
+        return parent;
+    }
+
+    /**
+     * 根区间是否有子区间，包括超过上限未保留的子区间
+     *
+     * @return
+     */
+    public boolean hasChildren() {
+        return trace.spans > 1;
+    }
+
+    public ContextHolder.Stage getStage() {
+        return stage;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * 耗时，单位：纳秒，未结束时为-1
+     *
+     * @return
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * 开始至今的耗时，单位：毫秒
+     *
+     * @return
+     */
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * 耗时，单位：毫秒
+     *
+     * @return
+     */
+    public long getDurationMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(Math.max(durationNanos, 0));
+    }
+
+    /**
+     * 是否属于指定根区间所在的请求
+     *
+     * @param root 根区间
+     * @return
+     */
+    boolean belongsTo(TraceSpan root) {
+        return root != null && trace == root.trace;
+    }
+
+    /**
+     * 生成区间树及各阶段耗时汇总的快照，时间单位：微秒，start为相对根区间开始的偏移，未结束的区间time为-1
+     *
+     * @return
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("stages", trace.snapshot());
+        record.put("dropped", trace.dropped());
+        record.put("spans", snapshot(startNanos));
+        return record;
+    }
+
+    private Map<String, Object> snapshot(long rootStartNanos) {
+        Map<String, Object> node = new LinkedHashMap<>();
+        node.put("stage", stage);
+        node.put("name", name);
+        node.put("start", TimeUnit.NANOSECONDS.toMicros(startNanos - rootStartNanos));
+        long duration = durationNanos;
+        node.put("time", duration < 0 ? -1 : TimeUnit.NANOSECONDS.toMicros(duration));
+        List<Map<String, Object>> list = null;
+        synchronized (this) {
+            if (children != null) {
+                list = new ArrayList<>(children.size());
+                for (TraceSpan child : children) {
+                    list.add(child.snapshot(rootStartNanos));
+                }
+            }
+        }
+        if (list != null) {
+            node.put("children", list);
+        }
+        return node;
+    }
+
+    /**
+     * 请求的汇总信息，按阶段累计已结束区间的次数及耗时
+     */
+    private static class Trace {
+        private final int[] counts = new int[ContextHolder.Stage.values().length];
+        private final long[] nanos = new long[ContextHolder.Stage.values().length];
+        /**
+         * 已开始的区间数，包括根区间
+         */
+        private volatile int spans = 1;
+
+        /**
+         * 开始一个子区间，返回是否保留在调用树中
+         *
+         * @return
+         */
+        synchronized boolean retain() {
+            return ++spans <= MAX_SPANS;
+        }
+
+        synchronized void add(ContextHolder.Stage stage, long duration) {
+            counts[stage.ordinal()]++;
+            nanos[stage.ordinal()] += duration;
+        }
+
+        synchronized int dropped() {
+            return Math.max(spans - MAX_SPANS, 0);
+        }
+
+        synchronized Map<String, Object> snapshot() {
+            Map<String, Object> stages = new LinkedHashMap<>();
+            for (ContextHolder.Stage stage : ContextHolder.Stage.values()) {
+                if (counts[stage.ordinal()] == 0) {
+                    continue;
+                }
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("count", counts[stage.ordinal()]);
+                item.put("time", TimeUnit.NANOSECONDS.toMicros(nanos[stage.ordinal()]));
+                stages.put(stage.name(), item);
+            }
+            return stages;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.emily.infrastructure.core.helper;
+
+import com.emily.infrastructure.core.context.ioc.IOCContext;
+import com.emily.infrastructure.core.entity.BaseLogger;
+import com.emily.infrastructure.core.logger.BaseLoggerSink;
+import com.emily.infrastructure.core.logger.BaseLoggerSinkProperties;
+import org.slf4j.Logger;
+import org.springframework.context.ApplicationContext;
+
+/**
+ * @program: spring-parent
+ * @description: 接口访问日志帮助类，日志由BaseLoggerSink的专用线程异步输出，不占用业务线程池
+ * @author: Emily
+ * @create: 2022/04/27
+ */
+public class BaseLoggerHelper {
+    /**
+     * 容器中的日志输出组件，首次获取后缓存，不在每条日志中按类型查找Bean
+     */
+    private static volatile BaseLoggerSink sink;
+
+    /**
+     * 异步输出日志
+     *
+     * @param logger     日志写入的Logger
+     * @param baseLogger 日志信息
+     */
+    public static void submit(Logger logger, BaseLogger baseLogger) {
+        sink().submit(logger, baseLogger);
+    }
+
+    /**
+     * 获取日志输出组件，容器未初始化时使用默认配置的组件且不缓存；容器中没有组件时缓存默认组件
+     *
+     * @return
+     */
+    private static BaseLoggerSink sink() {
+        BaseLoggerSink current = sink;
+        if (current != null) {
+            return current;
+        }
+        ApplicationContext context = IOCContext.getApplicationContext();
+        if (context == null) {
+            return DefaultSinkHolder.SINK;
+        }
+        current = context.getBeanProvider(BaseLoggerSink.class).getIfAvailable(() -> DefaultSinkHolder.SINK);
+        sink = current;
+        return current;
+    }
+
+    /**
+     * 默认日志输出组件，首次使用时创建
+     */
+    private static class DefaultSinkHolder {
+        private static final BaseLoggerSink SINK = new BaseLoggerSink(new BaseLoggerSinkProperties());
+    }
+}
@@ -7,6 +7,8 @@ import com.emily.infrastructure.common.exception.PrintExceptionInfo;
 import com.emily.infrastructure.common.utils.RequestUtils;
 import com.emily.infrastructure.common.utils.io.IOUtils;
 import com.emily.infrastructure.common.utils.json.JSONUtils;
+import com.emily.infrastructure.core.context.holder.ContextHolder;
+import com.emily.infrastructure.core.logger.BodyCapturePolicy;
 import com.emily.infrastructure.core.servlet.DelegateRequestWrapper;
 import com.emily.infrastructure.logger.LoggerFactory;
 import com.google.common.collect.Maps;
@@ -29,6 +31,10 @@ import java.util.*;
 public class RequestHelper {
 
     private static final Logger logger = LoggerFactory.getLogger(RequestHelper.class);
+    /**
+     * 截断后的请求体参数名
+     */
+    private static final String BODY = "body";
 
     /**
      * 获取请求入参,给API请求控制器获取入参
@@ -36,8 +42,18 @@ public class RequestHelper {
      * @return
      */
     public static Map<String, Object> getApiParamsMap() {
+        return getApiParamsMap(-1);
+    }
+
+    /**
+     * 获取请求入参,给API请求控制器获取入参，请求体超过最大字节数时截断为字符串，不再解析
+     *
+     * @param maxBodyBytes 请求体最大字节数，小于0时不截断
+     * @return
+     */
+    public static Map<String, Object> getApiParamsMap(int maxBodyBytes) {
         if (RequestUtils.isServletContext()) {
-            return getParamsMap(RequestUtils.getRequest());
+            return getParamsMap(RequestUtils.getRequest(), maxBodyBytes);
         }
         return Collections.emptyMap();
     }
@@ -46,28 +62,21 @@ public class RequestHelper {
      * 获取请求入参
      *
      * @param request
+     * @param maxBodyBytes 请求体最大字节数，小于0时不截断
      * @return
      */
-    private static Map<String, Object> getParamsMap(HttpServletRequest request) {
+    private static Map<String, Object> getParamsMap(HttpServletRequest request, int maxBodyBytes) {
         Map<String, Object> paramMap = new LinkedHashMap<>();
         if (request instanceof DelegateRequestWrapper) {
             DelegateRequestWrapper requestWrapper = (DelegateRequestWrapper) request;
-            Map<String, Object> body = getHttpClientParamsMap(requestWrapper.getRequestBody());
+            Map<String, Object> body = getHttpClientParamsMap(requestWrapper.getRequestBody(), maxBodyBytes);
             if (!CollectionUtils.isEmpty(body)) {
                 paramMap.putAll(body);
             }
         }
 
-        Enumeration<String> headerNames = request.getHeaderNames();
-        Optional.ofNullable(headerNames).ifPresent(headerName -> {
-            Map<String, Object> headers = Maps.newHashMap();
-            while (headerNames.hasMoreElements()) {
-                String name = headerNames.nextElement();
-                String value = request.getHeader(name);
-                headers.put(name, value);
-            }
-            paramMap.put("headers", headers);
-        });
+        //请求头每个请求只读取一次
+        paramMap.put("headers", ContextHolder.get().getHeaders());
 
         Enumeration<String> names = request.getParameterNames();
         while (names.hasMoreElements()) {
@@ -84,6 +93,20 @@ public class RequestHelper {
      * @return
      */
     public static Object getHttpClientResponseBody(byte[] body) {
+        return getHttpClientResponseBody(body, -1);
+    }
+
+    /**
+     * HttpClient 获取返回结果对象，超过最大字节数时截断为字符串，不再解析
+     *
+     * @param body         返回结果字节数组
+     * @param maxBodyBytes 最大字节数，小于0时不截断
+     * @return
+     */
+    public static Object getHttpClientResponseBody(byte[] body, int maxBodyBytes) {
+        if (exceeds(body, maxBodyBytes)) {
+            return BodyCapturePolicy.truncate(body, maxBodyBytes);
+        }
         try {
             return JSONUtils.toObject(body, Object.class);
         } catch (Exception e) {
@@ -98,6 +121,22 @@ public class RequestHelper {
      * @return
      */
     public static Map<String, Object> getHttpClientParamsMap(byte[] params) {
+        return getHttpClientParamsMap(params, -1);
+    }
+
+    /**
+     * HttpClient 获取参数对象，超过最大字节数时截断为字符串放入body参数，不再解析
+     *
+     * @param params       参数字节数组
+     * @param maxBodyBytes 最大字节数，小于0时不截断
+     * @return
+     */
+    public static Map<String, Object> getHttpClientParamsMap(byte[] params, int maxBodyBytes) {
+        if (exceeds(params, maxBodyBytes)) {
+            Map<String, Object> pMap = Maps.newLinkedHashMap();
+            pMap.put(BODY, BodyCapturePolicy.truncate(params, maxBodyBytes));
+            return pMap;
+        }
         try {
             return JSONUtils.toObject(params, Map.class);
         } catch (Exception e) {
@@ -105,6 +144,17 @@ public class RequestHelper {
         }
     }
 
+    /**
+     * 字节数组是否超过最大字节数
+     *
+     * @param bytes        字节数组
+     * @param maxBodyBytes 最大字节数，小于0时不限制
+     * @return
+     */
+    private static boolean exceeds(byte[] bytes, int maxBodyBytes) {
+        return maxBodyBytes >= 0 && bytes != null && bytes.length > maxBodyBytes;
+    }
+
     /**
      * 将参数转换为Map类型
      *
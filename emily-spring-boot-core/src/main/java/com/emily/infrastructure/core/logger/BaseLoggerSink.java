@@ -0,0 +1,200 @@
+package com.emily.infrastructure.core.logger;
+
+import com.emily.infrastructure.common.exception.PrintExceptionInfo;
+import com.emily.infrastructure.core.entity.BaseLogger;
+import com.emily.infrastructure.logback.configuration.encoder.LogbackRawMessage;
+import com.emily.infrastructure.logger.LoggerFactory;
+import org.slf4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @program: spring-parent
+ * @description: 接口访问日志异步输出，业务线程将日志写入有界无锁环形缓冲区后立即返回，不创建任务及Future；
+ * 单个输出线程批量取出日志，序列化为JSON字节后写入各自的Logger；缓冲区已满时按策略丢弃或阻塞，丢弃条数可查询
+ * @author: Emily
+ * @create: 2022/04/27
+ */
+public class BaseLoggerSink implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(BaseLoggerSink.class);
+    /**
+     * 缓冲区为空时输出线程的最长休眠时间，写入日志时会提前唤醒
+     */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    /**
+     * block策略下每次等待缓冲区空闲的时间
+     */
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final MpscRingBuffer<Event> buffer;
+    private final int batchSize;
+    private final OverflowPolicy policy;
+    private final long maxBlockNanos;
+    /**
+     * 丢弃的日志条数
+     */
+    private final LongAdder dropped = new LongAdder();
+    /**
+     * 已告警过的丢弃条数
+     */
+    private long reportedDropped;
+    /**
+     * 输出线程是否正在休眠
+     */
+    private final AtomicBoolean sleeping = new AtomicBoolean(false);
+    private volatile boolean running = true;
+    private final Thread consumer;
+
+    public BaseLoggerSink(BaseLoggerSinkProperties properties) {
+        this.buffer = new MpscRingBuffer<>(properties.getCapacity());
+        this.batchSize = Math.max(properties.getBatchSize(), 1);
+        this.policy = properties.getPolicy();
+        this.maxBlockNanos = properties.getMaxBlockTime().toNanos();
+        this.consumer = new Thread(this::consume, "base-logger-sink");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    /**
+     * 异步输出日志，JSON序列化在输出线程中进行
+     *
+     * @param target     日志写入的Logger
+     * @param baseLogger 日志信息
+     * @return 是否已写入缓冲区，已丢弃时返回false
+     */
+    public boolean submit(Logger target, BaseLogger baseLogger) {
+        Event event = new Event(target, baseLogger);
+        if (!running) {
+            dropped.increment();
+            return false;
+        }
+        if (!buffer.offer(event) && !(policy == OverflowPolicy.BLOCK && awaitOffer(event))) {
+            dropped.increment();
+            return false;
+        }
+        if (sleeping.get() && sleeping.compareAndSet(true, false)) {
+            LockSupport.unpark(consumer);
+        }
+        return true;
+    }
+
+    /**
+     * 等待缓冲区空闲后写入，超过最长阻塞时间放弃
+     *
+     * @param event 日志事件
+     * @return 是否写入成功
+     */
+    private boolean awaitOffer(Event event) {
+        long deadline = System.nanoTime() + maxBlockNanos;
+        do {
+            LockSupport.parkNanos(BLOCK_PARK_NANOS);
+            if (buffer.offer(event)) {
+                return true;
+            }
+        } while (running && System.nanoTime() - deadline < 0);
+        return false;
+    }
+
+    /**
+     * 输出线程，每批最多取出batchSize条日志，缓冲区为空时休眠；停止后输出剩余日志再退出
+     */
+    private void consume() {
+        while (running) {
+            if (drain() == 0) {
+                sleeping.set(true);
+                //设置休眠标记后再次检查，避免错过休眠前写入的日志
+                if (buffer.size() == 0 && running) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                sleeping.set(false);
+            }
+            reportDropped();
+        }
+        while (drain() > 0) {
+            //输出停止前已写入的日志
+        }
+        reportDropped();
+    }
+
+    /**
+     * 取出一批日志输出
+     *
+     * @return 本批输出的条数
+     */
+    private int drain() {
+        int count = 0;
+        Event event;
+        while (count < batchSize && (event = buffer.poll()) != null) {
+            count++;
+            try {
+                if (event.target.isInfoEnabled()) {
+                    //JSON直接写入字节缓冲区，编码器写出字节，不生成中间字符串
+                    event.target.info(LogbackRawMessage.FORMAT, BaseLoggerWriter.write(event.baseLogger));
+                }
+            } catch (Throwable ex) {
+                logger.error(PrintExceptionInfo.printErrorInfo(ex));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 有新丢弃的日志时告警
+     */
+    private void reportDropped() {
+        long total = dropped.sum();
+        if (total > reportedDropped) {
+            logger.warn("接口访问日志缓冲区已满，累计丢弃{}条，本次新增{}条", total, total - reportedDropped);
+            reportedDropped = total;
+        }
+    }
+
+    /**
+     * 丢弃的日志条数
+     *
+     * @return
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * 缓冲区中等待输出的日志条数
+     *
+     * @return
+     */
+    public int getPendingCount() {
+        return buffer.size();
+    }
+
+    /**
+     * 停止接收日志，等待输出线程输出剩余日志后退出
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 日志事件
+     */
+    private static class Event {
+        private final Logger target;
+        private final BaseLogger baseLogger;
+
+        Event(Logger target, BaseLogger baseLogger) {
+            this.target = target;
+            this.baseLogger = baseLogger;
+        }
+    }
+}
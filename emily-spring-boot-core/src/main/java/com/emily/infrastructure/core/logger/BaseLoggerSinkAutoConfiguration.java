@@ -0,0 +1,42 @@
+package com.emily.infrastructure.core.logger;
+
+import com.emily.infrastructure.logger.LoggerFactory;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+
+/**
+ * @program: spring-parent
+ * @description: 接口访问日志异步输出自动化配置
+ * @author: Emily
+ * @create: 2022/04/27
+ */
+@Configuration(proxyBeanMethods = false)
+@Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+@EnableConfigurationProperties(BaseLoggerSinkProperties.class)
+public class BaseLoggerSinkAutoConfiguration implements InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(BaseLoggerSinkAutoConfiguration.class);
+
+    @Bean
+    @ConditionalOnMissingBean
+    public BaseLoggerSink baseLoggerSink(BaseLoggerSinkProperties properties) {
+        return new BaseLoggerSink(properties);
+    }
+
+    @Override
+    public void destroy() {
+        logger.info("<== 【销毁--自动化配置】----接口访问日志异步输出组件【BaseLoggerSinkAutoConfiguration】");
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        logger.info("==> 【初始化--自动化配置】----接口访问日志异步输出组件【BaseLoggerSinkAutoConfiguration】");
+    }
+}
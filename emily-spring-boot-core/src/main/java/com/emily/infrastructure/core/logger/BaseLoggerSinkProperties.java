@@ -0,0 +1,67 @@
+package com.emily.infrastructure.core.logger;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * @program: spring-parent
+ * @description: 接口访问日志异步输出属性配置
+ * @author: Emily
+ * @create: 2022/04/27
+ */
+@ConfigurationProperties(prefix = BaseLoggerSinkProperties.PREFIX)
+public class BaseLoggerSinkProperties {
+    /**
+     * 前缀
+     */
+    public static final String PREFIX = "spring.emily.logger.sink";
+    /**
+     * 缓冲区容量，向上取整为2的幂，默认：8192
+     */
+    private int capacity = 8192;
+    /**
+     * 输出线程每批最多处理的日志条数，默认：256
+     */
+    private int batchSize = 256;
+    /**
+     * 缓冲区已满时的处理策略：drop-丢弃、block-阻塞等待，默认：drop
+     */
+    private OverflowPolicy policy = OverflowPolicy.DROP;
+    /**
+     * block策略的最长阻塞时间，默认：100毫秒
+     */
+    private Duration maxBlockTime = Duration.ofMillis(100);
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    public void setPolicy(OverflowPolicy policy) {
+        this.policy = policy;
+    }
+
+    public Duration getMaxBlockTime() {
+        return maxBlockTime;
+    }
+
+    public void setMaxBlockTime(Duration maxBlockTime) {
+        this.maxBlockTime = maxBlockTime;
+    }
+}
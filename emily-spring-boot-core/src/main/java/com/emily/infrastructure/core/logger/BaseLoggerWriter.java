@@ -0,0 +1,154 @@
+package com.emily.infrastructure.core.logger;
+
+import com.emily.infrastructure.common.enums.AppHttpStatus;
+import com.emily.infrastructure.common.exception.BasicException;
+import com.emily.infrastructure.common.utils.json.JSONUtils;
+import com.emily.infrastructure.core.entity.BaseLogger;
+import com.emily.infrastructure.logback.configuration.encoder.LogbackRawMessage;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @program: spring-parent
+ * @description: 接口访问日志JSON输出，使用JsonGenerator将日志直接写入线程复用的字节缓冲区，得到UTF-8字节消息，
+ * 不生成中间字符串；输出结果与JSONUtils.toJSONString一致；限制长度的响应结果在此序列化，超过最大字节数时截断
+ * @author: Emily
+ * @create: 2022/04/28
+ */
+public class BaseLoggerWriter {
+    /**
+     * 缓冲区初始容量，单位：字节
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+    /**
+     * 写入超过此长度的日志后不再复用缓冲区，避免长期占用大块内存，单位：字节
+     */
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private static final ThreadLocal<ByteArrayOutputStream> BUFFER = ThreadLocal.withInitial(() -> new ByteArrayOutputStream(INITIAL_CAPACITY));
+    /**
+     * 限制长度的响应结果的序列化缓冲区
+     */
+    private static final ThreadLocal<BoundedOutputStream> BODY_BUFFER = ThreadLocal.withInitial(BoundedOutputStream::new);
+
+    /**
+     * 将日志序列化为JSON字节消息
+     *
+     * @param baseLogger 日志信息
+     * @return 原始字节消息
+     */
+    public static LogbackRawMessage write(BaseLogger baseLogger) {
+        ByteArrayOutputStream buffer = BUFFER.get();
+        buffer.reset();
+        try (JsonGenerator generator = JSONUtils.createGenerator(buffer)) {
+            //字段顺序与BaseLogger属性的声明顺序一致
+            generator.writeStartObject();
+            generator.writeStringField("systemNumber", baseLogger.getSystemNumber());
+            generator.writeStringField("traceId", baseLogger.getTraceId());
+            generator.writeStringField("clientIp", baseLogger.getClientIp());
+            generator.writeStringField("serverIp", baseLogger.getServerIp());
+            generator.writeStringField("url", baseLogger.getUrl());
+            generator.writeObjectField("requestParams", baseLogger.getRequestParams());
+            generator.writeStringField("triggerTime", baseLogger.getTriggerTime());
+            generator.writeNumberField("time", baseLogger.getTime());
+            generator.writeFieldName("body");
+            writeBody(generator, baseLogger.getBody());
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new BasicException(AppHttpStatus.JSON_PARSE_EXCEPTION.getStatus(), "日志转换为JSON异常，" + e);
+        }
+        byte[] bytes = buffer.toByteArray();
+        if (bytes.length > MAX_RETAINED_CAPACITY) {
+            BUFFER.remove();
+        }
+        return LogbackRawMessage.of(bytes);
+    }
+
+    /**
+     * 写入响应结果，限制长度的响应结果先序列化到有界缓冲区，超过最大字节数的部分只计数不保留，超过时截断为字符串
+     *
+     * @param generator JSON生成器
+     * @param body      响应结果
+     * @throws IOException
+     */
+    private static void writeBody(JsonGenerator generator, Object body) throws IOException {
+        if (!(body instanceof BoundedBody)) {
+            generator.writeObject(body);
+            return;
+        }
+        BoundedBody bounded = (BoundedBody) body;
+        Object value = bounded.getValue();
+        int maxBytes = bounded.getMaxBytes();
+        if (value instanceof String) {
+            byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+            generator.writeString(bytes.length > maxBytes ? BodyCapturePolicy.truncate(bytes, maxBytes) : (String) value);
+            return;
+        }
+        BoundedOutputStream buffer = BODY_BUFFER.get();
+        //多保留一个字节，用于判断截断位置是否位于多字节字符中间
+        buffer.reset(maxBytes + 1);
+        try (JsonGenerator bodyGenerator = JSONUtils.createGenerator(buffer)) {
+            bodyGenerator.writeObject(value);
+        }
+        if (buffer.getTotal() > maxBytes) {
+            generator.writeString(BodyCapturePolicy.truncate(buffer.getBuffer(), buffer.size(), maxBytes, buffer.getTotal()));
+        } else {
+            generator.writeRawValue(buffer.toString(StandardCharsets.UTF_8));
+        }
+        if (buffer.size() > MAX_RETAINED_CAPACITY) {
+            BODY_BUFFER.remove();
+        }
+    }
+
+    /**
+     * 有界缓冲区，超过上限的字节只计数不保留
+     */
+    private static class BoundedOutputStream extends ByteArrayOutputStream {
+        /**
+         * 保留的最大字节数
+         */
+        private int limit;
+        /**
+         * 写入的总字节数
+         */
+        private long total;
+
+        BoundedOutputStream() {
+            super(INITIAL_CAPACITY);
+        }
+
+        void reset(int limit) {
+            reset();
+            this.limit = limit;
+            this.total = 0;
+        }
+
+        @Override
+        public void write(int b) {
+            total++;
+            if (count < limit) {
+                super.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            total += len;
+            int retained = Math.min(len, limit - count);
+            if (retained > 0) {
+                super.write(b, off, retained);
+            }
+        }
+
+        byte[] getBuffer() {
+            return buf;
+        }
+
+        long getTotal() {
+            return total;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.emily.infrastructure.core.logger;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @program: spring-parent
+ * @description: 接口访问日志请求参数及响应结果的记录策略，调用结束后按采样结果、是否异常及耗时决定是否记录，
+ * 记录时超过最大字节数的请求体及响应结果截断为字符串；响应结果在日志输出线程序列化时截断，不增加请求耗时
+ * @author: Emily
+ * @create: 2022/04/28
+ */
+public class BodyCapturePolicy {
+    /**
+     * 全部记录且不截断
+     */
+    public static final BodyCapturePolicy ALWAYS = new BodyCapturePolicy(new BodyCaptureProperties());
+    /**
+     * 采样精度
+     */
+    private static final int SAMPLE_SCALE = 10000;
+
+    private final PathMatcher pathMatcher = new AntPathMatcher();
+    /**
+     * 全局规则
+     */
+    private final Rule defaultRule;
+    /**
+     * 按请求路径覆盖的规则
+     */
+    private final List<Rule> pathRules;
+
+    public BodyCapturePolicy(BodyCaptureProperties properties) {
+        this.defaultRule = new Rule(null, properties.getSampleRate(), properties.isCaptureOnError(), properties.getSlowThreshold(), properties.getMaxBodyBytes());
+        List<Rule> pathRules = new ArrayList<>();
+        for (BodyCaptureProperties.Path path : properties.getPaths()) {
+            if (StringUtils.isEmpty(path.getPattern())) {
+                continue;
+            }
+            pathRules.add(new Rule(path.getPattern(),
+                    path.getSampleRate() == null ? defaultRule.sampleRate : path.getSampleRate(),
+                    path.getCaptureOnError() == null ? defaultRule.captureOnError : path.getCaptureOnError(),
+                    path.getSlowThreshold() == null ? properties.getSlowThreshold() : path.getSlowThreshold(),
+                    path.getMaxBodyBytes() == null ? defaultRule.maxBodyBytes : path.getMaxBodyBytes()));
+        }
+        this.pathRules = Collections.unmodifiableList(pathRules);
+    }
+
+    /**
+     * 获取请求路径适用的规则
+     *
+     * @param path 请求路径
+     * @return
+     */
+    public Rule getRule(String path) {
+        if (path != null) {
+            for (Rule rule : pathRules) {
+                if (pathMatcher.match(rule.pattern, path)) {
+                    return rule;
+                }
+            }
+        }
+        return defaultRule;
+    }
+
+    /**
+     * 将字节数组截断为指定字节数的字符串，末尾标记原始长度
+     *
+     * @param bytes        字节数组
+     * @param maxBodyBytes 最大字节数
+     * @return
+     */
+    public static String truncate(byte[] bytes, int maxBodyBytes) {
+        return truncate(bytes, bytes.length, maxBodyBytes, bytes.length);
+    }
+
+    /**
+     * 将字节数组截断为指定字节数的字符串，末尾标记原始长度
+     *
+     * @param bytes        字节数组，至少包含maxBodyBytes+1个有效字节，用于判断截断位置是否位于多字节字符中间
+     * @param length       有效字节数
+     * @param maxBodyBytes 最大字节数
+     * @param total        原始字节数
+     * @return
+     */
+    public static String truncate(byte[] bytes, int length, int maxBodyBytes, long total) {
+        int end = Math.min(Math.max(maxBodyBytes, 0), length);
+        //不截断UTF-8多字节字符
+        while (end > 0 && end < length && (bytes[end] & 0xC0) == 0x80) {
+            end--;
+        }
+        return StringUtils.join(new String(bytes, 0, end, StandardCharsets.UTF_8), "...[truncated, total ", total, " bytes]");
+    }
+
+    /**
+     * 记录规则
+     */
+    public static class Rule {
+        private final String pattern;
+        private final double sampleRate;
+        private final boolean captureOnError;
+        /**
+         * 慢调用阈值，单位：毫秒，小于0时不按耗时记录
+         */
+        private final long slowThresholdMillis;
+        private final int maxBodyBytes;
+
+        Rule(String pattern, double sampleRate, boolean captureOnError, Duration slowThreshold, int maxBodyBytes) {
+            this.pattern = pattern;
+            this.sampleRate = sampleRate;
+            this.captureOnError = captureOnError;
+            this.slowThresholdMillis = slowThreshold == null ? -1 : slowThreshold.toMillis();
+            this.maxBodyBytes = maxBodyBytes;
+        }
+
+        /**
+         * 是否记录请求参数及响应结果
+         *
+         * @param traceId 事务唯一编号，为空时随机采样
+         * @param error   调用是否异常
+         * @param time    耗时，单位：毫秒
+         * @return
+         */
+        public boolean shouldCapture(String traceId, boolean error, long time) {
+            if (error && captureOnError) {
+                return true;
+            }
+            if (slowThresholdMillis >= 0 && time >= slowThresholdMillis) {
+                return true;
+            }
+            return isSampled(traceId);
+        }
+
+        /**
+         * 按事务唯一编号采样，同一事务的采样结果一致
+         *
+         * @param traceId 事务唯一编号
+         * @return
+         */
+        private boolean isSampled(String traceId) {
+            if (sampleRate >= 1.0) {
+                return true;
+            }
+            if (sampleRate <= 0) {
+                return false;
+            }
+            int bucket = traceId == null ? ThreadLocalRandom.current().nextInt(SAMPLE_SCALE) : Math.floorMod(traceId.hashCode(), SAMPLE_SCALE);
+            return bucket < sampleRate * SAMPLE_SCALE;
+        }
+
+        /**
+         * 长度是否超过最大记录字节数
+         *
+         * @param length 字节数
+         * @return
+         */
+        public boolean exceeds(int length) {
+            return maxBodyBytes >= 0 && length > maxBodyBytes;
+        }
+
+        /**
+         * 限制响应结果的记录长度，由日志输出线程序列化时超过最大字节数截断为字符串，请求线程中不序列化
+         *
+         * @param body 响应结果
+         * @return
+         */
+        public Object limit(Object body) {
+            if (maxBodyBytes < 0 || body == null) {
+                return body;
+            }
+            return new BoundedBody(body, maxBodyBytes);
+        }
+
+        public int getMaxBodyBytes() {
+            return maxBodyBytes;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.emily.infrastructure.core.logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @program: spring-parent
+ * @description: 接口访问日志请求参数及响应结果的记录策略配置，未记录时日志只包含URL、耗时等基本信息；
+ * 默认全部记录且不截断，与未配置时的行为一致
+ * @author: Emily
+ * @create: 2022/04/28
+ */
+public class BodyCaptureProperties {
+    /**
+     * 采样率，取值0~1，按事务唯一编号采样，同一事务在各服务中的采样结果一致，默认：1-全部记录
+     */
+    private double sampleRate = 1.0;
+    /**
+     * 调用异常时是否始终记录，默认：true
+     */
+    private boolean captureOnError = true;
+    /**
+     * 耗时超过此值时始终记录，为空时不按耗时记录
+     */
+    private Duration slowThreshold;
+    /**
+     * 请求体及响应结果的最大记录字节数，超过时截断，小于0时不截断，默认：-1
+     */
+    private int maxBodyBytes = -1;
+    /**
+     * 按请求路径覆盖的配置，按顺序匹配第一个，未配置的属性使用全局配置
+     */
+    private List<Path> paths = new ArrayList<>();
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public boolean isCaptureOnError() {
+        return captureOnError;
+    }
+
+    public void setCaptureOnError(boolean captureOnError) {
+        this.captureOnError = captureOnError;
+    }
+
+    public Duration getSlowThreshold() {
+        return slowThreshold;
+    }
+
+    public void setSlowThreshold(Duration slowThreshold) {
+        this.slowThreshold = slowThreshold;
+    }
+
+    public int getMaxBodyBytes() {
+        return maxBodyBytes;
+    }
+
+    public void setMaxBodyBytes(int maxBodyBytes) {
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    public List<Path> getPaths() {
+        return paths;
+    }
+
+    public void setPaths(List<Path> paths) {
+        this.paths = paths;
+    }
+
+    /**
+     * 按请求路径覆盖的配置
+     */
+    public static class Path {
+        /**
+         * 请求路径，支持Ant风格，如：/api/upload/**
+         */
+        private String pattern;
+        /**
+         * 采样率
+         */
+        private Double sampleRate;
+        /**
+         * 调用异常时是否始终记录
+         */
+        private Boolean captureOnError;
+        /**
+         * 耗时超过此值时始终记录
+         */
+        private Duration slowThreshold;
+        /**
+         * 请求体及响应结果的最大记录字节数
+         */
+        private Integer maxBodyBytes;
+
+        public String getPattern() {
+            return pattern;
+        }
+
+        public void setPattern(String pattern) {
+            this.pattern = pattern;
+        }
+
+        public Double getSampleRate() {
+            return sampleRate;
+        }
+
+        public void setSampleRate(Double sampleRate) {
+            this.sampleRate = sampleRate;
+        }
+
+        public Boolean getCaptureOnError() {
+            return captureOnError;
+        }
+
+        public void setCaptureOnError(Boolean captureOnError) {
+            this.captureOnError = captureOnError;
+        }
+
+        public Duration getSlowThreshold() {
+            return slowThreshold;
+        }
+
+        public void setSlowThreshold(Duration slowThreshold) {
+            this.slowThreshold = slowThreshold;
+        }
+
+        public Integer getMaxBodyBytes() {
+            return maxBodyBytes;
+        }
+
+        public void setMaxBodyBytes(Integer maxBodyBytes) {
+            this.maxBodyBytes = maxBodyBytes;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.emily.infrastructure.core.logger;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * @program: spring-parent
+ * @description: 限制记录长度的响应结果，由日志输出线程序列化时按最大字节数截断，不在请求线程中序列化；
+ * 未经BaseLoggerWriter输出时按原始值序列化
+ * @author: Emily
+ * @create: 2022/04/28
+ */
+public class BoundedBody {
+    /**
+     * 响应结果
+     */
+    private final Object value;
+    /**
+     * 最大记录字节数
+     */
+    private final int maxBytes;
+
+    public BoundedBody(Object value, int maxBytes) {
+        this.value = value;
+        this.maxBytes = maxBytes;
+    }
+
+    @JsonValue
+    public Object getValue() {
+        return value;
+    }
+
+    public int getMaxBytes() {
+        return maxBytes;
+    }
+}
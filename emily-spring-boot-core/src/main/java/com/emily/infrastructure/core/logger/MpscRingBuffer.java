@@ -0,0 +1,102 @@
+package com.emily.infrastructure.core.logger;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * @program: spring-parent
+ * @description: 有界多生产者单消费者无锁环形缓冲区，每个槽位记录序号，生产者以CAS抢占写入位置，写入元素后更新序号发布；
+ * 唯一的消费者按序号判断槽位是否已发布，读取后将序号推进一圈释放槽位
+ * @author: Emily
+ * @create: 2022/04/27
+ */
+class MpscRingBuffer<E> {
+    /**
+     * 容量，2的幂
+     */
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> buffer;
+    /**
+     * 槽位序号，等于写入位置时可写，等于写入位置+1时已发布可读
+     */
+    private final AtomicLongArray sequences;
+    /**
+     * 下一个写入位置
+     */
+    private final AtomicLong tail = new AtomicLong(0);
+    /**
+     * 下一个读取位置，只由消费者更新
+     */
+    private volatile long head;
+
+    MpscRingBuffer(int capacity) {
+        this.capacity = capacity < 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.buffer = new AtomicReferenceArray<>(this.capacity);
+        this.sequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 写入元素，可由多个线程同时调用
+     *
+     * @param element 元素
+     * @return 缓冲区已满时返回false
+     */
+    boolean offer(E element) {
+        long position;
+        int index;
+        for (; ; ) {
+            position = tail.get();
+            index = (int) (position & mask);
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if (diff < 0) {
+                //槽位上一圈的元素尚未被消费
+                return false;
+            }
+        }
+        buffer.lazySet(index, element);
+        //序号在元素之后写入，消费者读到序号时元素已可见
+        sequences.set(index, position + 1);
+        return true;
+    }
+
+    /**
+     * 读取元素，只能由消费者线程调用
+     *
+     * @return 缓冲区为空或下一个槽位尚未发布时返回null
+     */
+    E poll() {
+        long position = head;
+        int index = (int) (position & mask);
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        E element = buffer.get(index);
+        buffer.lazySet(index, null);
+        sequences.set(index, position + capacity);
+        head = position + 1;
+        return element;
+    }
+
+    /**
+     * 缓冲区中的元素数，并发写入时为近似值
+     *
+     * @return
+     */
+    int size() {
+        return (int) Math.max(0, Math.min(capacity, tail.get() - head));
+    }
+
+    int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,18 @@
+package com.emily.infrastructure.core.logger;
+
+/**
+ * @program: spring-parent
+ * @description: 日志缓冲区已满时的处理策略
+ * @author: Emily
+ * @create: 2022/04/27
+ */
+public enum OverflowPolicy {
+    /**
+     * 丢弃新的日志并计数，不阻塞业务线程
+     */
+    DROP,
+    /**
+     * 阻塞业务线程等待缓冲区空闲，超过最长阻塞时间仍无空闲时丢弃并计数
+     */
+    BLOCK
+}
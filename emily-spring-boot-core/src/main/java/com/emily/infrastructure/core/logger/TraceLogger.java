@@ -0,0 +1,55 @@
+package com.emily.infrastructure.core.logger;
+
+import com.emily.infrastructure.common.enums.DateFormat;
+import com.emily.infrastructure.core.context.holder.ContextHolder;
+import com.emily.infrastructure.core.context.holder.TraceSpan;
+import com.emily.infrastructure.core.entity.BaseLogger;
+import com.emily.infrastructure.core.helper.BaseLoggerHelper;
+import com.emily.infrastructure.logger.LoggerFactory;
+import org.slf4j.Logger;
+
+import java.time.LocalDateTime;
+
+/**
+ * @program: spring-parent
+ * @description: 请求耗时汇总日志，根区间结束时输出一条日志，响应结果为各阶段耗时汇总及区间调用树，
+ * 无需按事务唯一编号关联各阶段的日志即可定位慢请求的耗时阶段
+ * @author: Emily
+ * @create: 2022/04/28
+ */
+public class TraceLogger {
+
+    private static final Logger logger = LoggerFactory.getLogger(TraceLogger.class);
+
+    /**
+     * 输出请求耗时汇总日志
+     *
+     * @param holder 请求上下文
+     * @param root   根区间
+     */
+    public static void record(ContextHolder.RequestHolder holder, TraceSpan root) {
+        BaseLogger baseLogger = new BaseLogger();
+        if (holder != null) {
+            //系统编号
+            baseLogger.setSystemNumber(holder.getSystemNumber());
+            //事务唯一编号
+            baseLogger.setTraceId(holder.getTraceId());
+            //客户端IP
+            baseLogger.setClientIp(holder.getClientIp());
+            //服务端IP
+            baseLogger.setServerIp(holder.getServerIp());
+            //请求URL
+            baseLogger.setUrl(holder.getUrl());
+        }
+        if (baseLogger.getUrl() == null) {
+            baseLogger.setUrl(root.getName());
+        }
+        //触发时间
+        baseLogger.setTriggerTime(LocalDateTime.now().format(DateFormat.YYYY_MM_DD_HH_MM_SS_SSS.getFormatter()));
+        //根区间耗时
+        baseLogger.setTime(root.getDurationMillis());
+        //各阶段耗时汇总及区间调用树，在当前线程生成快照，未结束的异步区间耗时为-1
+        baseLogger.setBody(root.snapshot());
+        BaseLoggerHelper.submit(logger, baseLogger);
+    }
+}
@@ -3,6 +3,10 @@ package com.emily.infrastructure.core.servlet;
 import com.emily.infrastructure.common.enums.AppHttpStatus;
 import com.emily.infrastructure.common.exception.BasicException;
 import com.emily.infrastructure.common.exception.PrintExceptionInfo;
+import com.emily.infrastructure.core.context.holder.ContextHolder;
+
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
 import javax.servlet.*;
 import javax.servlet.http.HttpServletRequest;
@@ -20,10 +24,13 @@ public class RequestChannelFilter implements Filter {
 
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) {
+        ServletRequestAttributes attributes = null;
         try {
-            ServletRequest requestWrapper;
             if (request instanceof HttpServletRequest) {
-                requestWrapper = new DelegateRequestWrapper((HttpServletRequest) request);
+                HttpServletRequest requestWrapper = new DelegateRequestWrapper((HttpServletRequest) request);
+                //本过滤器先于RequestContextFilter执行，提前绑定请求，使后续过滤器中创建的请求上下文即为servlet上下文
+                attributes = new ServletRequestAttributes(requestWrapper);
+                RequestContextHolder.setRequestAttributes(attributes);
                 chain.doFilter(requestWrapper, response);
             } else {
                 chain.doFilter(request, response);
@@ -32,6 +39,13 @@ public class RequestChannelFilter implements Filter {
             throw new BasicException(AppHttpStatus.IO_EXCEPTION.getStatus(), PrintExceptionInfo.printErrorInfo(ex));
         } catch (ServletException ex) {
             throw new BasicException(AppHttpStatus.EXCEPTION.getStatus(), PrintExceptionInfo.printErrorInfo(ex));
+        } finally {
+            //请求结束，删除请求缓存的上下文数据
+            ContextHolder.clear();
+            if (attributes != null) {
+                attributes.requestCompleted();
+                RequestContextHolder.resetRequestAttributes();
+            }
         }
 
 
@@ -39,7 +39,8 @@ public class LogbackAsyncAppender {
     public AsyncAppender getAppender(Appender ref) {
 
         //这里是可以用来设置appender的，在xml配置文件里面，是这种形式：
-        AsyncAppender appender = new AsyncAppender();
+        //原始字节消息入队前不格式化为字符串
+        AsyncAppender appender = new LogbackRawMessageAsyncAppender();
         //设置上下文，每个logger都关联到logger上下文，默认上下文名称为default。
         // 但可以使用<contextName>设置成其他名字，用于区分不同应用程序的记录。一旦设置，不能修改。
         appender.setContext(this.getLoggerContext());
@@ -0,0 +1,28 @@
+package com.emily.infrastructure.logback.configuration.appender;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import com.emily.infrastructure.logback.configuration.encoder.LogbackRawMessage;
+
+/**
+ * @program: spring-parent
+ * @description: 异步Appender，原始字节消息入队前不格式化为字符串，由编码器直接写出字节
+ * @author: Emily
+ * @create: 2022/04/28
+ */
+public class LogbackRawMessageAsyncAppender extends AsyncAppender {
+
+    @Override
+    protected void preprocess(ILoggingEvent eventObject) {
+        if (LogbackRawMessage.from(eventObject) == null) {
+            super.preprocess(eventObject);
+            return;
+        }
+        //只保留线程名及MDC，消息字节在输出前不可修改，无需提前格式化
+        eventObject.getThreadName();
+        eventObject.getMDCPropertyMap();
+        if (isIncludeCallerData()) {
+            eventObject.getCallerData();
+        }
+    }
+}
@@ -20,7 +20,8 @@ public class LogbackEncoder {
      * @return
      */
     public static PatternLayoutEncoder getPatternLayoutEncoder(Context context, String pattern) {
-        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        //支持直接写出原始字节消息
+        PatternLayoutEncoder encoder = new LogbackRawMessageEncoder();
         //设置上下文，每个logger都关联到logger上下文，默认上下文名称为default。
         // 但可以使用<contextName>设置成其他名字，用于区分不同应用程序的记录。一旦设置，不能修改。
         encoder.setContext(context);
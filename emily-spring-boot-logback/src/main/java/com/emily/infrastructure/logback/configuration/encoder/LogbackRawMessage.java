@@ -0,0 +1,52 @@
+package com.emily.infrastructure.logback.configuration.encoder;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @program: spring-parent
+ * @description: 已编码为UTF-8字节的日志消息，以logger.info("{}", message)的形式输出，编码器直接写出字节，不生成中间字符串；
+ * 其它编码器按toString输出，字节数组在输出前不可修改
+ * @author: Emily
+ * @create: 2022/04/28
+ */
+public final class LogbackRawMessage {
+    /**
+     * 输出原始字节时日志消息的格式
+     */
+    public static final String FORMAT = "{}";
+
+    private final byte[] bytes;
+
+    private LogbackRawMessage(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    public static LogbackRawMessage of(byte[] bytes) {
+        return new LogbackRawMessage(bytes);
+    }
+
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    /**
+     * 获取日志事件携带的原始字节消息
+     *
+     * @param event 日志事件
+     * @return 不是原始字节消息时返回null
+     */
+    public static LogbackRawMessage from(ILoggingEvent event) {
+        Object[] args = event.getArgumentArray();
+        if (args == null || args.length != 1 || !(args[0] instanceof LogbackRawMessage) || !FORMAT.equals(event.getMessage())) {
+            return null;
+        }
+        return (LogbackRawMessage) args[0];
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,120 @@
+package com.emily.infrastructure.logback.configuration.encoder;
+
+import ch.qos.logback.classic.PatternLayout;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @program: spring-parent
+ * @description: 支持原始字节消息的编码器，日志格式以消息占位符拆分为前后两段，原始字节消息按“前缀+消息字节+后缀”直接拼接，
+ * 不经过字符串格式化及字符编码；消息占位符带格式修饰、位于复合关键字中或编码不是UTF-8时按普通消息输出
+ * @author: Emily
+ * @create: 2022/04/28
+ */
+public class LogbackRawMessageEncoder extends PatternLayoutEncoder {
+    /**
+     * 消息占位符：%m、%msg、%message，不匹配%mdc、%marker、%method等关键字
+     */
+    private static final Pattern MESSAGE_PATTERN = Pattern.compile("(?<!\\\\)%(m|msg|message)(?![a-zA-Z])");
+    private static final byte[] EMPTY = new byte[0];
+    /**
+     * 消息之前部分的格式
+     */
+    private PatternLayout prefixLayout;
+    /**
+     * 消息之后部分的格式，包含换行符及异常堆栈
+     */
+    private PatternLayout suffixLayout;
+    /**
+     * 是否可以直接写出原始字节
+     */
+    private boolean rawSupported;
+
+    @Override
+    public void start() {
+        super.start();
+        if (!StandardCharsets.UTF_8.equals(getCharset()) || getPattern() == null) {
+            return;
+        }
+        Matcher matcher = MESSAGE_PATTERN.matcher(getPattern());
+        if (!matcher.find()) {
+            return;
+        }
+        String prefix = getPattern().substring(0, matcher.start());
+        String suffix = getPattern().substring(matcher.end());
+        //消息只能出现一次，且不能位于%replace(...)等复合关键字中
+        if (matcher.find() || count(prefix, '(') != count(prefix, ')')) {
+            return;
+        }
+        //前缀不输出异常堆栈，异常堆栈由后缀输出
+        this.prefixLayout = createLayout(prefix, false);
+        this.suffixLayout = createLayout(suffix, true);
+        this.rawSupported = true;
+    }
+
+    @Override
+    public byte[] encode(ILoggingEvent event) {
+        LogbackRawMessage message = rawSupported ? LogbackRawMessage.from(event) : null;
+        if (message == null) {
+            return super.encode(event);
+        }
+        byte[] prefix = layout(prefixLayout, event);
+        byte[] body = message.getBytes();
+        byte[] suffix = layout(suffixLayout, event);
+        byte[] bytes = new byte[prefix.length + body.length + suffix.length];
+        System.arraycopy(prefix, 0, bytes, 0, prefix.length);
+        System.arraycopy(body, 0, bytes, prefix.length, body.length);
+        System.arraycopy(suffix, 0, bytes, prefix.length + body.length, suffix.length);
+        return bytes;
+    }
+
+    @Override
+    public void stop() {
+        if (prefixLayout != null) {
+            prefixLayout.stop();
+        }
+        if (suffixLayout != null) {
+            suffixLayout.stop();
+        }
+        super.stop();
+    }
+
+    /**
+     * 创建部分日志格式的布局
+     *
+     * @param pattern         日志格式
+     * @param handleException 是否在末尾输出异常堆栈
+     * @return 日志格式为空时返回null
+     */
+    private PatternLayout createLayout(String pattern, boolean handleException) {
+        if (pattern.isEmpty()) {
+            return null;
+        }
+        PatternLayout layout = new PatternLayout();
+        layout.setContext(getContext());
+        layout.setPattern(pattern);
+        if (!handleException) {
+            layout.setPostCompileProcessor(null);
+        }
+        layout.start();
+        return layout;
+    }
+
+    private static byte[] layout(PatternLayout layout, ILoggingEvent event) {
+        return layout == null ? EMPTY : layout.doLayout(event).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int count(String str, char ch) {
+        int count = 0;
+        for (int i = 0; i < str.length(); i++) {
+            if (str.charAt(i) == ch) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -25,7 +25,6 @@ import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
 import java.text.MessageFormat;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 
 /**
  * @author Emily
@@ -191,7 +190,7 @@ public class ExceptionAdviceHandler {
             //服务端IP
             baseLogger.setServerIp(ContextHolder.get().getServerIp());
             //触发时间
-            baseLogger.setTriggerTime(LocalDateTime.now().format(DateTimeFormatter.ofPattern(DateFormat.YYYY_MM_DD_HH_MM_SS_SSS.getFormat())));
+            baseLogger.setTriggerTime(LocalDateTime.now().format(DateFormat.YYYY_MM_DD_HH_MM_SS_SSS.getFormatter()));
             //请求参数
             baseLogger.setRequestParams(RequestHelper.getApiParamsMap());
             //响应体
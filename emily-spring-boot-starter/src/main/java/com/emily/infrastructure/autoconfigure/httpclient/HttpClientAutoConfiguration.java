@@ -3,6 +3,7 @@ package com.emily.infrastructure.autoconfigure.httpclient;
 import com.emily.infrastructure.autoconfigure.httpclient.handler.CustomResponseErrorHandler;
 import com.emily.infrastructure.autoconfigure.httpclient.interceptor.DefaultHttpClientInterceptor;
 import com.emily.infrastructure.autoconfigure.httpclient.interceptor.HttpClientCustomizer;
+import com.emily.infrastructure.core.logger.BodyCapturePolicy;
 import com.emily.infrastructure.logger.LoggerFactory;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.DisposableBean;
@@ -68,8 +69,8 @@ public class HttpClientAutoConfiguration implements InitializingBean, Disposable
     }
 
     @Bean
-    public DefaultHttpClientInterceptor httpClientInterceptor() {
-        return new DefaultHttpClientInterceptor();
+    public DefaultHttpClientInterceptor httpClientInterceptor(HttpClientProperties httpClientProperties) {
+        return new DefaultHttpClientInterceptor(new BodyCapturePolicy(httpClientProperties.getCapture()));
     }
 
     @Override
@@ -4,11 +4,12 @@ import com.emily.infrastructure.common.constant.AopOrderInfo;
 import com.emily.infrastructure.common.constant.HeaderInfo;
 import com.emily.infrastructure.common.enums.DateFormat;
 import com.emily.infrastructure.common.exception.PrintExceptionInfo;
-import com.emily.infrastructure.common.utils.json.JSONUtils;
 import com.emily.infrastructure.core.context.holder.ContextHolder;
+import com.emily.infrastructure.core.context.holder.TraceSpan;
 import com.emily.infrastructure.core.entity.BaseLogger;
+import com.emily.infrastructure.core.helper.BaseLoggerHelper;
 import com.emily.infrastructure.core.helper.RequestHelper;
-import com.emily.infrastructure.core.helper.ThreadPoolHelper;
+import com.emily.infrastructure.core.logger.BodyCapturePolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpRequest;
@@ -18,7 +19,6 @@ import org.springframework.util.StreamUtils;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 
 /**
  * @author Emily
@@ -29,6 +29,18 @@ import java.time.format.DateTimeFormatter;
 public class DefaultHttpClientInterceptor implements HttpClientCustomizer {
 
     private static final Logger logger = LoggerFactory.getLogger(DefaultHttpClientInterceptor.class);
+    /**
+     * 请求参数及响应结果记录策略
+     */
+    private final BodyCapturePolicy capturePolicy;
+
+    public DefaultHttpClientInterceptor() {
+        this(BodyCapturePolicy.ALWAYS);
+    }
+
+    public DefaultHttpClientInterceptor(BodyCapturePolicy capturePolicy) {
+        this.capturePolicy = capturePolicy;
+    }
 
     /**
      * RestTemplate拦截方法
@@ -51,34 +63,48 @@ public class DefaultHttpClientInterceptor implements HttpClientCustomizer {
         baseLogger.setTraceId(ContextHolder.get().getTraceId());
         //请求URL
         baseLogger.setUrl(request.getURI().toString());
-        //请求参数
-        baseLogger.setRequestParams(RequestHelper.getHttpClientParamsMap(body));
+        //请求参数及响应结果记录规则
+        BodyCapturePolicy.Rule rule = capturePolicy.getRule(request.getURI().getPath());
+        //是否记录请求参数及响应结果
+        boolean capture = false;
         //开始计时
-        long start = System.currentTimeMillis();
+        TraceSpan span = ContextHolder.startSpan(ContextHolder.Stage.HTTP, baseLogger.getUrl());
         try {
             //调用接口
             ClientHttpResponse response = execution.execute(request, body);
-            //响应数据
-            Object responseBody = RequestHelper.getHttpClientResponseBody(StreamUtils.copyToByteArray(response.getBody()));
-            //响应结果
-            baseLogger.setBody(responseBody);
+            //按采样结果、响应状态码及耗时决定是否记录，不记录时不读取及解析响应数据
+            capture = rule.shouldCapture(baseLogger.getTraceId(), response.getRawStatusCode() >= 400, span.getElapsedMillis());
+            if (capture) {
+                //响应数据
+                Object responseBody = RequestHelper.getHttpClientResponseBody(StreamUtils.copyToByteArray(response.getBody()), rule.getMaxBodyBytes());
+                //响应结果
+                baseLogger.setBody(responseBody);
+            }
 
             return response;
         } catch (IOException ex) {
-            //响应结果
-            baseLogger.setBody(PrintExceptionInfo.printErrorInfo(ex));
+            capture = rule.shouldCapture(baseLogger.getTraceId(), true, span.getElapsedMillis());
+            if (capture) {
+                //响应结果
+                baseLogger.setBody(PrintExceptionInfo.printErrorInfo(ex));
+            }
             throw ex;
         } finally {
+            ContextHolder.endSpan(span);
+            if (capture) {
+                //请求参数
+                baseLogger.setRequestParams(RequestHelper.getHttpClientParamsMap(body, rule.getMaxBodyBytes()));
+            }
             //客户端IP
             baseLogger.setClientIp(ContextHolder.get().getClientIp());
             //服务端IP
             baseLogger.setServerIp(ContextHolder.get().getServerIp());
             //耗时
-            baseLogger.setTime(System.currentTimeMillis() - start);
+            baseLogger.setTime(span.getDurationMillis());
             //响应时间
-            baseLogger.setTriggerTime(LocalDateTime.now().format(DateTimeFormatter.ofPattern(DateFormat.YYYY_MM_DD_HH_MM_SS_SSS.getFormat())));
+            baseLogger.setTriggerTime(LocalDateTime.now().format(DateFormat.YYYY_MM_DD_HH_MM_SS_SSS.getFormatter()));
             //异步线程池记录日志
-            ThreadPoolHelper.threadPoolTaskExecutor().submit(() -> logger.info(JSONUtils.toJSONString(baseLogger)));
+            BaseLoggerHelper.submit(logger, baseLogger);
             //非servlet上下文移除数据
             ContextHolder.remove();
         }
@@ -3,6 +3,7 @@ package com.emily.infrastructure.autoconfigure.request;
 import com.emily.infrastructure.autoconfigure.request.interceptor.DefaultRequestMethodInterceptor;
 import com.emily.infrastructure.autoconfigure.request.interceptor.RequestCustomizer;
 import com.emily.infrastructure.common.constant.AopOrderInfo;
+import com.emily.infrastructure.core.logger.BodyCapturePolicy;
 import com.emily.infrastructure.logger.LoggerFactory;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -77,8 +78,8 @@ public class RequestAutoConfiguration implements BeanFactoryPostProcessor, Initi
     @Bean
     @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
     @ConditionalOnMissingBean
-    public RequestCustomizer requestCustomizer() {
-        return new DefaultRequestMethodInterceptor();
+    public RequestCustomizer requestCustomizer(RequestProperties properties) {
+        return new DefaultRequestMethodInterceptor(new BodyCapturePolicy(properties.getCapture()));
     }
 
     @Override
@@ -1,5 +1,6 @@
 package com.emily.infrastructure.autoconfigure.request;
 
+import com.emily.infrastructure.core.logger.BodyCaptureProperties;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 /**
@@ -17,6 +18,10 @@ public class RequestProperties {
      * 组件开关
      */
     private boolean enabled;
+    /**
+     * 请求参数及响应结果记录策略
+     */
+    private BodyCaptureProperties capture = new BodyCaptureProperties();
 
     public boolean isEnabled() {
         return enabled;
@@ -25,4 +30,12 @@ public class RequestProperties {
     public void setEnabled(boolean enabled) {
         this.enabled = enabled;
     }
+
+    public BodyCaptureProperties getCapture() {
+        return capture;
+    }
+
+    public void setCapture(BodyCaptureProperties capture) {
+        this.capture = capture;
+    }
 }
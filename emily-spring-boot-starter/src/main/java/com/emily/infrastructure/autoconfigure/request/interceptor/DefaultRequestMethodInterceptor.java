@@ -2,23 +2,22 @@ package com.emily.infrastructure.autoconfigure.request.interceptor;
 
 import com.emily.infrastructure.common.constant.AopOrderInfo;
 import com.emily.infrastructure.common.constant.AttributeInfo;
-import com.emily.infrastructure.common.constant.CharacterInfo;
 import com.emily.infrastructure.common.enums.DateFormat;
 import com.emily.infrastructure.common.exception.BasicException;
 import com.emily.infrastructure.common.exception.PrintExceptionInfo;
 import com.emily.infrastructure.common.utils.RequestUtils;
-import com.emily.infrastructure.common.utils.json.JSONUtils;
 import com.emily.infrastructure.core.context.holder.ContextHolder;
+import com.emily.infrastructure.core.context.holder.TraceSpan;
 import com.emily.infrastructure.core.entity.BaseLogger;
+import com.emily.infrastructure.core.helper.BaseLoggerHelper;
 import com.emily.infrastructure.core.helper.RequestHelper;
-import com.emily.infrastructure.core.helper.ThreadPoolHelper;
+import com.emily.infrastructure.core.logger.BodyCapturePolicy;
 import com.emily.infrastructure.logger.LoggerFactory;
 import org.aopalliance.intercept.MethodInvocation;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 
 /**
  * @author Emily
@@ -28,6 +27,18 @@ import java.time.format.DateTimeFormatter;
 public class DefaultRequestMethodInterceptor implements RequestCustomizer {
 
     private static final Logger logger = LoggerFactory.getLogger(DefaultRequestMethodInterceptor.class);
+    /**
+     * 请求参数及响应结果记录策略
+     */
+    private final BodyCapturePolicy capturePolicy;
+
+    public DefaultRequestMethodInterceptor() {
+        this(BodyCapturePolicy.ALWAYS);
+    }
+
+    public DefaultRequestMethodInterceptor(BodyCapturePolicy capturePolicy) {
+        this.capturePolicy = capturePolicy;
+    }
 
     /**
      * 拦截接口日志
@@ -40,25 +51,26 @@ public class DefaultRequestMethodInterceptor implements RequestCustomizer {
     public Object invoke(MethodInvocation invocation) throws Throwable {
         //设置当前请求阶段标识
         ContextHolder.get().setStage(ContextHolder.Stage.REQUEST);
+        //请求阶段耗时区间，作为请求的根区间，各下游阶段的区间挂在其下
+        TraceSpan span = ContextHolder.startSpan(ContextHolder.Stage.REQUEST, ContextHolder.get().getRequestUri());
         //封装异步日志信息
         BaseLogger baseLogger = new BaseLogger();
+        //调用是否异常
+        boolean error = false;
         try {
             //系统编号
             baseLogger.setSystemNumber(ContextHolder.get().getSystemNumber());
             //事务唯一编号
             baseLogger.setTraceId(ContextHolder.get().getTraceId());
-            //时间
-            baseLogger.setTriggerTime(LocalDateTime.now().format(DateTimeFormatter.ofPattern(DateFormat.YYYY_MM_DD_HH_MM_SS_SSS.getFormat())));
             //请求url
-            baseLogger.setUrl(StringUtils.substringBefore(String.valueOf(RequestUtils.getRequest().getRequestURL()), CharacterInfo.ASK_SIGN_EN));
-            //请求参数
-            baseLogger.setRequestParams(RequestHelper.getApiParamsMap());
+            baseLogger.setUrl(ContextHolder.get().getUrl());
             //调用真实的action方法
             Object response = invocation.proceed();
             //设置响应结果
             baseLogger.setBody(response);
             return response;
         } catch (Exception ex) {
+            error = true;
             if (ex instanceof BasicException) {
                 BasicException exception = (BasicException) ex;
                 baseLogger.setBody(StringUtils.join(ex, " 【statusCode】", exception.getStatus(), ", 【errorMessage】", exception.getMessage()));
@@ -67,16 +79,28 @@ public class DefaultRequestMethodInterceptor implements RequestCustomizer {
             }
             throw ex;
         } finally {
+            //先结束请求阶段，有下游阶段时输出耗时汇总日志，避免后续获取请求参数异常时区间不结束
+            ContextHolder.endSpan(span);
             //客户端IP
             baseLogger.setClientIp(ContextHolder.get().getClientIp());
             //服务端IP
             baseLogger.setServerIp(ContextHolder.get().getServerIp());
             //耗时
-            baseLogger.setTime(System.currentTimeMillis() - ContextHolder.get().getStartTime());
+            baseLogger.setTime(span.getDurationMillis());
+            //按采样结果、是否异常及耗时决定是否记录请求参数及响应结果
+            BodyCapturePolicy.Rule rule = capturePolicy.getRule(ContextHolder.get().getRequestUri());
+            if (rule.shouldCapture(baseLogger.getTraceId(), error, baseLogger.getTime())) {
+                //请求参数
+                baseLogger.setRequestParams(RequestHelper.getApiParamsMap(rule.getMaxBodyBytes()));
+                //响应结果
+                baseLogger.setBody(rule.limit(baseLogger.getBody()));
+            } else {
+                baseLogger.setBody(null);
+            }
             //时间
-            baseLogger.setTriggerTime(LocalDateTime.now().format(DateTimeFormatter.ofPattern(DateFormat.YYYY_MM_DD_HH_MM_SS_SSS.getFormat())));
+            baseLogger.setTriggerTime(LocalDateTime.now().format(DateFormat.YYYY_MM_DD_HH_MM_SS_SSS.getFormatter()));
             //异步记录接口响应信息
-            ThreadPoolHelper.threadPoolTaskExecutor().submit(() -> logger.info(JSONUtils.toJSONString(baseLogger)));
+            BaseLoggerHelper.submit(logger, baseLogger);
             //移除线程上下文数据
             ContextHolder.remove();
             //设置耗时
@@ -5,17 +5,16 @@ import com.emily.infrastructure.common.constant.AopOrderInfo;
 import com.emily.infrastructure.common.enums.DateFormat;
 import com.emily.infrastructure.common.exception.BasicException;
 import com.emily.infrastructure.common.exception.PrintExceptionInfo;
-import com.emily.infrastructure.common.utils.json.JSONUtils;
 import com.emily.infrastructure.core.context.holder.ContextHolder;
+import com.emily.infrastructure.core.context.holder.TraceSpan;
 import com.emily.infrastructure.core.entity.BaseLogger;
-import com.emily.infrastructure.core.helper.ThreadPoolHelper;
+import com.emily.infrastructure.core.helper.BaseLoggerHelper;
 import com.emily.infrastructure.logger.LoggerFactory;
 import org.aopalliance.intercept.MethodInvocation;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 
 /**
  * @author Emily
@@ -37,8 +36,8 @@ public class DefaultFeignLoggerMethodInterceptor implements FeignLoggerCustomize
     public Object invoke(MethodInvocation invocation) throws Throwable {
         //设置当前请求阶段标识
         ContextHolder.get().setStage(ContextHolder.Stage.FEIGN);
-        // 开始时间
-        long start = System.currentTimeMillis();
+        // 开始计时
+        TraceSpan span = ContextHolder.startSpan(ContextHolder.Stage.FEIGN, StringUtils.join(invocation.getMethod().getDeclaringClass().getName(), ".", invocation.getMethod().getName()));
         // 响应结果
         Object response = null;
         try {
@@ -54,6 +53,7 @@ public class DefaultFeignLoggerMethodInterceptor implements FeignLoggerCustomize
             }
             throw e;
         } finally {
+            ContextHolder.endSpan(span);
             //封装异步日志信息
             BaseLogger baseLogger = FeignContextHolder.get();
             //客户端IP
@@ -61,13 +61,13 @@ public class DefaultFeignLoggerMethodInterceptor implements FeignLoggerCustomize
             //服务端IP
             baseLogger.setServerIp(ContextHolder.get().getServerIp());
             //耗时
-            baseLogger.setTime(System.currentTimeMillis() - start);
+            baseLogger.setTime(span.getDurationMillis());
             //触发时间
-            baseLogger.setTriggerTime(LocalDateTime.now().format(DateTimeFormatter.ofPattern(DateFormat.YYYY_MM_DD_HH_MM_SS_SSS.getFormat())));
+            baseLogger.setTriggerTime(LocalDateTime.now().format(DateFormat.YYYY_MM_DD_HH_MM_SS_SSS.getFormatter()));
             //响应结果
             baseLogger.setBody(response);
             //异步记录接口响应信息
-            ThreadPoolHelper.threadPoolTaskExecutor().submit(() -> logger.info(JSONUtils.toJSONString(baseLogger)));
+            BaseLoggerHelper.submit(logger, baseLogger);
             //删除线程上下文中的数据，防止内存溢出
             FeignContextHolder.remove();
             //非servlet上下文移除数据
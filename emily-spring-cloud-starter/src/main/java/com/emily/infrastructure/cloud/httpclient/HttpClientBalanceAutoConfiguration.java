@@ -2,6 +2,7 @@ package com.emily.infrastructure.cloud.httpclient;
 
 import com.emily.infrastructure.cloud.httpclient.handler.CustomResponseErrorHandler;
 import com.emily.infrastructure.cloud.httpclient.interceptor.HttpClientInterceptor;
+import com.emily.infrastructure.core.logger.BodyCapturePolicy;
 import com.emily.infrastructure.logger.LoggerFactory;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.DisposableBean;
@@ -51,7 +52,7 @@ public class HttpClientBalanceAutoConfiguration implements InitializingBean, Dis
         restTemplate.setErrorHandler(new CustomResponseErrorHandler());
         if (httpClientProperties.isEnableInterceptor()) {
             //添加拦截器
-            restTemplate.setInterceptors(Collections.singletonList(new HttpClientInterceptor()));
+            restTemplate.setInterceptors(Collections.singletonList(new HttpClientInterceptor(new BodyCapturePolicy(httpClientProperties.getCapture()))));
         }
 
         return restTemplate;
@@ -1,5 +1,6 @@
 package com.emily.infrastructure.cloud.httpclient;
 
+import com.emily.infrastructure.core.logger.BodyCaptureProperties;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 /**
@@ -29,6 +30,10 @@ public class HttpClientBalanceProperties {
      * 开启调用接口拦截器
      */
     private boolean enableInterceptor = true;
+    /**
+     * 请求参数及响应结果记录策略
+     */
+    private BodyCaptureProperties capture = new BodyCaptureProperties();
 
     public Integer getReadTimeOut() {
         return readTimeOut;
@@ -61,4 +66,12 @@ public class HttpClientBalanceProperties {
     public void setEnableInterceptor(boolean enableInterceptor) {
         this.enableInterceptor = enableInterceptor;
     }
+
+    public BodyCaptureProperties getCapture() {
+        return capture;
+    }
+
+    public void setCapture(BodyCaptureProperties capture) {
+        this.capture = capture;
+    }
 }
@@ -0,0 +1,48 @@
+package com.emily.infrastructure.rpc.benchmark;
+
+import com.emily.infrastructure.core.context.ContextProperties;
+import com.emily.infrastructure.core.context.ioc.IOCContext;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.context.support.StaticApplicationContext;
+
+/**
+ * @program: spring-parent
+ * @description: 基准测试的Spring上下文，不启动自动配置，只注册Rpc调用过程中通过IOCContext获取的bean
+ * @author: Emily
+ * @create: 2022/04/24
+ */
+public class BenchmarkContext {
+
+    private static StaticApplicationContext context;
+
+    /**
+     * 获取已初始化的上下文，同一JVM内的多个基准测试共享
+     *
+     * @return
+     */
+    public static synchronized StaticApplicationContext get() {
+        if (context == null) {
+            StaticApplicationContext ctx = new StaticApplicationContext();
+            ctx.registerSingleton("contextProperties", ContextProperties.class);
+            ctx.registerSingleton("echoService", EchoServiceImpl.class);
+            new IOCContext().initialize(ctx);
+            ctx.refresh();
+            context = ctx;
+        }
+        return context;
+    }
+
+    /**
+     * 注册单例bean，已存在时先移除
+     *
+     * @param name 名称
+     * @param bean 实例
+     */
+    public static synchronized void register(String name, Object bean) {
+        StaticApplicationContext ctx = get();
+        if (ctx.getBeanFactory().containsSingleton(name)) {
+            ((DefaultListableBeanFactory) ctx.getBeanFactory()).destroySingleton(name);
+        }
+        ctx.getBeanFactory().registerSingleton(name, bean);
+    }
+}
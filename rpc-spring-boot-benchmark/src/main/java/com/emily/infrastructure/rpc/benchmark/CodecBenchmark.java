@@ -0,0 +1,100 @@
+package com.emily.infrastructure.rpc.benchmark;
+
+import com.emily.infrastructure.rpc.core.compress.IRpcCompressor;
+import com.emily.infrastructure.rpc.core.decoder.IRpcDecoder;
+import com.emily.infrastructure.rpc.core.encoder.IRpcEncoder;
+import com.emily.infrastructure.rpc.core.message.IRpcMessage;
+import com.emily.infrastructure.rpc.core.message.IRpcResponse;
+import com.emily.infrastructure.rpc.core.serializer.IRpcSerializer;
+import com.emily.infrastructure.rpc.core.serializer.IRpcSerializerFactory;
+import com.emily.infrastructure.rpc.core.serializer.SmileSerializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @program: spring-parent
+ * @description: IRpcEncoder、IRpcDecoder编解码基准测试，消息体为序列化后的响应结果，覆盖不同消息体大小及压缩算法；
+ * 压缩阈值固定为8KB，小于阈值的消息体不压缩
+ * @author: Emily
+ * @create: 2022/04/24
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CodecBenchmark {
+    /**
+     * 压缩阈值
+     */
+    private static final int THRESHOLD = 8 * 1024;
+
+    @Param({"64", "1024", "16384", "262144"})
+    private int size;
+
+    @Param({"NONE", "SNAPPY", "GZIP"})
+    private IRpcCompressor compressor;
+
+    private EmbeddedChannel encoder;
+    private EmbeddedChannel decoder;
+    /**
+     * 消息体
+     */
+    private ByteBuf body;
+    /**
+     * 编码后的完整帧
+     */
+    private ByteBuf frame;
+    private byte serializerId;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkContext.get();
+        IRpcSerializer serializer = IRpcSerializerFactory.getSerializer(SmileSerializer.NAME);
+        serializerId = serializer.getSerializerId();
+        body = PooledByteBufAllocator.DEFAULT.directBuffer();
+        serializer.serializeResponse(IRpcResponse.buildResponse(Payload.of(size)), body);
+        encoder = new EmbeddedChannel(new IRpcEncoder(compressor, THRESHOLD));
+        decoder = new EmbeddedChannel(new IRpcDecoder(Integer.MAX_VALUE));
+        //编码一次得到完整帧，供解码测试重复使用
+        frame = Frames.encode(new IRpcEncoder(compressor, THRESHOLD), IRpcMessage.build((byte) 0, serializerId, 1L, body.retainedDuplicate()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        encoder.finishAndReleaseAll();
+        decoder.finishAndReleaseAll();
+        body.release();
+        frame.release();
+    }
+
+    /**
+     * 编码一条消息，包含消息头写入及超过阈值时的压缩
+     */
+    @Benchmark
+    public void encode(Blackhole blackhole) {
+        encoder.writeOutbound(IRpcMessage.build((byte) 0, serializerId, 1L, body.retainedDuplicate()));
+        for (Object out; (out = encoder.readOutbound()) != null; ) {
+            blackhole.consume(((ByteBuf) out).readableBytes());
+            ReferenceCountUtil.release(out);
+        }
+    }
+
+    /**
+     * 解码一个完整帧，包含拆包及压缩消息体的解压
+     */
+    @Benchmark
+    public void decode(Blackhole blackhole) {
+        decoder.writeInbound(frame.retainedDuplicate());
+        IRpcMessage message = decoder.readInbound();
+        blackhole.consume(message.getLen());
+        message.release();
+    }
+}
@@ -0,0 +1,17 @@
+package com.emily.infrastructure.rpc.benchmark;
+
+/**
+ * @program: spring-parent
+ * @description: 基准测试服务接口，客户端代理及服务端注册使用同一接口
+ * @author: Emily
+ * @create: 2022/04/24
+ */
+public interface EchoService {
+    /**
+     * 原样返回请求数据
+     *
+     * @param payload 请求数据
+     * @return
+     */
+    Payload echo(Payload payload);
+}
@@ -0,0 +1,17 @@
+package com.emily.infrastructure.rpc.benchmark;
+
+import com.emily.infrastructure.rpc.server.annotation.IRpcService;
+
+/**
+ * @program: spring-parent
+ * @description: 基准测试服务实现，不包含业务耗时，测量结果即为Rpc框架自身的开销
+ * @author: Emily
+ * @create: 2022/04/24
+ */
+@IRpcService
+public class EchoServiceImpl implements EchoService {
+    @Override
+    public Payload echo(Payload payload) {
+        return payload;
+    }
+}
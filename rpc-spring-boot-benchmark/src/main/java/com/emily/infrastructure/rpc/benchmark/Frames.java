@@ -0,0 +1,35 @@
+package com.emily.infrastructure.rpc.benchmark;
+
+import com.emily.infrastructure.rpc.core.encoder.IRpcEncoder;
+import com.emily.infrastructure.rpc.core.message.IRpcMessage;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+
+/**
+ * @program: spring-parent
+ * @description: 将消息编码为完整帧，供解码及服务端分发基准测试重复写入
+ * @author: Emily
+ * @create: 2022/04/24
+ */
+public class Frames {
+    /**
+     * 使用指定编码器编码消息，消息头及消息体合并到一个直接内存缓冲区
+     *
+     * @param encoder 编码器
+     * @param message 消息，编码后释放
+     * @return 完整帧，使用完后需调用release释放
+     */
+    public static ByteBuf encode(IRpcEncoder encoder, IRpcMessage message) {
+        EmbeddedChannel channel = new EmbeddedChannel(encoder);
+        channel.writeOutbound(message);
+        ByteBuf frame = PooledByteBufAllocator.DEFAULT.directBuffer();
+        for (Object out; (out = channel.readOutbound()) != null; ) {
+            frame.writeBytes((ByteBuf) out);
+            ReferenceCountUtil.release(out);
+        }
+        channel.finishAndReleaseAll();
+        return frame;
+    }
+}
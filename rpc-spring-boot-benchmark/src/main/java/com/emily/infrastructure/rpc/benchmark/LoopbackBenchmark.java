@@ -0,0 +1,130 @@
+package com.emily.infrastructure.rpc.benchmark;
+
+import com.emily.infrastructure.rpc.client.IRpcClientProperties;
+import com.emily.infrastructure.rpc.client.loadbalance.RoundLoadBalance;
+import com.emily.infrastructure.rpc.client.pool.IRpcConnection;
+import com.emily.infrastructure.rpc.client.pool.IRpcObjectPool;
+import com.emily.infrastructure.rpc.client.pool.IRpcPooledObjectFactory;
+import com.emily.infrastructure.rpc.client.proxy.IRpcInvokeProxy;
+import com.emily.infrastructure.rpc.server.IRpcServerProperties;
+import com.emily.infrastructure.rpc.server.connection.IRpcServerConnection;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPoolConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @program: spring-parent
+ * @description: 客户端到服务端的回环调用基准测试，经过动态代理、连接池、编解码、网络传输及服务端分发的完整链路；
+ * 同时输出吞吐量及耗时分布（SampleTime模式输出p50、p90、p99等百分位），并发度由各测试方法的线程数区分，
+ * 连接支持多路复用，多个线程共享同一服务地址的连接
+ * @author: Emily
+ * @create: 2022/04/24
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoopbackBenchmark {
+
+    @Param({"64", "1024", "16384"})
+    private int size;
+
+    private IRpcServerConnection server;
+    private IRpcObjectPool pool;
+    private IRpcPooledObjectFactory factory;
+    private EchoService echoService;
+    private Payload payload;
+    private String address;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        int port = freePort();
+        address = "127.0.0.1:" + port;
+        //服务端
+        IRpcServerProperties serverProperties = new IRpcServerProperties();
+        serverProperties.setPort(port);
+        server = new IRpcServerConnection(serverProperties);
+        server.setApplicationContext(BenchmarkContext.get());
+        Thread thread = new Thread(server::startServer, "rpc-benchmark-server");
+        thread.setDaemon(true);
+        thread.start();
+        //客户端，连接池参数与自动配置一致
+        IRpcClientProperties clientProperties = new IRpcClientProperties();
+        clientProperties.setAddress(Collections.singletonList(address));
+        factory = new IRpcPooledObjectFactory(clientProperties);
+        GenericKeyedObjectPoolConfig<IRpcConnection> poolConfig = new GenericKeyedObjectPoolConfig<>();
+        poolConfig.setMaxIdlePerKey(clientProperties.getPool().getMaxIdle());
+        poolConfig.setMinIdlePerKey(clientProperties.getPool().getMinIdle());
+        poolConfig.setMaxTotalPerKey(clientProperties.getPool().getMaxTotal());
+        poolConfig.setMaxTotal(-1);
+        //连接多路复用、借用时间很短，高并发测试时放宽等待时间，避免借用超时影响测量
+        poolConfig.setMaxWait(clientProperties.getConnectTimeOut());
+        poolConfig.setTestOnBorrow(true);
+        poolConfig.setTestOnReturn(true);
+        poolConfig.setJmxEnabled(false);
+        pool = new IRpcObjectPool(factory, poolConfig, clientProperties, new RoundLoadBalance());
+        //服务端在后台线程中启动，预热连接直到成功
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (pool.warmUp(clientProperties.getPool().getInitialSize(), clientProperties.getConnectTimeOut()) == 0) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Rpc服务端未能在10秒内启动：" + address);
+            }
+            Thread.sleep(100);
+        }
+        BenchmarkContext.register("iRpcClientProperties", clientProperties);
+        BenchmarkContext.register("iRpcObjectPool", pool);
+        echoService = IRpcInvokeProxy.create(EchoService.class);
+        payload = Payload.of(size);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        pool.close();
+        factory.close();
+        server.destroy();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Payload echo_concurrency1() {
+        return echoService.echo(payload);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Payload echo_concurrency8() {
+        return echoService.echo(payload);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public Payload echo_concurrency32() {
+        return echoService.echo(payload);
+    }
+
+    /**
+     * 连接池选择地址及借用、归还连接的开销，不发送请求
+     */
+    @Benchmark
+    @Threads(8)
+    public boolean borrowReturn() throws Exception {
+        IRpcConnection connection = pool.borrowObject(address);
+        try {
+            return connection.isAvailable();
+        } finally {
+            pool.returnObject(address, connection);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.emily.infrastructure.rpc.benchmark;
+
+/**
+ * @program: spring-parent
+ * @description: 基准测试的请求及响应数据，data字段长度即为消息体的近似大小
+ * @author: Emily
+ * @create: 2022/04/24
+ */
+public class Payload {
+    private String id;
+    private long timestamp;
+    private String data;
+
+    public Payload() {
+    }
+
+    /**
+     * 创建指定大小的数据
+     *
+     * @param size data字段的字符数
+     * @return
+     */
+    public static Payload of(int size) {
+        char[] chars = new char[size];
+        //可压缩但不是单一字符的内容，避免压缩率失真
+        for (int i = 0; i < size; i++) {
+            chars[i] = (char) ('a' + (i * 7 + i / 13) % 26);
+        }
+        Payload payload = new Payload();
+        payload.setId("benchmark-" + size);
+        payload.setTimestamp(System.currentTimeMillis());
+        payload.setData(new String(chars));
+        return payload;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public String getData() {
+        return data;
+    }
+
+    public void setData(String data) {
+        this.data = data;
+    }
+
+    @Override
+    public String toString() {
+        return "Payload{id=" + id + ", size=" + (data == null ? 0 : data.length()) + "}";
+    }
+}
@@ -0,0 +1,90 @@
+package com.emily.infrastructure.rpc.benchmark;
+
+import com.emily.infrastructure.rpc.core.message.IRpcRequest;
+import com.emily.infrastructure.rpc.core.message.IRpcResponse;
+import com.emily.infrastructure.rpc.core.serializer.IRpcSerializer;
+import com.emily.infrastructure.rpc.core.serializer.IRpcSerializerFactory;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @program: spring-parent
+ * @description: 序列化器基准测试，请求及响应直接读写缓冲区，响应数据按声明类型反序列化
+ * @author: Emily
+ * @create: 2022/04/24
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SerializerBenchmark {
+
+    @Param({"json", "smile"})
+    private String serializerName;
+
+    @Param({"64", "1024", "16384", "262144"})
+    private int size;
+
+    private IRpcSerializer serializer;
+    private IRpcRequest request;
+    private IRpcResponse<Payload> response;
+    /**
+     * 序列化输出缓冲区，每次测试前清空
+     */
+    private ByteBuf out;
+    /**
+     * 序列化后的请求及响应
+     */
+    private ByteBuf requestBody;
+    private ByteBuf responseBody;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkContext.get();
+        serializer = IRpcSerializerFactory.getSerializer(serializerName);
+        Payload payload = Payload.of(size);
+        request = IRpcRequest.build(EchoService.class.getSimpleName(), "echo", new Class<?>[]{Payload.class}, new Object[]{payload});
+        response = IRpcResponse.buildResponse(payload);
+        out = PooledByteBufAllocator.DEFAULT.directBuffer();
+        requestBody = PooledByteBufAllocator.DEFAULT.directBuffer();
+        serializer.serializeRequest(request, requestBody);
+        responseBody = PooledByteBufAllocator.DEFAULT.directBuffer();
+        serializer.serializeResponse(response, responseBody);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        out.release();
+        requestBody.release();
+        responseBody.release();
+    }
+
+    @Benchmark
+    public int serializeRequest() {
+        out.clear();
+        serializer.serializeRequest(request, out);
+        return out.readableBytes();
+    }
+
+    @Benchmark
+    public IRpcRequest deserializeRequest() {
+        return serializer.deserializeRequest(requestBody.duplicate());
+    }
+
+    @Benchmark
+    public int serializeResponse() {
+        out.clear();
+        serializer.serializeResponse(response, out);
+        return out.readableBytes();
+    }
+
+    @Benchmark
+    public IRpcResponse<Object> deserializeResponse() {
+        return serializer.deserializeResponse(responseBody.duplicate(), Payload.class);
+    }
+}
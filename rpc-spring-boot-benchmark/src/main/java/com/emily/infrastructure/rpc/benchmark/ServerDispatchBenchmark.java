@@ -0,0 +1,84 @@
+package com.emily.infrastructure.rpc.benchmark;
+
+import com.emily.infrastructure.rpc.core.decoder.IRpcDecoder;
+import com.emily.infrastructure.rpc.core.encoder.IRpcEncoder;
+import com.emily.infrastructure.rpc.core.message.IRpcMessage;
+import com.emily.infrastructure.rpc.core.message.IRpcRequest;
+import com.emily.infrastructure.rpc.core.serializer.IRpcSerializer;
+import com.emily.infrastructure.rpc.core.serializer.IRpcSerializerFactory;
+import com.emily.infrastructure.rpc.core.serializer.SmileSerializer;
+import com.emily.infrastructure.rpc.server.IRpcServerProperties;
+import com.emily.infrastructure.rpc.server.handler.IRpcServerChannelHandler;
+import com.emily.infrastructure.rpc.server.limiter.IRpcServerLimiter;
+import com.emily.infrastructure.rpc.server.registry.IRpcProviderRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @program: spring-parent
+ * @description: 服务端分发基准测试，请求帧经EmbeddedChannel依次通过IRpcDecoder、IRpcServerChannelHandler，
+ * 包含请求反序列化、方法调用表查找、服务方法调用及响应序列化，不包含网络传输；未开启业务线程池，在调用线程中执行
+ * @author: Emily
+ * @create: 2022/04/24
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ServerDispatchBenchmark {
+
+    @Param({"64", "1024", "16384"})
+    private int size;
+    /**
+     * 是否开启并发限制
+     */
+    @Param({"false", "true"})
+    private boolean limited;
+
+    private EmbeddedChannel channel;
+    /**
+     * 编码后的请求帧
+     */
+    private ByteBuf frame;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkContext.get();
+        IRpcServerProperties properties = new IRpcServerProperties();
+        IRpcProviderRegistry registry = new IRpcProviderRegistry();
+        registry.registerServiceBean(EchoService.class, new EchoServiceImpl());
+        IRpcServerLimiter limiter = limited ? new IRpcServerLimiter(properties.getLimiter()) : null;
+        channel = new EmbeddedChannel(new IRpcDecoder(Math.toIntExact(properties.getMaxFrameSize().toBytes())),
+                new IRpcServerChannelHandler(registry, null, limiter, properties.getStreaming()));
+
+        IRpcSerializer serializer = IRpcSerializerFactory.getSerializer(SmileSerializer.NAME);
+        IRpcRequest request = IRpcRequest.build(EchoService.class.getSimpleName(), "echo", new Class<?>[]{Payload.class}, new Object[]{Payload.of(size)});
+        ByteBuf body = PooledByteBufAllocator.DEFAULT.directBuffer();
+        serializer.serializeRequest(request, body);
+        frame = Frames.encode(new IRpcEncoder(), IRpcMessage.build((byte) 0, serializer.getSerializerId(), 1L, body));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+        frame.release();
+    }
+
+    /**
+     * 处理一个请求帧并读取响应消息
+     */
+    @Benchmark
+    public void dispatch(Blackhole blackhole) {
+        channel.writeInbound(frame.retainedDuplicate());
+        IRpcMessage response = channel.readOutbound();
+        blackhole.consume(response.getLen());
+        response.release();
+    }
+}
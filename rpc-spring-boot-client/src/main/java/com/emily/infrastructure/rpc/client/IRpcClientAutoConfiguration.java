@@ -1,26 +1,43 @@
 package com.emily.infrastructure.rpc.client;
 
+import com.emily.infrastructure.rpc.client.loadbalance.ConsistentHashLoadBalance;
+import com.emily.infrastructure.rpc.client.loadbalance.LeastActiveLoadBalance;
 import com.emily.infrastructure.rpc.client.loadbalance.LoadBalance;
 import com.emily.infrastructure.rpc.client.loadbalance.LoadBalanceClient;
+import com.emily.infrastructure.rpc.client.loadbalance.PeakEwmaLoadBalance;
+import com.emily.infrastructure.rpc.client.loadbalance.RandomLoadBalance;
 import com.emily.infrastructure.rpc.client.loadbalance.RoundLoadBalance;
+import com.emily.infrastructure.rpc.client.metrics.IRpcClientMetrics;
+import com.emily.infrastructure.rpc.client.metrics.MicrometerClientMetrics;
 import com.emily.infrastructure.rpc.client.pool.IRpcConnection;
 import com.emily.infrastructure.rpc.client.pool.IRpcObjectPool;
 import com.emily.infrastructure.rpc.client.pool.IRpcPooledObjectFactory;
+import com.emily.infrastructure.rpc.client.registry.DiscoveryServiceRegistry;
+import com.emily.infrastructure.rpc.client.registry.FileServiceRegistry;
+import com.emily.infrastructure.rpc.client.registry.ServiceRegistry;
+import com.emily.infrastructure.rpc.client.registry.StaticServiceRegistry;
+import com.emily.infrastructure.common.enums.AppHttpStatus;
+import com.emily.infrastructure.common.exception.BasicException;
 import com.emily.infrastructure.rpc.core.exception.ObjectPoolException;
-import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPoolConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Role;
 
+import java.nio.file.Paths;
+
 /**
  * @program: spring-parent
  * @description: RPC客户端代理配置类
@@ -37,26 +54,30 @@ public class IRpcClientAutoConfiguration implements InitializingBean, Disposable
 
     private IRpcObjectPool pool;
 
+    private IRpcPooledObjectFactory factory;
+
     @Bean
     @ConditionalOnClass({IRpcPooledObjectFactory.class})
-    protected IRpcObjectPool javaObjectPool(IRpcClientProperties properties, LoadBalance loadBalance) {
-        IRpcPooledObjectFactory factory = new IRpcPooledObjectFactory(properties, loadBalance);
-        //设置对象池的相关参数
-        GenericObjectPoolConfig<IRpcConnection> poolConfig = new GenericObjectPoolConfig<>();
-        //最大空闲连接数
-        poolConfig.setMaxIdle(properties.getPool().getMaxIdle());
-        //最小空闲连接数
-        poolConfig.setMinIdle(properties.getPool().getMinIdle());
-        //最大链接数
-        poolConfig.setMaxTotal(properties.getPool().getMaxTotal());
+    protected IRpcObjectPool javaObjectPool(IRpcClientProperties properties, LoadBalance loadBalance, ServiceRegistry registry, ObjectProvider<IRpcClientMetrics> metrics) {
+        factory = new IRpcPooledObjectFactory(properties, metrics.getIfAvailable(() -> IRpcClientMetrics.NOOP));
+        //设置对象池的相关参数，连接数均按每个服务地址计算
+        GenericKeyedObjectPoolConfig<IRpcConnection> poolConfig = new GenericKeyedObjectPoolConfig<>();
+        //每个地址最大空闲连接数
+        poolConfig.setMaxIdlePerKey(properties.getPool().getMaxIdle());
+        //每个地址最小空闲连接数
+        poolConfig.setMinIdlePerKey(properties.getPool().getMinIdle());
+        //每个地址最大链接数
+        poolConfig.setMaxTotalPerKey(properties.getPool().getMaxTotal());
+        //所有地址最大链接数，不限制
+        poolConfig.setMaxTotal(-1);
         //当对象池没有空闲对象时，新的获取对象的请求是否阻塞，true-阻塞(maxWait才生效)
         poolConfig.setBlockWhenExhausted(true);
         //对象池中无对象时最大等待时间
         poolConfig.setMaxWaitMillis(100);
         //向调用者输出"链接"资源时，是否检测有效性，如果无效则从连接池中移除，并继续尝试获取，默认：false
         poolConfig.setTestOnBorrow(true);
-        //向链接池归还链接时，是否检测链接对象的有效性，默认：false
-        poolConfig.setTestOnReturn(true);
+        //向链接池归还链接时，是否检测链接对象的有效性，连接被多个请求共享，归还时不检测，默认：false
+        poolConfig.setTestOnReturn(false);
         //向调用者输出链接对象时，是否检测它的空闲超时，默认：false
         poolConfig.setTestWhileIdle(true);
         //空闲链接检测线程，检测周期，单位：毫秒，如果为负值，标识不运行检测线程，默认：-1
@@ -65,47 +86,90 @@ public class IRpcClientAutoConfiguration implements InitializingBean, Disposable
         poolConfig.setJmxEnabled(false);
 
         //新建一个对象池,传入对象工厂和配置
-        pool = new IRpcObjectPool(factory, poolConfig);
+        pool = new IRpcObjectPool(factory, poolConfig, properties, loadBalance, registry);
 
-        initPool(properties.getPool().getInitialSize(), properties.getPool().getMaxIdle());
+        //并行异步预热连接，应用就绪前完成，整体最多等待一次连接超时时间
+        int size = Math.min(properties.getPool().getInitialSize(), properties.getPool().getMaxIdle());
+        if (pool.warmUp(size, properties.getConnectTimeOut()) == 0 && size > 0 && !pool.getAddresses().isEmpty()) {
+            throw new ObjectPoolException();
+        }
         return pool;
     }
 
     /**
-     * 预先加载testObject对象到对象池中
+     * 负载均衡策略，按属性配置选择内置策略
      *
-     * @param initialSize 初始化连接数
-     * @param maxIdle     最大空闲连接数
+     * @return
      */
-    private void initPool(int initialSize, int maxIdle) {
-        if (initialSize <= 0) {
-            return;
-        }
-
-        int size = Math.min(initialSize, maxIdle);
-        for (int i = 0; i < size; i++) {
-            try {
-                pool.addObject();
-            } catch (Exception e) {
-                throw new ObjectPoolException();
-            }
+    @Bean
+    @ConditionalOnMissingBean(LoadBalance.class)
+    public LoadBalance loadBalance(IRpcClientProperties properties) {
+        switch (properties.getLoadBalance()) {
+            case RANDOM:
+                return new RandomLoadBalance();
+            case LEAST_ACTIVE:
+                return new LeastActiveLoadBalance();
+            case PEAK_EWMA:
+                return new PeakEwmaLoadBalance();
+            case CONSISTENT_HASH:
+                return new ConsistentHashLoadBalance(properties.getHashArgument());
+            default:
+                return new RoundLoadBalance();
         }
     }
 
     /**
-     * 负载均衡策略
+     * 服务地址注册表，按属性配置选择地址来源，服务发现由DiscoveryConfiguration创建
      *
      * @return
      */
     @Bean
-    @ConditionalOnMissingBean(LoadBalance.class)
-    public LoadBalance loadBalance() {
-        return new RoundLoadBalance();
+    @ConditionalOnMissingBean(ServiceRegistry.class)
+    public ServiceRegistry serviceRegistry(IRpcClientProperties properties) {
+        switch (properties.getRegistry().getType()) {
+            case FILE:
+                return new FileServiceRegistry(properties.getRegistry().getFile() == null ? null : Paths.get(properties.getRegistry().getFile()));
+            case DISCOVERY:
+                throw new BasicException(AppHttpStatus.EXCEPTION.getStatus(), "Rpc服务发现需引入spring-cloud-commons依赖并提供DiscoveryClient");
+            default:
+                return new StaticServiceRegistry(properties.getAddress());
+        }
+    }
+
+    /**
+     * 引入spring-cloud-commons依赖且地址来源为服务发现时，从DiscoveryClient获取服务地址
+     */
+    @Configuration
+    @ConditionalOnClass(DiscoveryClient.class)
+    @ConditionalOnProperty(prefix = IRpcClientProperties.PREFIX + ".registry", name = "type", havingValue = "discovery")
+    static class DiscoveryConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean(ServiceRegistry.class)
+        public ServiceRegistry serviceRegistry(IRpcClientProperties properties, DiscoveryClient discoveryClient) {
+            IRpcClientProperties.Registry registry = properties.getRegistry();
+            return new DiscoveryServiceRegistry(discoveryClient, registry.getServiceId(), registry.getPortMetadata(), registry.getRefreshInterval());
+        }
+    }
+
+    /**
+     * 引入micrometer依赖且存在MeterRegistry时输出监控指标，可通过actuator的metrics端点查看
+     */
+    @Configuration
+    @ConditionalOnClass(MeterRegistry.class)
+    static class MetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean(IRpcClientMetrics.class)
+        public IRpcClientMetrics rpcClientMetrics(ObjectProvider<MeterRegistry> registry) {
+            MeterRegistry meterRegistry = registry.getIfUnique();
+            return meterRegistry == null ? IRpcClientMetrics.NOOP : new MicrometerClientMetrics(meterRegistry);
+        }
     }
 
     @Bean
-    public LoadBalanceClient loadBalanceClient(LoadBalance loadBalance, IRpcClientProperties properties) {
-        return new LoadBalanceClient(loadBalance, properties);
+    public LoadBalanceClient loadBalanceClient(LoadBalance loadBalance, IRpcClientProperties properties, IRpcObjectPool pool) {
+        return new LoadBalanceClient(loadBalance, properties, ((IRpcPooledObjectFactory) pool.getFactory()).getBootstrap());
     }
 
     @Override
@@ -113,6 +177,9 @@ public class IRpcClientAutoConfiguration implements InitializingBean, Disposable
         if (pool != null) {
             pool.close();
         }
+        if (factory != null) {
+            factory.close();
+        }
         logger.info("<== 【销毁--自动化配置】----Rpc客户端销毁成功【IRpcClientAutoConfiguration】");
     }
 
@@ -1,6 +1,13 @@
 package com.emily.infrastructure.rpc.client;
 
+import com.emily.infrastructure.rpc.client.loadbalance.LoadBalanceStrategy;
+import com.emily.infrastructure.rpc.client.registry.ServiceRegistryType;
+import com.emily.infrastructure.rpc.core.compress.IRpcCompressor;
+import com.emily.infrastructure.rpc.core.serializer.SmileSerializer;
+import com.emily.infrastructure.rpc.core.transport.IRpcAllocator;
+import com.emily.infrastructure.rpc.core.transport.IRpcTransport;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 
 import java.time.Duration;
 import java.util.Arrays;
@@ -26,6 +33,22 @@ public class IRpcClientProperties {
      * RPC服务器host地址列表，默认：127.0.0.1
      */
     private List<String> address = Arrays.asList("127.0.0.1:9999");
+    /**
+     * 服务地址来源配置
+     */
+    private Registry registry = new Registry();
+    /**
+     * 负载均衡策略：round-轮询、random-随机、least-active-最少在途请求、peak-ewma-峰值加权响应时间、consistent-hash-一致性哈希，默认：round
+     */
+    private LoadBalanceStrategy loadBalance = LoadBalanceStrategy.ROUND;
+    /**
+     * 一致性哈希策略作为哈希键的参数下标，参数需为字符串、数字、枚举等值类型或按值重写了toString的类型，默认：0
+     */
+    private int hashArgument;
+    /**
+     * 服务端过载或繁忙拒绝请求时改投其它服务节点的重试次数，默认：1
+     */
+    private int overloadRetries = 1;
     /**
      * 读取超时时间，默认：10秒
      */
@@ -38,10 +61,38 @@ public class IRpcClientProperties {
      * 超过多长时间未发生读写就发送一次心跳包，默认：30秒
      */
     private Duration idleTimeOut = Duration.ofSeconds(30);
+    /**
+     * 单个消息帧（消息头+消息体）的最大长度，超过则拒绝，客户端与服务端需保持一致，默认：16MB
+     */
+    private DataSize maxFrameSize = DataSize.ofMegabytes(16);
+    /**
+     * 序列化器名称，内置：json、smile(二进制)，服务端按请求使用的序列化器响应，默认：smile
+     */
+    private String serializer = SmileSerializer.NAME;
     /**
      * 连接池
      */
     private Pool pool = new Pool();
+    /**
+     * 网络传输配置
+     */
+    private Transport transport = new Transport();
+    /**
+     * 消息体压缩配置
+     */
+    private Compression compression = new Compression();
+    /**
+     * 请求批量发送配置
+     */
+    private Batch batch = new Batch();
+    /**
+     * 流式调用配置
+     */
+    private Streaming streaming = new Streaming();
+    /**
+     * 异常地址摘除配置
+     */
+    private Outlier outlier = new Outlier();
 
     public boolean isEnabled() {
         return enabled;
@@ -59,6 +110,38 @@ public class IRpcClientProperties {
         this.address = address;
     }
 
+    public Registry getRegistry() {
+        return registry;
+    }
+
+    public void setRegistry(Registry registry) {
+        this.registry = registry;
+    }
+
+    public LoadBalanceStrategy getLoadBalance() {
+        return loadBalance;
+    }
+
+    public void setLoadBalance(LoadBalanceStrategy loadBalance) {
+        this.loadBalance = loadBalance;
+    }
+
+    public int getHashArgument() {
+        return hashArgument;
+    }
+
+    public void setHashArgument(int hashArgument) {
+        this.hashArgument = hashArgument;
+    }
+
+    public int getOverloadRetries() {
+        return overloadRetries;
+    }
+
+    public void setOverloadRetries(int overloadRetries) {
+        this.overloadRetries = overloadRetries;
+    }
+
     public Duration getReadTimeOut() {
         return readTimeOut;
     }
@@ -83,6 +166,22 @@ public class IRpcClientProperties {
         this.idleTimeOut = idleTimeOut;
     }
 
+    public DataSize getMaxFrameSize() {
+        return maxFrameSize;
+    }
+
+    public void setMaxFrameSize(DataSize maxFrameSize) {
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    public String getSerializer() {
+        return serializer;
+    }
+
+    public void setSerializer(String serializer) {
+        this.serializer = serializer;
+    }
+
     public Pool getPool() {
         return pool;
     }
@@ -91,24 +190,68 @@ public class IRpcClientProperties {
         this.pool = pool;
     }
 
+    public Transport getTransport() {
+        return transport;
+    }
+
+    public void setTransport(Transport transport) {
+        this.transport = transport;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    public void setCompression(Compression compression) {
+        this.compression = compression;
+    }
+
+    public Streaming getStreaming() {
+        return streaming;
+    }
+
+    public void setStreaming(Streaming streaming) {
+        this.streaming = streaming;
+    }
+
+    public Batch getBatch() {
+        return batch;
+    }
+
+    public void setBatch(Batch batch) {
+        this.batch = batch;
+    }
+
+    public Outlier getOutlier() {
+        return outlier;
+    }
+
+    public void setOutlier(Outlier outlier) {
+        this.outlier = outlier;
+    }
+
     public static class Pool {
         /**
-         * 最大空闲数
+         * 每个服务地址最大空闲数
          */
         private int maxIdle = 8;
         /**
-         * 最大链接数
+         * 每个服务地址最大链接数
          */
         private int maxTotal = 8;
         /**
-         * 最小空闲数
+         * 每个服务地址最小空闲数
          */
         private int minIdle = 0;
 
         /**
-         * 初始化连接数
+         * 每个服务地址初始化连接数
          */
         private int initialSize = 3;
+        /**
+         * 后台补充连接的检查间隔，每个地址的连接数不足初始化连接数时异步补充，小于等于0则不检查，默认：30秒
+         */
+        private Duration replenishInterval = Duration.ofSeconds(30);
 
         public int getMaxIdle() {
             return maxIdle;
@@ -141,5 +284,302 @@ public class IRpcClientProperties {
         public void setInitialSize(int initialSize) {
             this.initialSize = initialSize;
         }
+
+        public Duration getReplenishInterval() {
+            return replenishInterval;
+        }
+
+        public void setReplenishInterval(Duration replenishInterval) {
+            this.replenishInterval = replenishInterval;
+        }
+    }
+
+    /**
+     * 网络传输配置
+     */
+    public static class Transport {
+        /**
+         * 传输类型：auto-Linux下优先使用epoll，epoll、nio，默认：auto
+         */
+        private IRpcTransport type = IRpcTransport.AUTO;
+        /**
+         * I/O线程数，0表示使用netty默认值（CPU核数*2），默认：0
+         */
+        private int ioThreads;
+        /**
+         * 是否与同一JVM内的Rpc服务端共享I/O线程组，默认：false
+         */
+        private boolean shared;
+        /**
+         * 缓冲区分配器：pooled-池化、unpooled-非池化，默认：pooled
+         */
+        private IRpcAllocator allocator = IRpcAllocator.POOLED;
+        /**
+         * 是否优先分配堆外内存，默认：true
+         */
+        private boolean preferDirect = true;
+
+        public IRpcTransport getType() {
+            return type;
+        }
+
+        public void setType(IRpcTransport type) {
+            this.type = type;
+        }
+
+        public int getIoThreads() {
+            return ioThreads;
+        }
+
+        public void setIoThreads(int ioThreads) {
+            this.ioThreads = ioThreads;
+        }
+
+        public boolean isShared() {
+            return shared;
+        }
+
+        public void setShared(boolean shared) {
+            this.shared = shared;
+        }
+
+        public IRpcAllocator getAllocator() {
+            return allocator;
+        }
+
+        public void setAllocator(IRpcAllocator allocator) {
+            this.allocator = allocator;
+        }
+
+        public boolean isPreferDirect() {
+            return preferDirect;
+        }
+
+        public void setPreferDirect(boolean preferDirect) {
+            this.preferDirect = preferDirect;
+        }
+    }
+
+    /**
+     * 请求批量发送配置，开启后同一连接上的请求先写入发送缓冲区，在时间窗口结束或累计到指定条数时统一flush，
+     * 多个请求合并为一次系统调用发送
+     */
+    public static class Batch {
+        /**
+         * 是否开启批量发送，默认：false
+         */
+        private boolean enabled;
+        /**
+         * 累计未flush的请求数达到此值时立即flush，默认：32
+         */
+        private int maxMessages = 32;
+        /**
+         * 批量发送时间窗口，0表示在I/O线程处理完当前已提交的写请求后立即flush，默认：0
+         */
+        private Duration window = Duration.ZERO;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxMessages() {
+            return maxMessages;
+        }
+
+        public void setMaxMessages(int maxMessages) {
+            this.maxMessages = maxMessages;
+        }
+
+        public Duration getWindow() {
+            return window;
+        }
+
+        public void setWindow(Duration window) {
+            this.window = window;
+        }
+    }
+
+    /**
+     * 服务地址来源配置，地址列表变化时为新地址建立连接，下线地址等待在途请求完成后关闭连接
+     */
+    public static class Registry {
+        /**
+         * 服务地址来源：static-address属性配置、file-地址文件、discovery-Spring Cloud服务发现，默认：static
+         */
+        private ServiceRegistryType type = ServiceRegistryType.STATIC;
+        /**
+         * 地址文件路径，每行一个地址（主机地址:端口号），#开头为注释，文件变化时重新加载
+         */
+        private String file;
+        /**
+         * 服务发现中Rpc服务端的服务名
+         */
+        private String serviceId;
+        /**
+         * 服务实例元数据中Rpc端口号的键名，不存在时使用实例注册的端口号，默认：rpc-port
+         */
+        private String portMetadata = "rpc-port";
+        /**
+         * 服务发现的刷新间隔，默认：10秒
+         */
+        private Duration refreshInterval = Duration.ofSeconds(10);
+        /**
+         * 下线地址等待在途请求完成的最长时间，超过后直接关闭连接，默认：10秒
+         */
+        private Duration drainTimeout = Duration.ofSeconds(10);
+
+        public ServiceRegistryType getType() {
+            return type;
+        }
+
+        public void setType(ServiceRegistryType type) {
+            this.type = type;
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        public void setFile(String file) {
+            this.file = file;
+        }
+
+        public String getServiceId() {
+            return serviceId;
+        }
+
+        public void setServiceId(String serviceId) {
+            this.serviceId = serviceId;
+        }
+
+        public String getPortMetadata() {
+            return portMetadata;
+        }
+
+        public void setPortMetadata(String portMetadata) {
+            this.portMetadata = portMetadata;
+        }
+
+        public Duration getRefreshInterval() {
+            return refreshInterval;
+        }
+
+        public void setRefreshInterval(Duration refreshInterval) {
+            this.refreshInterval = refreshInterval;
+        }
+
+        public Duration getDrainTimeout() {
+            return drainTimeout;
+        }
+
+        public void setDrainTimeout(Duration drainTimeout) {
+            this.drainTimeout = drainTimeout;
+        }
+    }
+
+    /**
+     * 异常地址摘除配置
+     */
+    public static class Outlier {
+        /**
+         * 是否开启异常地址摘除，默认：true
+         */
+        private boolean enabled = true;
+        /**
+         * 连续失败（超时、连接异常）多少次后摘除，默认：5
+         */
+        private int consecutiveFailures = 5;
+        /**
+         * 摘除时间，结束后发送一个探测请求，默认：30秒
+         */
+        private Duration ejectionTime = Duration.ofSeconds(30);
+        /**
+         * 最多摘除地址的百分比，默认：50
+         */
+        private int maxEjectionPercent = 50;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getConsecutiveFailures() {
+            return consecutiveFailures;
+        }
+
+        public void setConsecutiveFailures(int consecutiveFailures) {
+            this.consecutiveFailures = consecutiveFailures;
+        }
+
+        public Duration getEjectionTime() {
+            return ejectionTime;
+        }
+
+        public void setEjectionTime(Duration ejectionTime) {
+            this.ejectionTime = ejectionTime;
+        }
+
+        public int getMaxEjectionPercent() {
+            return maxEjectionPercent;
+        }
+
+        public void setMaxEjectionPercent(int maxEjectionPercent) {
+            this.maxEjectionPercent = maxEjectionPercent;
+        }
+    }
+
+    /**
+     * 消息体压缩配置，压缩算法标识随消息头传递，接收方按标识解压
+     */
+    public static class Compression {
+        /**
+         * 压缩算法：none-不压缩、gzip、snappy，默认：none
+         */
+        private IRpcCompressor compressor = IRpcCompressor.NONE;
+        /**
+         * 压缩阈值，消息体不小于此值时才压缩，默认：8KB
+         */
+        private DataSize threshold = DataSize.ofKilobytes(8);
+
+        public IRpcCompressor getCompressor() {
+            return compressor;
+        }
+
+        public void setCompressor(IRpcCompressor compressor) {
+            this.compressor = compressor;
+        }
+
+        public DataSize getThreshold() {
+            return threshold;
+        }
+
+        public void setThreshold(DataSize threshold) {
+            this.threshold = threshold;
+        }
+    }
+
+    /**
+     * 流式调用配置，接口方法返回Iterator、Stream或Flux时服务端分批发送数据块，客户端按消费进度授予信用控制发送速度
+     */
+    public static class Streaming {
+        /**
+         * 信用窗口，即客户端最多缓存的未消费数据块数，默认：8
+         */
+        private int window = 8;
+
+        public int getWindow() {
+            return window;
+        }
+
+        public void setWindow(int window) {
+            this.window = window;
+        }
     }
 }
@@ -0,0 +1,132 @@
+package com.emily.infrastructure.rpc.client.cache;
+
+import com.emily.infrastructure.common.enums.AppHttpStatus;
+import com.emily.infrastructure.rpc.core.annotation.IRpcCacheable;
+import com.emily.infrastructure.rpc.core.message.IRpcRequest;
+import com.emily.infrastructure.rpc.core.message.IRpcResponse;
+import com.emily.infrastructure.rpc.core.serializer.IRpcSerializer;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * @program: spring-parent
+ * @description: Rpc客户端响应缓存，每个标注IRpcCacheable的方法一个缓存，key为序列化后的参数；
+ * 相同参数的并发请求只发送一次，调用失败或服务端返回非成功状态时不缓存；服务端推送失效帧时按类名、方法名清除；
+ * 缓存命中时所有调用方共享同一个反序列化后的返回值，返回值只读，调用方修改会影响其它调用方及后续命中的结果
+ * @author: Emily
+ * @create: 2022/04/22
+ */
+public class IRpcResponseCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(IRpcResponseCache.class);
+    /**
+     * 所有方法的缓存，key-类名，value-方法及其缓存
+     */
+    private static final ConcurrentMap<String, Map<Method, AsyncCache<CacheKey, IRpcResponse<Object>>>> CACHES = new ConcurrentHashMap<>();
+
+    /**
+     * 获取缓存的响应结果，未命中时调用加载函数发送请求，返回的响应结果为共享对象，不可修改
+     *
+     * @param method     接口方法
+     * @param cacheable  缓存配置
+     * @param request    请求协议
+     * @param serializer 序列化器，用于生成缓存key
+     * @param loader     发送请求
+     * @return 异步响应结果
+     */
+    public static CompletableFuture<IRpcResponse<Object>> get(Method method, IRpcCacheable cacheable, IRpcRequest request, IRpcSerializer serializer,
+                                                             Function<IRpcRequest, CompletableFuture<IRpcResponse<Object>>> loader) {
+        AsyncCache<CacheKey, IRpcResponse<Object>> cache = CACHES.computeIfAbsent(request.getClassName(), key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(method, key -> create(cacheable));
+        CacheKey key = new CacheKey(serializeArgs(request, serializer));
+        CompletableFuture<IRpcResponse<Object>> future = cache.get(key, (k, executor) -> loader.apply(request));
+        return future.whenComplete((response, cause) -> {
+            //非成功状态的响应不缓存，失败的Future由缓存自动移除
+            if (response != null && response.getStatus() != AppHttpStatus.OK.getStatus()) {
+                cache.asMap().remove(key, future);
+            }
+        });
+    }
+
+    /**
+     * 清除缓存
+     *
+     * @param className  类名
+     * @param methodName 方法名，为null时清除类的所有方法
+     */
+    public static void invalidate(String className, String methodName) {
+        Map<Method, AsyncCache<CacheKey, IRpcResponse<Object>>> caches = CACHES.get(className);
+        if (caches == null) {
+            return;
+        }
+        caches.forEach((method, cache) -> {
+            if (methodName == null || method.getName().equals(methodName)) {
+                cache.synchronous().invalidateAll();
+            }
+        });
+        logger.info("Rpc响应缓存已清除：{}#{}", className, methodName == null ? "*" : methodName);
+    }
+
+    /**
+     * 按注解配置创建缓存，配置了最大字节数时按响应消息体的大小淘汰，不重复序列化响应结果
+     *
+     * @param cacheable 缓存配置
+     * @return
+     */
+    private static AsyncCache<CacheKey, IRpcResponse<Object>> create(IRpcCacheable cacheable) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().expireAfterWrite(cacheable.ttl(), cacheable.unit());
+        if (cacheable.maxBytes() > 0) {
+            return builder.maximumWeight(cacheable.maxBytes())
+                    .<CacheKey, IRpcResponse<Object>>weigher((key, response) -> key.args.length + response.getBodySize())
+                    .buildAsync();
+        }
+        return builder.maximumSize(cacheable.maxSize()).buildAsync();
+    }
+
+    /**
+     * 序列化请求参数，只包含参数类型及参数值，不包含事务唯一标识等每次请求不同的字段
+     *
+     * @param request    请求协议
+     * @param serializer 序列化器
+     * @return
+     */
+    private static byte[] serializeArgs(IRpcRequest request, IRpcSerializer serializer) {
+        IRpcRequest args = new IRpcRequest();
+        args.setTypes(request.getTypes());
+        args.setParams(request.getParams());
+        return serializer.serializeRequest(args);
+    }
+
+    /**
+     * 缓存key，序列化后的参数
+     */
+    private static class CacheKey {
+        private final byte[] args;
+        private final int hash;
+
+        CacheKey(byte[] args) {
+            this.args = args;
+            this.hash = Arrays.hashCode(args);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || (o instanceof CacheKey && Arrays.equals(args, ((CacheKey) o).args));
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
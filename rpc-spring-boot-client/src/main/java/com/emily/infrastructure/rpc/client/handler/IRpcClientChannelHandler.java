@@ -4,54 +4,106 @@ import com.emily.infrastructure.common.enums.AppHttpStatus;
 import com.emily.infrastructure.common.exception.BasicException;
 import com.emily.infrastructure.common.exception.PrintExceptionInfo;
 import com.emily.infrastructure.common.utils.json.JSONUtils;
+import com.emily.infrastructure.rpc.client.IRpcClientProperties;
+import com.emily.infrastructure.rpc.client.cache.IRpcResponseCache;
 import com.emily.infrastructure.rpc.core.message.IRpcMessage;
 import com.emily.infrastructure.rpc.core.message.IRpcResponse;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
-import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
 import io.netty.handler.timeout.IdleStateEvent;
 import io.netty.util.ReferenceCountUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.util.ClassUtils;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * @program: spring-parent
- * @description: 由于需要在 handler 中发送消息给服务端，并且将服务端返回的消息读取后返回给消费者,所以实现了 Callable 接口，这样可以运行有返回值的线程
+ * @description: 客户端处理器，每个请求分配唯一标识并登记到在途请求表中，同一通道可以同时承载多个线程的请求，
+ * 服务端响应按请求标识找到对应的CompletableFuture并完成；持有通道级状态，每个连接创建独立实例，不可共享
  * @author: Emily
  * @create: 2021/09/17
  */
-@ChannelHandler.Sharable
 public class IRpcClientChannelHandler extends ChannelInboundHandlerAdapter {
 
     private static final Logger logger = LoggerFactory.getLogger(IRpcClientChannelHandler.class);
+    /**
+     * 是否引入了caffeine依赖，未引入时未开启响应缓存
+     */
+    private static final boolean CAFFEINE_PRESENT = ClassUtils.isPresent("com.github.benmanes.caffeine.cache.Caffeine", IRpcClientChannelHandler.class.getClassLoader());
 
-    public final Object object = new Object();
     /**
-     * 服务端返回的结果
+     * 请求唯一标识生成器
+     */
+    private final AtomicLong requestIdGenerator = new AtomicLong(0);
+    /**
+     * 在途请求表，key-请求唯一标识，value-等待响应结果的Future
      */
-    public IRpcResponse response;
+    private final Map<Long, CompletableFuture<IRpcMessage>> pendingRequests = new ConcurrentHashMap<>();
+    /**
+     * 流式调用的数据块接收者，key-请求唯一标识，流结束时的响应结果仍通过在途请求表返回
+     */
+    private final Map<Long, Consumer<IRpcMessage>> streamListeners = new ConcurrentHashMap<>();
     /**
      * 通道
      */
-    private Channel channel;
+    private volatile Channel channel;
 
     /**
      * 读取超时时间，单位：毫秒
      */
     private Duration readTimeOut;
+    /**
+     * 批量发送配置
+     */
+    private IRpcClientProperties.Batch batch;
+    /**
+     * 已写入发送缓冲区但尚未flush的请求数，仅在I/O线程中读写
+     */
+    private int unflushed;
+    /**
+     * 是否已安排flush任务，仅在I/O线程中读写
+     */
+    private boolean flushScheduled;
 
-    public IRpcClientChannelHandler(Duration readTimeOut) {
+    public IRpcClientChannelHandler(Duration readTimeOut, IRpcClientProperties.Batch batch) {
         this.readTimeOut = readTimeOut;
+        this.batch = batch;
     }
 
+    /**
+     * 加入管道时绑定通道，早于连接完成，连接结果通知早于channelActive触发，在此绑定才能保证连接成功后立即可以发送
+     *
+     * @param ctx
+     * @throws Exception
+     */
     @Override
-    public void channelActive(ChannelHandlerContext ctx) throws Exception {
-        logger.info("客户端信息：{}", ctx.channel().remoteAddress());
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
         //初始化通道
         this.channel = ctx.channel();
+        super.handlerAdded(ctx);
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        logger.info("客户端信息：{}", ctx.channel().remoteAddress());
         //继续传播事件
         super.channelActive(ctx);
     }
@@ -59,6 +111,8 @@ public class IRpcClientChannelHandler extends ChannelInboundHandlerAdapter {
     @Override
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
         logger.info("服务断开连接：{}", ctx.channel().remoteAddress());
+        //通道断开，所有在途请求均无法再收到响应
+        failPendingRequests(new BasicException(AppHttpStatus.IO_EXCEPTION.getStatus(), "Rpc连接已断开"));
         super.channelInactive(ctx);
     }
 
@@ -71,40 +125,269 @@ public class IRpcClientChannelHandler extends ChannelInboundHandlerAdapter {
      */
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
-        try {
-            synchronized (this.object) {
-                //将消息对象转换为指定消息体
-                IRpcMessage message = (IRpcMessage) msg;
-                //将真实的消息体转换为字符串类型
-                this.response = JSONUtils.toObject(message.getBody(), IRpcResponse.class);
-                //唤醒等待线程
-                this.object.notify();
+        //将消息对象转换为指定消息体
+        IRpcMessage message = (IRpcMessage) msg;
+        //服务端推送的缓存失效通知
+        if (message.getPackageType() == 3) {
+            try {
+                invalidateCache(message.getBody().toString(StandardCharsets.UTF_8));
+            } finally {
+                ReferenceCountUtil.release(msg);
+            }
+            return;
+        }
+        //流式响应的数据块，由接收者反序列化后释放
+        if (message.getPackageType() == 4) {
+            Consumer<IRpcMessage> listener = streamListeners.get(message.getRequestId());
+            if (listener == null) {
+                ReferenceCountUtil.release(msg);
+            } else {
+                listener.accept(message);
             }
-        } finally {
+            return;
+        }
+        //根据请求唯一标识获取等待中的请求
+        CompletableFuture<IRpcMessage> future = pendingRequests.remove(message.getRequestId());
+        if (future == null) {
+            logger.warn("未找到请求标识{}对应的在途请求，响应可能已超时", message.getRequestId());
             //手动释放消息，否则会导致内存泄漏
             ReferenceCountUtil.release(msg);
+            return;
+        }
+        //唤醒等待线程，消息体由调用方按请求时的序列化器及返回值类型反序列化后释放；请求已超时则直接释放
+        if (!future.complete(message)) {
+            ReferenceCountUtil.release(msg);
+        }
+    }
+
+    /**
+     * 清除缓存的响应结果，未引入caffeine依赖时未开启缓存
+     *
+     * @param target 类名或类名#方法名
+     */
+    private void invalidateCache(String target) {
+        if (!CAFFEINE_PRESENT) {
+            return;
+        }
+        int index = target.indexOf('#');
+        if (index < 0) {
+            IRpcResponseCache.invalidate(target, null);
+        } else {
+            IRpcResponseCache.invalidate(target.substring(0, index), target.substring(index + 1));
         }
     }
 
     /**
-     * 发送请求
+     * 发送请求并等待响应结果，最长等待读取超时时间，返回的消息使用完后需调用release释放
      *
      * @param message
      */
-    public IRpcResponse send(IRpcMessage message) {
+    public IRpcMessage send(IRpcMessage message) {
+        return await(sendAsync(message));
+    }
+
+    /**
+     * 发送请求，不阻塞调用线程，响应结果通过Future返回，超过读取超时时间未收到响应则以超时异常结束；
+     * 响应消息的消息体引用输入缓冲区，使用完后需调用release释放
+     *
+     * @param message
+     * @return
+     */
+    public CompletableFuture<IRpcMessage> sendAsync(IRpcMessage message) {
+        return sendAsync(message, readTimeOut.toMillis());
+    }
+
+    /**
+     * 发送请求，超过指定超时时间未收到响应则以超时异常结束，并通知服务端取消该请求
+     *
+     * @param message 请求消息
+     * @param timeout 超时时间，单位：毫秒
+     * @return
+     */
+    public CompletableFuture<IRpcMessage> sendAsync(IRpcMessage message, long timeout) {
+        //分配请求唯一标识
+        long requestId = requestIdGenerator.incrementAndGet();
+        message.setRequestId(requestId);
+        CompletableFuture<IRpcMessage> future = new CompletableFuture<>();
+        pendingRequests.put(requestId, future);
+        //超时或失败时从在途请求表中移除
+        future.orTimeout(timeout, TimeUnit.MILLISECONDS).whenComplete((response, cause) -> {
+            if (cause != null) {
+                pendingRequests.remove(requestId);
+            }
+            //调用方已放弃等待，通知服务端不再执行
+            if (cause instanceof TimeoutException || cause instanceof CancellationException) {
+                cancel(requestId, message.getSerializerId());
+            }
+        });
+        //发送Rpc请求，发送失败立即结束等待
+        write(message).addListener(listener -> {
+            if (!listener.isSuccess()) {
+                future.completeExceptionally(listener.cause());
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 发送流式调用请求，数据块到达时在I/O线程中交给接收者，接收者负责释放数据块；返回的Future在流结束时以结束响应完成，
+     * 流式调用不设置整体超时时间，由调用方按数据块的等待时间判断超时；取消Future即通知服务端停止发送
+     *
+     * @param message  请求消息
+     * @param listener 数据块接收者
+     * @return 流结束时的响应结果
+     */
+    public CompletableFuture<IRpcMessage> sendStream(IRpcMessage message, Consumer<IRpcMessage> listener) {
+        long requestId = requestIdGenerator.incrementAndGet();
+        message.setRequestId(requestId);
+        CompletableFuture<IRpcMessage> future = new CompletableFuture<>();
+        pendingRequests.put(requestId, future);
+        streamListeners.put(requestId, listener);
+        future.whenComplete((response, cause) -> {
+            streamListeners.remove(requestId);
+            if (cause != null) {
+                pendingRequests.remove(requestId);
+            }
+            if (cause instanceof CancellationException) {
+                cancel(requestId, message.getSerializerId());
+            }
+        });
+        write(message).addListener(written -> {
+            if (!written.isSuccess()) {
+                future.completeExceptionally(written.cause());
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 授予服务端发送数据块的信用
+     *
+     * @param requestId    流式调用的请求唯一标识
+     * @param serializerId 序列化器标识
+     * @param credits      信用数
+     */
+    public void credit(long requestId, byte serializerId, int credits) {
+        if (this.channel == null || !this.channel.isActive()) {
+            return;
+        }
+        ByteBuf body = this.channel.alloc().ioBuffer(4);
+        body.writeInt(credits);
+        write(IRpcMessage.build((byte) 5, serializerId, requestId, body));
+    }
+
+    /**
+     * 发送取消帧，服务端收到后跳过尚未执行的请求，正在执行的请求可通过截止时间感知已取消
+     *
+     * @param requestId    被取消的请求唯一标识
+     * @param serializerId 序列化器标识
+     */
+    private void cancel(long requestId, byte serializerId) {
+        if (this.channel == null || !this.channel.isActive()) {
+            return;
+        }
+        write(IRpcMessage.build((byte) 2, serializerId, requestId, Unpooled.EMPTY_BUFFER));
+    }
+
+    /**
+     * 写出请求，未开启批量发送时立即flush；开启后先写入发送缓冲区，由flush任务或达到批量条数时统一flush
+     *
+     * @param message 请求消息
+     * @return
+     */
+    private ChannelFuture write(IRpcMessage message) {
+        if (!batch.isEnabled()) {
+            return this.channel.writeAndFlush(message);
+        }
+        ChannelPromise promise = this.channel.newPromise();
+        //写入及计数均在I/O线程中执行，保证flush时已包含此前所有写入
+        EventLoop eventLoop = this.channel.eventLoop();
+        if (eventLoop.inEventLoop()) {
+            batchWrite(message, promise);
+        } else {
+            eventLoop.execute(() -> batchWrite(message, promise));
+        }
+        return promise;
+    }
+
+    /**
+     * 将请求写入发送缓冲区，达到批量条数立即flush，否则安排flush任务
+     *
+     * @param message 请求消息
+     * @param promise 写出结果
+     */
+    private void batchWrite(IRpcMessage message, ChannelPromise promise) {
+        this.channel.write(message, promise);
+        if (++unflushed >= batch.getMaxMessages()) {
+            flush();
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            if (batch.getWindow().isZero()) {
+                this.channel.eventLoop().execute(this::flush);
+            } else {
+                this.channel.eventLoop().schedule(this::flush, batch.getWindow().toNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * 将发送缓冲区中的请求一次性发送
+     */
+    private void flush() {
+        if (unflushed == 0) {
+            flushScheduled = false;
+            return;
+        }
+        unflushed = 0;
+        flushScheduled = false;
+        this.channel.flush();
+    }
+
+    /**
+     * 等待请求的响应结果
+     *
+     * @param future 异步请求结果
+     * @param <T>    响应结果类型
+     * @return
+     */
+    public static <T> T await(CompletableFuture<T> future) {
         try {
-            synchronized (this.object) {
-                //发送Rpc请求
-                this.channel.writeAndFlush(message);
-                //释放当前线程资源，并等待指定超时时间，默认：10000ms
-                this.object.wait(readTimeOut.toMillis());
+            return future.get();
+        } catch (ExecutionException exception) {
+            if (exception.getCause() instanceof TimeoutException) {
+                throw new BasicException(AppHttpStatus.IO_EXCEPTION.getStatus(), "Rpc请求读取超时");
             }
-            return this.response;
-        } catch (Exception exception) {
+            if (exception.getCause() instanceof BasicException) {
+                throw (BasicException) exception.getCause();
+            }
+            throw new BasicException(AppHttpStatus.EXCEPTION.getStatus(), PrintExceptionInfo.printErrorInfo(exception.getCause()));
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
             throw new BasicException(AppHttpStatus.EXCEPTION.getStatus(), PrintExceptionInfo.printErrorInfo(exception));
         }
     }
 
+    /**
+     * 在途请求数量
+     *
+     * @return
+     */
+    public int getPendingCount() {
+        return pendingRequests.size();
+    }
+
+    /**
+     * 以异常结束所有在途请求
+     *
+     * @param cause 异常原因
+     */
+    private void failPendingRequests(Throwable cause) {
+        pendingRequests.forEach((requestId, future) -> {
+            pendingRequests.remove(requestId);
+            future.completeExceptionally(cause);
+        });
+    }
+
     /**
      * 用户时间触发，心跳
      *
@@ -121,13 +404,8 @@ public class IRpcClientChannelHandler extends ChannelInboundHandlerAdapter {
                 case READER_IDLE:
                 case WRITER_IDLE:
                 case ALL_IDLE:
-                    IRpcMessage message = new IRpcMessage();
-                    //设置包类型为心跳包
-                    message.setPackageType((byte) 1);
-                    //设置心跳包内容
-                    message.setBody(JSONUtils.toByteArray(IRpcResponse.buildResponse("heartBeat...")));
-                    //消息包长度
-                    message.setLen(message.getBody().length);
+                    //心跳包，请求唯一标识为0
+                    IRpcMessage message = IRpcMessage.build((byte) 1, JSONUtils.toByteArray(IRpcResponse.buildResponse("heartBeat...")));
                     //发送心跳包
                     ctx.channel().writeAndFlush(message);
                     break;
@@ -149,6 +427,7 @@ public class IRpcClientChannelHandler extends ChannelInboundHandlerAdapter {
      */
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        failPendingRequests(cause);
         ctx.close();
         logger.error(PrintExceptionInfo.printErrorInfo(cause));
     }
@@ -1,5 +1,7 @@
 package com.emily.infrastructure.rpc.client.loadbalance;
 
+import com.emily.infrastructure.rpc.core.message.IRpcRequest;
+
 import java.util.List;
 
 /**
@@ -20,6 +22,17 @@ public abstract class AbstractLoadBalance implements LoadBalance {
         return doSelect(serviceAddress);
     }
 
+    @Override
+    public String selectServiceAddress(List<String> serviceAddress, IRpcRequest request) {
+        if (serviceAddress == null || serviceAddress.size() == 0) {
+            return null;
+        }
+        if (serviceAddress.size() == 1) {
+            return serviceAddress.get(0);
+        }
+        return doSelect(serviceAddress, request);
+    }
+
     /**
      * 选择合适的服务地址
      *
@@ -27,4 +40,15 @@ public abstract class AbstractLoadBalance implements LoadBalance {
      * @return
      */
     protected abstract String doSelect(List<String> serviceAddress);
+
+    /**
+     * 按请求选择合适的服务地址，默认与请求无关
+     *
+     * @param serviceAddress
+     * @param request
+     * @return
+     */
+    protected String doSelect(List<String> serviceAddress, IRpcRequest request) {
+        return doSelect(serviceAddress);
+    }
 }
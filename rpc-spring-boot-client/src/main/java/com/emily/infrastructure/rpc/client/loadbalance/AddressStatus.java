@@ -0,0 +1,138 @@
+package com.emily.infrastructure.rpc.client.loadbalance;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @program: spring-parent
+ * @description: 服务地址调用状态，记录在途请求数及响应耗时的峰值指数加权移动平均(peak EWMA)，供负载均衡策略选择地址；
+ * 读取时按距上次更新的时间向初始耗时衰减，停止接收请求的地址也能从耗时峰值恢复；新地址以已有地址耗时的中位数为初始耗时
+ * @author: Emily
+ * @create: 2022/04/17
+ */
+public class AddressStatus {
+    /**
+     * 耗时衰减时间常数，超过此时间未更新的历史耗时权重衰减为约1/e
+     */
+    private static final long DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+    /**
+     * 没有其它地址可参考时的初始耗时，所有地址相同时只按在途请求数比较，取值不影响选择结果
+     */
+    private static final long DEFAULT_RTT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    /**
+     * 所有地址的调用状态，key-服务地址
+     */
+    private static final ConcurrentMap<String, AddressStatus> ADDRESS_STATUS = new ConcurrentHashMap<>();
+    /**
+     * 在途请求数
+     */
+    private final AtomicInteger active = new AtomicInteger(0);
+    /**
+     * 初始耗时，无新样本时加权移动平均向此值衰减，单位：纳秒
+     */
+    private final double baselineNanos;
+    /**
+     * 响应耗时的加权移动平均，单位：纳秒
+     */
+    private double ewmaNanos;
+    /**
+     * 最后一次更新耗时的时间
+     */
+    private long lastUpdateNanos = System.nanoTime();
+
+    /**
+     * 获取地址的调用状态
+     *
+     * @param address 服务地址
+     * @return
+     */
+    public static AddressStatus get(String address) {
+        AddressStatus status = ADDRESS_STATUS.get(address);
+        if (status != null) {
+            return status;
+        }
+        //在映射函数外计算初始耗时，避免遍历正在修改的表
+        AddressStatus created = new AddressStatus(medianEwmaNanos());
+        status = ADDRESS_STATUS.putIfAbsent(address, created);
+        return status == null ? created : status;
+    }
+
+    /**
+     * 删除下线地址的调用状态
+     *
+     * @param address 服务地址
+     */
+    public static void remove(String address) {
+        ADDRESS_STATUS.remove(address);
+    }
+
+    /**
+     * 已有地址当前耗时的中位数，没有时返回默认值
+     *
+     * @return 单位：纳秒
+     */
+    private static double medianEwmaNanos() {
+        double[] values = ADDRESS_STATUS.values().stream().mapToDouble(AddressStatus::getEwmaNanos).toArray();
+        if (values.length == 0) {
+            return DEFAULT_RTT_NANOS;
+        }
+        Arrays.sort(values);
+        return values[values.length / 2];
+    }
+
+    private AddressStatus(double baselineNanos) {
+        this.baselineNanos = baselineNanos;
+        this.ewmaNanos = baselineNanos;
+    }
+
+    /**
+     * 请求开始
+     */
+    public void begin() {
+        active.incrementAndGet();
+    }
+
+    /**
+     * 请求结束，耗时高于当前平均值时直接取峰值，否则按距上次更新的时间衰减后加权
+     *
+     * @param elapsedNanos 请求耗时，单位：纳秒
+     */
+    public void end(long elapsedNanos) {
+        active.decrementAndGet();
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (elapsedNanos > ewmaNanos) {
+                ewmaNanos = elapsedNanos;
+            } else {
+                double weight = Math.exp(-(double) (now - lastUpdateNanos) / DECAY_NANOS);
+                ewmaNanos = ewmaNanos * weight + elapsedNanos * (1 - weight);
+            }
+            lastUpdateNanos = now;
+        }
+    }
+
+    /**
+     * 在途请求数
+     */
+    public int getActive() {
+        return active.get();
+    }
+
+    /**
+     * 响应耗时的加权移动平均，按距上次更新的时间向初始耗时衰减，单位：纳秒
+     */
+    public synchronized double getEwmaNanos() {
+        double weight = Math.exp(-(double) (System.nanoTime() - lastUpdateNanos) / DECAY_NANOS);
+        return baselineNanos + (ewmaNanos - baselineNanos) * weight;
+    }
+
+    /**
+     * 负载成本：平均耗时*(在途请求数+1)，从未调用过的地址以初始耗时计算，随在途请求数增加
+     */
+    public double getCost() {
+        return getEwmaNanos() * (getActive() + 1);
+    }
+}
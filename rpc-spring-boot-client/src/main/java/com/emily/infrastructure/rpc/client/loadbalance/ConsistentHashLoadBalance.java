@@ -0,0 +1,114 @@
+package com.emily.infrastructure.rpc.client.loadbalance;
+
+import com.emily.infrastructure.rpc.core.message.IRpcRequest;
+import org.apache.commons.lang3.RandomUtils;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * @program: spring-parent
+ * @description: 一致性哈希负载均衡，按请求的指定参数选择地址，相同参数的请求总是落到同一服务器，服务器增减时只影响相邻区间；
+ * 哈希键为参数的toString结果，参数需为字符串、数字、枚举等值类型或按值重写了toString的类型，否则相同参数的请求会落到不同服务器；
+ * 摘除或重试排除的地址只是跳过，不重建哈希环，其哈希区间顺时针交给下一个可用地址；无请求上下文（如创建连接时）随机选择
+ * @author: Emily
+ * @create: 2022/04/17
+ */
+public class ConsistentHashLoadBalance extends AbstractLoadBalance {
+    /**
+     * 每个地址的虚拟节点数
+     */
+    private static final int VIRTUAL_NODES = 160;
+    /**
+     * 作为哈希键的参数下标
+     */
+    private final int hashArgument;
+    /**
+     * 哈希环，包含全部地址，出现环中没有的地址时重建
+     */
+    private volatile HashRing ring;
+
+    public ConsistentHashLoadBalance(int hashArgument) {
+        this.hashArgument = hashArgument;
+    }
+
+    @Override
+    protected String doSelect(List<String> serviceAddress) {
+        return serviceAddress.get(RandomUtils.nextInt(0, serviceAddress.size()));
+    }
+
+    @Override
+    protected String doSelect(List<String> serviceAddress, IRpcRequest request) {
+        if (request == null || request.getParams() == null || request.getParams().length <= hashArgument) {
+            return doSelect(serviceAddress);
+        }
+        HashRing hashRing = ring;
+        //可用地址是环中地址的子集时复用，摘除的地址恢复后哈希区间不变
+        if (hashRing == null || !hashRing.addresses.containsAll(serviceAddress)) {
+            hashRing = new HashRing(serviceAddress);
+            ring = hashRing;
+        }
+        return hashRing.select(String.valueOf(request.getParams()[hashArgument]), serviceAddress);
+    }
+
+    /**
+     * 哈希环
+     */
+    private static class HashRing {
+        /**
+         * 构建哈希环时的地址
+         */
+        private final Set<String> addresses;
+        /**
+         * 虚拟节点，key-哈希值，value-服务地址
+         */
+        private final TreeMap<Long, String> nodes = new TreeMap<>();
+
+        HashRing(List<String> serviceAddress) {
+            this.addresses = new HashSet<>(serviceAddress);
+            for (String address : addresses) {
+                //每次摘要产生16字节，可以得到4个虚拟节点
+                for (int i = 0; i < VIRTUAL_NODES / 4; i++) {
+                    byte[] digest = DigestUtils.md5Digest((address + "#" + i).getBytes(StandardCharsets.UTF_8));
+                    for (int h = 0; h < 4; h++) {
+                        nodes.put(hash(digest, h), address);
+                    }
+                }
+            }
+        }
+
+        /**
+         * 从哈希键的位置顺时针查找第一个可用地址的虚拟节点
+         *
+         * @param key            哈希键
+         * @param serviceAddress 可用地址，为环中地址的子集
+         * @return 服务地址
+         */
+        String select(String key, List<String> serviceAddress) {
+            long hash = hash(DigestUtils.md5Digest(key.getBytes(StandardCharsets.UTF_8)), 0);
+            for (String address : nodes.tailMap(hash, true).values()) {
+                if (serviceAddress.contains(address)) {
+                    return address;
+                }
+            }
+            for (String address : nodes.headMap(hash, false).values()) {
+                if (serviceAddress.contains(address)) {
+                    return address;
+                }
+            }
+            return serviceAddress.get(0);
+        }
+
+        private static long hash(byte[] digest, int index) {
+            return (((long) (digest[3 + index * 4] & 0xFF) << 24)
+                    | ((long) (digest[2 + index * 4] & 0xFF) << 16)
+                    | ((long) (digest[1 + index * 4] & 0xFF) << 8)
+                    | (digest[index * 4] & 0xFF))
+                    & 0xFFFFFFFFL;
+        }
+    }
+}
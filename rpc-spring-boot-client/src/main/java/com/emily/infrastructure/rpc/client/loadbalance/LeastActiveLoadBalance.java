@@ -0,0 +1,33 @@
+package com.emily.infrastructure.rpc.client.loadbalance;
+
+import org.apache.commons.lang3.RandomUtils;
+
+import java.util.List;
+
+/**
+ * @program: spring-parent
+ * @description: 最少在途请求数优先，处理慢的服务器在途请求会积压，从而分到更少的流量；在途请求数相同时等概率随机选择
+ * @author: Emily
+ * @create: 2022/04/17
+ */
+public class LeastActiveLoadBalance extends AbstractLoadBalance {
+    @Override
+    protected String doSelect(List<String> serviceAddress) {
+        String selected = null;
+        int leastActive = Integer.MAX_VALUE;
+        //在途请求数最少的地址个数
+        int leastCount = 0;
+        for (String address : serviceAddress) {
+            int active = AddressStatus.get(address).getActive();
+            if (active < leastActive) {
+                leastActive = active;
+                leastCount = 1;
+                selected = address;
+            } else if (active == leastActive && RandomUtils.nextInt(0, ++leastCount) == 0) {
+                //在途请求数相同的地址等概率选中
+                selected = address;
+            }
+        }
+        return selected;
+    }
+}
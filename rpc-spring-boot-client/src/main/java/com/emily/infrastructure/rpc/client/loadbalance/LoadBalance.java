@@ -1,5 +1,7 @@
 package com.emily.infrastructure.rpc.client.loadbalance;
 
+import com.emily.infrastructure.rpc.core.message.IRpcRequest;
+
 import java.util.List;
 
 /**
@@ -15,4 +17,15 @@ public interface LoadBalance {
      * @return 地址host
      */
     String selectServiceAddress(List<String> serviceAddress);
+
+    /**
+     * 按请求选择一个列表中存在的地址，需要根据请求内容选择地址的策略重写此方法
+     *
+     * @param serviceAddress 服务地址列表
+     * @param request        请求协议
+     * @return 地址host
+     */
+    default String selectServiceAddress(List<String> serviceAddress, IRpcRequest request) {
+        return selectServiceAddress(serviceAddress);
+    }
 }
@@ -2,6 +2,7 @@ package com.emily.infrastructure.rpc.client.loadbalance;
 
 import com.emily.infrastructure.rpc.client.IRpcClientProperties;
 import com.emily.infrastructure.rpc.client.pool.IRpcConnection;
+import io.netty.bootstrap.Bootstrap;
 
 import java.util.List;
 
@@ -15,10 +16,12 @@ import java.util.List;
 public class LoadBalanceClient implements ServiceInstanceChooser {
     private LoadBalance loadBalance;
     private IRpcClientProperties properties;
+    private Bootstrap bootstrap;
 
-    public LoadBalanceClient(LoadBalance loadBalance, IRpcClientProperties properties) {
+    public LoadBalanceClient(LoadBalance loadBalance, IRpcClientProperties properties, Bootstrap bootstrap) {
         this.loadBalance = loadBalance;
         this.properties = properties;
+        this.bootstrap = bootstrap;
     }
 
     @Override
@@ -26,7 +29,7 @@ public class LoadBalanceClient implements ServiceInstanceChooser {
         //获取服务器地址
         String address = loadBalance.selectServiceAddress(serviceAddress);
         //创建Rpc连接对象
-        IRpcConnection connection = new IRpcConnection(properties);
+        IRpcConnection connection = new IRpcConnection(properties, bootstrap);
         //建立Rpc连接
         connection.connect(address);
         return connection;
@@ -0,0 +1,30 @@
+package com.emily.infrastructure.rpc.client.loadbalance;
+
+/**
+ * @program: spring-parent
+ * @description: 内置负载均衡策略
+ * @author: Emily
+ * @create: 2022/04/17
+ */
+public enum LoadBalanceStrategy {
+    /**
+     * 轮询
+     */
+    ROUND,
+    /**
+     * 随机
+     */
+    RANDOM,
+    /**
+     * 最少在途请求数
+     */
+    LEAST_ACTIVE,
+    /**
+     * 峰值加权响应时间
+     */
+    PEAK_EWMA,
+    /**
+     * 按请求参数一致性哈希
+     */
+    CONSISTENT_HASH
+}
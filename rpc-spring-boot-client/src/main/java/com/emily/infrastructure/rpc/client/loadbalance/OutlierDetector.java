@@ -0,0 +1,208 @@
+package com.emily.infrastructure.rpc.client.loadbalance;
+
+import com.emily.infrastructure.rpc.client.IRpcClientProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @program: spring-parent
+ * @description: 异常地址摘除，连续调用失败（超时、连接异常）达到阈值的地址摘除一段时间，摘除时间结束后进入半开状态，
+ * 只放行一个探测请求，探测成功则恢复，失败则继续摘除；只有探测请求的结果决定摘除地址是否恢复，摘除前发出的请求迟到的成功响应不恢复地址
+ * @author: Emily
+ * @create: 2022/04/18
+ */
+public class OutlierDetector {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutlierDetector.class);
+    /**
+     * 各地址健康状态，key-服务地址
+     */
+    private final ConcurrentMap<String, Health> healths = new ConcurrentHashMap<>();
+    /**
+     * 当前摘除的地址数
+     */
+    private final AtomicInteger ejectedCount = new AtomicInteger(0);
+
+    private final IRpcClientProperties.Outlier properties;
+
+    public OutlierDetector(IRpcClientProperties.Outlier properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * 获取一个摘除时间已结束且可以发起探测的地址，获取成功后本次请求即为探测请求
+     *
+     * @param serviceAddress 服务地址列表
+     * @return 探测地址，无则返回null
+     */
+    public String probe(List<String> serviceAddress) {
+        if (!properties.isEnabled() || ejectedCount.get() == 0) {
+            return null;
+        }
+        long now = System.nanoTime();
+        for (String address : serviceAddress) {
+            Health health = healths.get(address);
+            if (health != null && health.ejected && now - health.ejectedUntil >= 0 && health.probing.compareAndSet(false, true)) {
+                logger.info("Rpc服务地址{}摘除时间已结束，发送探测请求", address);
+                return address;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 过滤掉已摘除的地址，全部摘除时返回原列表
+     *
+     * @param serviceAddress 服务地址列表
+     * @return 可用地址列表
+     */
+    public List<String> available(List<String> serviceAddress) {
+        if (!properties.isEnabled() || ejectedCount.get() == 0) {
+            return serviceAddress;
+        }
+        List<String> available = new ArrayList<>(serviceAddress.size());
+        for (String address : serviceAddress) {
+            Health health = healths.get(address);
+            if (health == null || !health.ejected) {
+                available.add(address);
+            }
+        }
+        return available.isEmpty() ? serviceAddress : available;
+    }
+
+    /**
+     * 调用成功，重置连续失败次数，探测请求成功时恢复地址
+     *
+     * @param address 服务地址
+     * @param probe   是否为{@link #probe(List)}放行的探测请求
+     * @return 是否恢复了已摘除的地址
+     */
+    public boolean onSuccess(String address, boolean probe) {
+        Health health = healths.get(address);
+        if (health == null) {
+            return false;
+        }
+        health.failures.set(0);
+        if (!probe) {
+            return false;
+        }
+        synchronized (health) {
+            if (health.ejected && health.probing.compareAndSet(true, false)) {
+                health.ejected = false;
+                ejectedCount.decrementAndGet();
+                logger.info("Rpc服务地址{}探测成功，恢复使用", address);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 探测请求被取消，未得到结果，释放探测资格，下次请求重新探测
+     *
+     * @param address 服务地址
+     * @param probe   是否为探测请求
+     */
+    public void onCancel(String address, boolean probe) {
+        Health health = healths.get(address);
+        if (probe && health != null) {
+            health.probing.set(false);
+        }
+    }
+
+    /**
+     * 地址是否已摘除
+     *
+     * @param address 服务地址
+     * @return
+     */
+    public boolean isEjected(String address) {
+        Health health = healths.get(address);
+        return health != null && health.ejected;
+    }
+
+    /**
+     * 调用失败，连续失败次数达到阈值时摘除地址，半开状态的地址探测失败时继续摘除
+     *
+     * @param address      服务地址
+     * @param probe        是否为探测请求
+     * @param totalAddress 服务地址总数
+     * @return 是否新摘除了该地址
+     */
+    public boolean onFailure(String address, boolean probe, int totalAddress) {
+        if (!properties.isEnabled()) {
+            return false;
+        }
+        Health health = healths.computeIfAbsent(address, key -> new Health());
+        int failures = health.failures.incrementAndGet();
+        synchronized (health) {
+            if (health.ejected) {
+                //探测失败，重新计算摘除时间
+                if (probe && health.probing.compareAndSet(true, false)) {
+                    health.ejectedUntil = System.nanoTime() + properties.getEjectionTime().toNanos();
+                    logger.warn("Rpc服务地址{}探测失败，继续摘除{}", address, properties.getEjectionTime());
+                }
+                return false;
+            }
+            if (failures < properties.getConsecutiveFailures()) {
+                return false;
+            }
+            //摘除比例不超过上限，避免所有地址都被摘除
+            if ((ejectedCount.get() + 1) * 100 > totalAddress * properties.getMaxEjectionPercent()) {
+                return false;
+            }
+            health.ejected = true;
+            health.ejectedUntil = System.nanoTime() + properties.getEjectionTime().toNanos();
+            ejectedCount.incrementAndGet();
+            logger.warn("Rpc服务地址{}连续{}次调用失败，摘除{}", address, failures, properties.getEjectionTime());
+            return true;
+        }
+    }
+
+    /**
+     * 地址已下线，清除其健康状态，已摘除的不再计入摘除地址数
+     *
+     * @param address 服务地址
+     */
+    public void remove(String address) {
+        Health health = healths.remove(address);
+        if (health == null) {
+            return;
+        }
+        synchronized (health) {
+            if (health.ejected) {
+                health.ejected = false;
+                ejectedCount.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 地址健康状态
+     */
+    private static class Health {
+        /**
+         * 连续失败次数
+         */
+        private final AtomicInteger failures = new AtomicInteger(0);
+        /**
+         * 是否已摘除
+         */
+        private volatile boolean ejected;
+        /**
+         * 摘除截止时间
+         */
+        private volatile long ejectedUntil;
+        /**
+         * 是否有探测请求在途
+         */
+        private final AtomicBoolean probing = new AtomicBoolean(false);
+    }
+}
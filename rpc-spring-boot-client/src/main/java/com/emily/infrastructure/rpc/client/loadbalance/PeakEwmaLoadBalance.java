@@ -0,0 +1,25 @@
+package com.emily.infrastructure.rpc.client.loadbalance;
+
+import org.apache.commons.lang3.RandomUtils;
+
+import java.util.List;
+
+/**
+ * @program: spring-parent
+ * @description: 峰值加权响应时间负载均衡，随机选取两个地址，取负载成本(平均耗时*(在途请求数+1))较低者；
+ * 耗时突增时立即生效，恢复时按时间逐步衰减，避免将流量集中到刚恢复的慢节点
+ * @author: Emily
+ * @create: 2022/04/17
+ */
+public class PeakEwmaLoadBalance extends AbstractLoadBalance {
+    @Override
+    protected String doSelect(List<String> serviceAddress) {
+        int size = serviceAddress.size();
+        int first = RandomUtils.nextInt(0, size);
+        //第二个地址与第一个不同
+        int second = (first + RandomUtils.nextInt(1, size)) % size;
+        String firstAddress = serviceAddress.get(first);
+        String secondAddress = serviceAddress.get(second);
+        return AddressStatus.get(firstAddress).getCost() <= AddressStatus.get(secondAddress).getCost() ? firstAddress : secondAddress;
+    }
+}
@@ -9,7 +9,6 @@ import org.slf4j.LoggerFactory;
 
 import java.text.MessageFormat;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 
 /**
  * @program: spring-parent
@@ -26,15 +25,16 @@ public class RecordLogger {
      *
      * @param request  请求协议
      * @param response 响应结果
+     * @param time     耗时，单位：毫秒，与耗时区间一致
      */
-    public static void recordResponse(IRpcRequest request, Object response, long startTime) {
+    public static void recordResponse(IRpcRequest request, Object response, long time) {
         BaseLogger baseLogger = new BaseLogger();
         baseLogger.setTraceId(request.getTraceId());
-        baseLogger.setTriggerTime(LocalDateTime.now().format(DateTimeFormatter.ofPattern(DateFormat.YYYY_MM_DD_HH_MM_SS_SSS.getFormat())));
+        baseLogger.setTriggerTime(LocalDateTime.now().format(DateFormat.YYYY_MM_DD_HH_MM_SS_SSS.getFormatter()));
         baseLogger.setUrl(MessageFormat.format("{0}.{1}", request.getClassName(), request.getMethodName()));
         baseLogger.setRequestParams(request.getParams());
         baseLogger.setBody(response);
-        baseLogger.setTime(System.currentTimeMillis() - startTime);
+        baseLogger.setTime(time);
         logger.info(JSONUtils.toJSONString(baseLogger));
     }
 }
@@ -0,0 +1,65 @@
+package com.emily.infrastructure.rpc.client.metrics;
+
+import com.emily.infrastructure.rpc.client.pool.IRpcObjectPool;
+import com.emily.infrastructure.rpc.core.transport.IRpcTrafficCounter;
+
+/**
+ * @program: spring-parent
+ * @description: Rpc客户端监控指标，记录调用耗时、连接池借用等待耗时，并输出连接池、在途请求数及收发字节数指标；
+ * 默认不记录，引入micrometer依赖后由MicrometerClientMetrics实现
+ * @author: Emily
+ * @create: 2022/04/25
+ */
+public interface IRpcClientMetrics {
+    /**
+     * 不记录任何指标
+     */
+    IRpcClientMetrics NOOP = new IRpcClientMetrics() {
+    };
+
+    /**
+     * 记录一次调用，耗时从发起调用开始至收到响应结果，包含借用连接、网络传输及服务端处理耗时
+     *
+     * @param className    服务接口类名
+     * @param methodName   方法名
+     * @param status       响应状态码
+     * @param elapsedNanos 耗时，单位：纳秒
+     */
+    default void recordCall(String className, String methodName, int status, long elapsedNanos) {
+    }
+
+    /**
+     * 记录从连接池借用连接的等待耗时
+     *
+     * @param address      服务地址
+     * @param elapsedNanos 耗时，单位：纳秒
+     */
+    default void recordBorrow(String address, long elapsedNanos) {
+    }
+
+    /**
+     * 获取服务地址的收发字节数统计处理器，同一地址的所有连接共用
+     *
+     * @param address 服务地址
+     * @return 不统计时返回null
+     */
+    default IRpcTrafficCounter trafficCounter(String address) {
+        return null;
+    }
+
+    /**
+     * 绑定连接池，输出各服务地址的活跃连接数、空闲连接数及等待借用连接的线程数
+     *
+     * @param pool 连接池
+     */
+    default void bindPool(IRpcObjectPool pool) {
+    }
+
+    /**
+     * 服务地址已下线且连接已关闭，删除该地址的指标
+     *
+     * @param address 服务地址
+     */
+    default void removeAddress(String address) {
+    }
+}
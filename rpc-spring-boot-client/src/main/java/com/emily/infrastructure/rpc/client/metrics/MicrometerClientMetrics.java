@@ -0,0 +1,170 @@
+package com.emily.infrastructure.rpc.client.metrics;
+
+import com.emily.infrastructure.rpc.client.loadbalance.AddressStatus;
+import com.emily.infrastructure.rpc.client.pool.IRpcObjectPool;
+import com.emily.infrastructure.rpc.core.metrics.IRpcCallTimers;
+import com.emily.infrastructure.rpc.core.transport.IRpcTrafficCounter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @program: spring-parent
+ * @description: 基于Micrometer的Rpc客户端监控指标，调用耗时按服务接口、方法及响应状态码分别统计并输出直方图；
+ * 连接池、在途请求数及收发字节数按服务地址汇总，指标数量不随连接数增长，地址下线后删除其指标
+ * @author: Emily
+ * @create: 2022/04/25
+ */
+public class MicrometerClientMetrics implements IRpcClientMetrics {
+
+    private final MeterRegistry registry;
+    /**
+     * 各服务地址的指标，key-服务地址
+     */
+    private final ConcurrentMap<String, AddressMeters> addresses = new ConcurrentHashMap<>();
+    /**
+     * 调用耗时指标
+     */
+    private final IRpcCallTimers calls;
+    /**
+     * 连接池，绑定前连接池指标为0
+     */
+    private volatile IRpcObjectPool pool;
+
+    public MicrometerClientMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.calls = new IRpcCallTimers(registry, "rpc.client.requests", "Rpc客户端调用耗时");
+    }
+
+    @Override
+    public void recordCall(String className, String methodName, int status, long elapsedNanos) {
+        calls.record(className, methodName, status, elapsedNanos);
+    }
+
+    @Override
+    public void recordBorrow(String address, long elapsedNanos) {
+        meters(address).borrow.record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public IRpcTrafficCounter trafficCounter(String address) {
+        return meters(address).traffic;
+    }
+
+    @Override
+    public void bindPool(IRpcObjectPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public void removeAddress(String address) {
+        AddressMeters meters = addresses.remove(address);
+        if (meters != null) {
+            meters.meters.forEach(registry::remove);
+        }
+    }
+
+    /**
+     * 获取服务地址的指标，首次使用时注册
+     *
+     * @param address 服务地址
+     * @return
+     */
+    private AddressMeters meters(String address) {
+        return addresses.computeIfAbsent(address, AddressMeters::new);
+    }
+
+    /**
+     * 活跃连接数
+     */
+    private int numActive(String address) {
+        IRpcObjectPool pool = this.pool;
+        return pool == null ? 0 : pool.getNumActive(address);
+    }
+
+    /**
+     * 空闲连接数
+     */
+    private int numIdle(String address) {
+        IRpcObjectPool pool = this.pool;
+        return pool == null ? 0 : pool.getNumIdle(address);
+    }
+
+    /**
+     * 等待借用连接的线程数
+     */
+    private int numWaiters(String address) {
+        IRpcObjectPool pool = this.pool;
+        if (pool == null) {
+            return 0;
+        }
+        Map<String, Integer> waiters = pool.getNumWaitersByKey();
+        return waiters.getOrDefault(address, 0);
+    }
+
+    /**
+     * 单个服务地址的指标
+     */
+    private class AddressMeters {
+        /**
+         * 收发字节数统计，该地址的所有连接共用
+         */
+        private final IRpcTrafficCounter traffic = new IRpcTrafficCounter();
+        /**
+         * 借用连接等待耗时
+         */
+        private final Timer borrow;
+        /**
+         * 该地址注册的所有指标，地址下线时删除
+         */
+        private final List<Meter> meters = new ArrayList<>(8);
+
+        AddressMeters(String address) {
+            this.borrow = Timer.builder("rpc.client.pool.borrow")
+                    .description("Rpc客户端从连接池借用连接的等待耗时")
+                    .tag("address", address)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            meters.add(borrow);
+            meters.add(Gauge.builder("rpc.client.pool.active", MicrometerClientMetrics.this, metrics -> metrics.numActive(address))
+                    .description("Rpc客户端已借出的连接数")
+                    .tag("address", address)
+                    .strongReference(true)
+                    .register(registry));
+            meters.add(Gauge.builder("rpc.client.pool.idle", MicrometerClientMetrics.this, metrics -> metrics.numIdle(address))
+                    .description("Rpc客户端空闲连接数")
+                    .tag("address", address)
+                    .strongReference(true)
+                    .register(registry));
+            meters.add(Gauge.builder("rpc.client.pool.waiters", MicrometerClientMetrics.this, metrics -> metrics.numWaiters(address))
+                    .description("Rpc客户端等待借用连接的线程数")
+                    .tag("address", address)
+                    .strongReference(true)
+                    .register(registry));
+            meters.add(Gauge.builder("rpc.client.inflight", AddressStatus.get(address), AddressStatus::getActive)
+                    .description("Rpc客户端已发送尚未收到响应的请求数")
+                    .tag("address", address)
+                    .strongReference(true)
+                    .register(registry));
+            meters.add(FunctionCounter.builder("rpc.client.bytes.sent", traffic, IRpcTrafficCounter::getBytesWritten)
+                    .description("Rpc客户端发送字节数")
+                    .baseUnit("bytes")
+                    .tag("address", address)
+                    .register(registry));
+            meters.add(FunctionCounter.builder("rpc.client.bytes.received", traffic, IRpcTrafficCounter::getBytesRead)
+                    .description("Rpc客户端接收字节数")
+                    .baseUnit("bytes")
+                    .tag("address", address)
+                    .register(registry));
+        }
+    }
+}
@@ -6,15 +6,15 @@ import com.emily.infrastructure.common.exception.BasicException;
 import com.emily.infrastructure.common.exception.PrintExceptionInfo;
 import com.emily.infrastructure.rpc.client.IRpcClientProperties;
 import com.emily.infrastructure.rpc.client.handler.IRpcClientChannelHandler;
+import com.emily.infrastructure.rpc.client.metrics.IRpcClientMetrics;
 import com.emily.infrastructure.rpc.core.decoder.IRpcDecoder;
 import com.emily.infrastructure.rpc.core.encoder.IRpcEncoder;
-import com.emily.infrastructure.rpc.core.message.IRpcTail;
+import com.emily.infrastructure.rpc.core.serializer.IRpcSerializer;
+import com.emily.infrastructure.rpc.core.serializer.IRpcSerializerFactory;
+import com.emily.infrastructure.rpc.core.transport.IRpcTrafficCounter;
+import com.emily.infrastructure.rpc.core.transport.IRpcTransport;
 import io.netty.bootstrap.Bootstrap;
-import io.netty.buffer.Unpooled;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioSocketChannel;
-import io.netty.handler.codec.DelimiterBasedFrameDecoder;
 import io.netty.handler.timeout.IdleStateHandler;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
@@ -33,29 +33,53 @@ public class IRpcConnection extends AbstractConnection<Channel> {
 
     private static final Logger logger = LoggerFactory.getLogger(IRpcConnection.class);
     /**
-     * 线程工作组
+     * 客户端启动对象模板，每次连接时复制，避免并发连接时相互覆盖处理器
      */
-    private static final EventLoopGroup GROUP = new NioEventLoopGroup();
-    /**
-     * 创建客户端的启动对象 bootstrap ，不是 serverBootStrap
-     */
-    private static final Bootstrap BOOTSTRAP = new Bootstrap();
+    private Bootstrap bootstrap;
     /**
      * 处理器
      */
     private IRpcClientChannelHandler clientChannelHandler;
 
+    /**
+     * 当前连接使用的序列化器
+     */
+    private IRpcSerializer serializer;
+
     private IRpcClientProperties properties;
+    /**
+     * 当前连接的服务地址，主机地址:端口号
+     */
+    private String address;
+    /**
+     * 监控指标
+     */
+    private IRpcClientMetrics metrics;
+
+    public IRpcConnection(IRpcClientProperties properties, Bootstrap bootstrap) {
+        this(properties, bootstrap, IRpcClientMetrics.NOOP);
+    }
 
-    public IRpcConnection(IRpcClientProperties properties) {
+    public IRpcConnection(IRpcClientProperties properties, Bootstrap bootstrap, IRpcClientMetrics metrics) {
         this.properties = properties;
+        this.bootstrap = bootstrap;
+        this.metrics = metrics;
+        this.serializer = IRpcSerializerFactory.getSerializer(properties.getSerializer());
     }
 
-    static {
+    /**
+     * 创建客户端启动对象模板 bootstrap ，不是 serverBootStrap
+     *
+     * @param group      I/O线程组，通道类型与线程组类型一致
+     * @param properties 属性配置
+     * @return
+     */
+    public static Bootstrap createBootstrap(EventLoopGroup group, IRpcClientProperties properties) {
+        Bootstrap bootstrap = new Bootstrap();
         //设置线程组
-        BOOTSTRAP.group(GROUP);
-        //初始化通道
-        BOOTSTRAP.channel(NioSocketChannel.class)
+        bootstrap.group(group);
+        //初始化通道，epoll线程组使用EpollSocketChannel，否则使用NioSocketChannel
+        bootstrap.channel(IRpcTransport.from(group).socketChannelClass())
                 /**
                  * 是否启用心跳保活机制。在双方TCP套接字建立连接后（即都进入ESTABLISHED状态）并且在两个小时左右上层没有任何数据传输的情况下，
                  * 这套机制才会被激活
@@ -68,11 +92,21 @@ public class IRpcConnection extends AbstractConnection<Channel> {
                  * 2.TCP_NODELAY就是用于启用或关于Nagle算法。如果要求高实时性，有数据发送时就马上发送，就将该选项设置为true关闭Nagle算法；
                  * 如果要减少发送次数减少网络交互，就设置为false等累积一定大小后再发送。默认为false。
                  */
-                .option(ChannelOption.TCP_NODELAY, true);
+                .option(ChannelOption.TCP_NODELAY, true)
+                /**
+                 * The timeout period of the connection.
+                 * If this time is exceeded or the connection cannot be established, the connection fails.
+                 */
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, NumberUtils.toInt(String.valueOf(properties.getConnectTimeOut().toMillis())))
+                /**
+                 * 缓冲区分配器，请求序列化及响应解码均使用此分配器
+                 */
+                .option(ChannelOption.ALLOCATOR, properties.getTransport().getAllocator().create(properties.getTransport().isPreferDirect()));
+        return bootstrap;
     }
 
     /**
-     * 创建连接
+     * 创建连接，阻塞至连接建立成功或超时
      *
      * @param address 主机地址:端口号
      * @return
@@ -80,50 +114,9 @@ public class IRpcConnection extends AbstractConnection<Channel> {
     @Override
     public boolean connect(String address) {
         try {
-            clientChannelHandler = new IRpcClientChannelHandler(properties.getReadTimeOut());
-            BOOTSTRAP
-                    /**
-                     * The timeout period of the connection.
-                     * If this time is exceeded or the connection cannot be established, the connection fails.
-                     */
-                    .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, NumberUtils.toInt(String.valueOf(properties.getConnectTimeOut().toMillis())))
-                    //加入自己的处理器
-                    .handler(new ChannelInitializer<>() {
-                        @Override
-                        protected void initChannel(Channel ch) throws Exception {
-                            ChannelPipeline pipeline = ch.pipeline();
-                            //空闲状态处理器，参数说明：读时间空闲时间，0禁用时间|写事件空闲时间，0则禁用|读或写空闲时间，0则禁用
-                            pipeline.addLast(new IdleStateHandler(0, 0, properties.getIdleTimeOut().getSeconds(), TimeUnit.SECONDS));
-                            //分隔符解码器
-                            pipeline.addLast(new DelimiterBasedFrameDecoder(8192, Unpooled.copiedBuffer(IRpcTail.TAIL)));
-                            //自定义编码器
-                            pipeline.addLast(new IRpcEncoder());
-                            //自定义解码器
-                            pipeline.addLast(new IRpcDecoder());
-                            //自定义handler处理
-                            pipeline.addLast(clientChannelHandler);
-                        }
-                    });
-            //分割Rpc服务器地址
-            String[] addr = StringUtils.split(address, CharacterInfo.COLON_EN);
-            //连接服务器
-            ChannelFuture channelFuture = BOOTSTRAP.connect(addr[0], NumberUtils.toInt(addr[1])).sync();
-            channelFuture.addListener(listener -> {
-                if (listener.isSuccess()) {
-                    logger.info("connect success...");
-                } else {
-                    logger.info("RPC客户端重连接...");
-                }
-            });
-            //获取channel
-            Channel channel = channelFuture.channel();
-            //将通道赋值给连接对象
-            this.setConnection(channel);
+            connectAsync(address).sync();
             //判定通道是否可用
-            if (this.isAvailable()) {
-                return true;
-            }
-            return false;
+            return this.isAvailable();
         } catch (InterruptedException e) {
             logger.error(PrintExceptionInfo.printErrorInfo(e));
             throw new BasicException(AppHttpStatus.EXCEPTION.getStatus(), "创建连接失败");
@@ -131,13 +124,69 @@ public class IRpcConnection extends AbstractConnection<Channel> {
     }
 
     /**
-     * Socket连接是否可用
+     * 异步创建连接，不阻塞调用线程，可同时发起多个连接
+     *
+     * @param address 主机地址:端口号
+     * @return 连接结果，成功时通道已连接且处理器已绑定通道，可以发送请求；channelActive事件可能稍后才在I/O线程中触发
+     */
+    public ChannelFuture connectAsync(String address) {
+        clientChannelHandler = new IRpcClientChannelHandler(properties.getReadTimeOut(), properties.getBatch());
+        //收发字节数按服务地址汇总
+        IRpcTrafficCounter trafficCounter = metrics.trafficCounter(address);
+        Bootstrap bootstrap = this.bootstrap.clone()
+                //加入自己的处理器
+                .handler(new ChannelInitializer<>() {
+                    @Override
+                    protected void initChannel(Channel ch) throws Exception {
+                        ChannelPipeline pipeline = ch.pipeline();
+                        //收发字节数统计，位于编解码器之前，统计的是实际收发的字节数
+                        if (trafficCounter != null) {
+                            pipeline.addLast(trafficCounter);
+                        }
+                        //空闲状态处理器，参数说明：读时间空闲时间，0禁用时间|写事件空闲时间，0则禁用|读或写空闲时间，0则禁用
+                        pipeline.addLast(new IdleStateHandler(0, 0, properties.getIdleTimeOut().getSeconds(), TimeUnit.SECONDS));
+                        //自定义编码器
+                        pipeline.addLast(new IRpcEncoder(properties.getCompression().getCompressor(), Math.toIntExact(properties.getCompression().getThreshold().toBytes())));
+                        //自定义解码器，按长度字段拆包
+                        pipeline.addLast(new IRpcDecoder(Math.toIntExact(properties.getMaxFrameSize().toBytes())));
+                        //自定义handler处理
+                        pipeline.addLast(clientChannelHandler);
+                    }
+                });
+        //分割Rpc服务器地址
+        String[] addr = StringUtils.split(address, CharacterInfo.COLON_EN);
+        //连接服务器，不等待连接完成
+        ChannelFuture channelFuture = bootstrap.connect(addr[0], NumberUtils.toInt(addr[1]));
+        //将通道赋值给连接对象
+        this.setConnection(channelFuture.channel());
+        this.address = address;
+        channelFuture.addListener(listener -> {
+            if (listener.isSuccess()) {
+                logger.info("connect success...{}", address);
+            } else {
+                logger.info("RPC客户端连接{}失败：{}", address, listener.cause() == null ? null : listener.cause().getMessage());
+            }
+        });
+        return channelFuture;
+    }
+
+    /**
+     * Socket连接是否可用，连接被多个请求共享，发送缓冲区积压是正常状态，不影响可用性
      *
      * @return
      */
     @Override
     public boolean isAvailable() {
-        return null != this.getConnection() && this.getConnection().isActive() && this.getConnection().isWritable();
+        return null != this.getConnection() && this.getConnection().isActive();
+    }
+
+    /**
+     * 发送缓冲区是否未超过高水位线
+     *
+     * @return
+     */
+    public boolean isWritable() {
+        return null != this.getConnection() && this.getConnection().isWritable();
     }
 
     /**
@@ -151,4 +200,12 @@ public class IRpcConnection extends AbstractConnection<Channel> {
     public IRpcClientChannelHandler getClientChannelHandler() {
         return clientChannelHandler;
     }
+
+    public IRpcSerializer getSerializer() {
+        return serializer;
+    }
+
+    public String getAddress() {
+        return address;
+    }
 }
@@ -1,26 +1,399 @@
 package com.emily.infrastructure.rpc.client.pool;
 
-import org.apache.commons.pool2.PooledObjectFactory;
-import org.apache.commons.pool2.impl.AbandonedConfig;
-import org.apache.commons.pool2.impl.GenericObjectPool;
-import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import com.emily.infrastructure.common.exception.PrintExceptionInfo;
+import com.emily.infrastructure.rpc.client.IRpcClientProperties;
+import com.emily.infrastructure.rpc.client.loadbalance.AddressStatus;
+import com.emily.infrastructure.rpc.client.loadbalance.LoadBalance;
+import com.emily.infrastructure.rpc.client.loadbalance.OutlierDetector;
+import com.emily.infrastructure.rpc.client.metrics.IRpcClientMetrics;
+import com.emily.infrastructure.rpc.client.registry.ServiceRegistry;
+import com.emily.infrastructure.rpc.client.registry.StaticServiceRegistry;
+import com.emily.infrastructure.rpc.core.message.IRpcRequest;
+import io.netty.channel.ChannelFuture;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPool;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPoolConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @program: spring-parent
- * @description: 自定义对象池
+ * @description: 自定义对象池，按服务地址分别池化连接，连续调用失败的地址摘除后清空其空闲连接；
+ * 连接在I/O线程中并行异步建立，启动时预热，运行时由后台线程补充；
+ * 服务地址列表由注册表提供，新增地址在后台建立连接，下线地址不再选择，在途请求完成后关闭其连接
  * @author: Emily
  * @create: 2021/09/28
  */
-public class IRpcObjectPool extends GenericObjectPool<IRpcConnection> {
-    public IRpcObjectPool(PooledObjectFactory<IRpcConnection> factory) {
-        super(factory);
+public class IRpcObjectPool extends GenericKeyedObjectPool<String, IRpcConnection> {
+
+    private static final Logger logger = LoggerFactory.getLogger(IRpcObjectPool.class);
+    /**
+     * 下线地址检查在途请求是否完成的间隔，单位：毫秒
+     */
+    private static final long DRAIN_CHECK_INTERVAL = 100;
+
+    private final IRpcClientProperties properties;
+    private final LoadBalance loadBalance;
+    private final OutlierDetector outlierDetector;
+    private final IRpcPooledObjectFactory factory;
+    /**
+     * 监控指标
+     */
+    private final IRpcClientMetrics metrics;
+    /**
+     * 各地址正在建立中的连接数，避免重复补充，key-服务地址
+     */
+    private final ConcurrentMap<String, AtomicInteger> pending = new ConcurrentHashMap<>();
+    /**
+     * 后台补充连接线程
+     */
+    private final ScheduledExecutorService replenisher;
+    /**
+     * 重试改投线程，借用连接可能阻塞或建立连接，不能在Netty事件循环线程中执行
+     */
+    private final ExecutorService retryExecutor;
+    /**
+     * 当前服务地址列表
+     */
+    private volatile List<String> addresses;
+
+    public IRpcObjectPool(IRpcPooledObjectFactory factory, GenericKeyedObjectPoolConfig<IRpcConnection> config,
+                          IRpcClientProperties properties, LoadBalance loadBalance) {
+        this(factory, config, properties, loadBalance, new StaticServiceRegistry(properties.getAddress()));
     }
 
-    public IRpcObjectPool(PooledObjectFactory<IRpcConnection> factory, GenericObjectPoolConfig<IRpcConnection> config) {
+    public IRpcObjectPool(IRpcPooledObjectFactory factory, GenericKeyedObjectPoolConfig<IRpcConnection> config,
+                          IRpcClientProperties properties, LoadBalance loadBalance, ServiceRegistry registry) {
         super(factory, config);
+        this.factory = factory;
+        this.properties = properties;
+        this.loadBalance = loadBalance;
+        this.outlierDetector = new OutlierDetector(properties.getOutlier());
+        this.addresses = registry.getAddresses();
+        this.metrics = factory.getMetrics();
+        this.metrics.bindPool(this);
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("rpc-pool-replenish-");
+        threadFactory.setDaemon(true);
+        this.replenisher = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        CustomizableThreadFactory retryThreadFactory = new CustomizableThreadFactory("rpc-retry-");
+        retryThreadFactory.setDaemon(true);
+        //重试次数有限，按需创建线程，空闲后回收
+        this.retryExecutor = Executors.newCachedThreadPool(retryThreadFactory);
+        long interval = properties.getPool().getReplenishInterval().toMillis();
+        if (interval > 0) {
+            replenisher.scheduleWithFixedDelay(this::replenishAll, interval, interval, TimeUnit.MILLISECONDS);
+        }
+        registry.subscribe(this::updateAddresses);
+        //订阅前地址列表已变化
+        updateAddresses(registry.getAddresses());
+    }
+
+    /**
+     * 服务地址列表变化，新增地址在后台建立连接，下线地址等待在途请求完成后关闭连接
+     *
+     * @param latest 最新的服务地址列表
+     */
+    public synchronized void updateAddresses(List<String> latest) {
+        Set<String> removed = new HashSet<>(addresses);
+        removed.removeAll(latest);
+        Set<String> added = new HashSet<>(latest);
+        added.removeAll(addresses);
+        //先切换地址列表，下线地址不再被选择
+        this.addresses = latest;
+        if (replenisher.isShutdown()) {
+            return;
+        }
+        for (String address : added) {
+            logger.info("Rpc服务地址{}上线，建立连接", address);
+            replenisher.execute(() -> replenish(address));
+        }
+        long deadline = System.nanoTime() + properties.getRegistry().getDrainTimeout().toNanos();
+        for (String address : removed) {
+            logger.info("Rpc服务地址{}下线，等待在途请求完成后关闭连接", address);
+            outlierDetector.remove(address);
+            replenisher.execute(() -> drain(address, deadline));
+        }
+    }
+
+    /**
+     * 关闭下线地址的连接，仍有在途请求或借出的连接时稍后再检查，超过截止时间直接关闭；期间重新上线则保留连接
+     *
+     * @param address  服务地址
+     * @param deadline 截止时间，System.nanoTime()
+     */
+    private void drain(String address, long deadline) {
+        if (addresses.contains(address)) {
+            return;
+        }
+        boolean busy = AddressStatus.get(address).getActive() > 0 || getNumActive(address) > 0;
+        if (busy && System.nanoTime() - deadline < 0 && !replenisher.isShutdown()) {
+            replenisher.schedule(() -> drain(address, deadline), DRAIN_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+            return;
+        }
+        pending.remove(address);
+        clear(address);
+        metrics.removeAddress(address);
+        AddressStatus.remove(address);
+        logger.info("Rpc服务地址{}的连接已关闭", address);
+    }
+
+    /**
+     * 预热连接池，为每个服务地址并行异步建立初始化连接，所有连接共同等待一次连接超时时间
+     *
+     * @param size    每个地址的连接数
+     * @param timeout 等待超时时间
+     * @return 成功建立的连接数
+     */
+    public int warmUp(int size, Duration timeout) {
+        if (size <= 0) {
+            return 0;
+        }
+        List<IRpcConnection> connections = new ArrayList<>();
+        List<ChannelFuture> futures = new ArrayList<>();
+        for (String address : addresses) {
+            for (int i = 0; i < size; i++) {
+                IRpcConnection connection = factory.newConnection();
+                futures.add(connection.connectAsync(address));
+                connections.add(connection);
+            }
+        }
+        long deadline = System.nanoTime() + timeout.toNanos();
+        int success = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            ChannelFuture future = futures.get(i);
+            IRpcConnection connection = connections.get(i);
+            //所有连接已同时发起，剩余等待时间逐个递减
+            future.awaitUninterruptibly(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            if (!future.isSuccess()) {
+                connection.close();
+                logger.warn("Rpc服务地址{}预热连接失败，由后台线程补充", connection.getAddress());
+            } else if (addPrepared(connection.getAddress(), connection)) {
+                success++;
+            }
+        }
+        logger.info("Rpc连接池预热完成，成功建立{}/{}个连接", success, futures.size());
+        return success;
+    }
+
+    /**
+     * 补充所有未摘除地址的连接
+     */
+    private void replenishAll() {
+        try {
+            for (String address : addresses) {
+                if (!outlierDetector.isEjected(address)) {
+                    replenish(address);
+                }
+            }
+        } catch (Exception ex) {
+            logger.error(PrintExceptionInfo.printErrorInfo(ex));
+        }
+    }
+
+    /**
+     * 异步补充地址的连接至初始化连接数，连接在I/O线程中建立，建立成功后由后台线程加入连接池
+     *
+     * @param address 服务地址
+     */
+    private void replenish(String address) {
+        AtomicInteger connecting = pending.computeIfAbsent(address, key -> new AtomicInteger(0));
+        int lack = Math.min(properties.getPool().getInitialSize(), getMaxTotalPerKey()) - getNumIdle(address) - getNumActive(address) - connecting.get();
+        for (int i = 0; i < lack; i++) {
+            connecting.incrementAndGet();
+            IRpcConnection connection = factory.newConnection();
+            connection.connectAsync(address).addListener(future -> {
+                if (future.isSuccess() && !replenisher.isShutdown()) {
+                    replenisher.execute(() -> {
+                        connecting.decrementAndGet();
+                        addPrepared(address, connection);
+                    });
+                } else {
+                    connecting.decrementAndGet();
+                    connection.close();
+                }
+            });
+        }
+    }
+
+    /**
+     * 将已建立的连接加入连接池
+     *
+     * @param address    服务地址
+     * @param connection 已建立的连接
+     * @return 是否加入成功，达到连接数上限或地址已下线等情况未被使用的连接直接关闭并返回false
+     */
+    private boolean addPrepared(String address, IRpcConnection connection) {
+        //建立连接期间地址已下线
+        if (!addresses.contains(address)) {
+            connection.close();
+            return false;
+        }
+        factory.offer(address, connection);
+        try {
+            addObject(address);
+        } catch (Exception ex) {
+            logger.error(PrintExceptionInfo.printErrorInfo(ex));
+        }
+        //未被使用的连接取回并关闭
+        IRpcConnection prepared = factory.poll(address);
+        if (prepared != null) {
+            prepared.close();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 获取摘除时间已结束的地址，获取成功后本次请求即为探测请求，其结果需以probe=true回调
+     *
+     * @return 探测地址，无则返回null
+     */
+    public String probeAddress() {
+        return outlierDetector.probe(addresses);
+    }
+
+    /**
+     * 选择本次请求的服务地址，在未摘除的地址中按负载均衡策略选择
+     *
+     * @param request 请求协议
+     * @return 服务地址
+     */
+    public String selectAddress(IRpcRequest request) {
+        return selectAddress(request, Collections.emptySet());
+    }
+
+    /**
+     * 选择本次请求的服务地址，重试时排除已拒绝请求的地址，无其它地址可选时不排除
+     *
+     * @param request  请求协议
+     * @param excluded 排除的服务地址
+     * @return 服务地址
+     */
+    public String selectAddress(IRpcRequest request, Set<String> excluded) {
+        List<String> available = outlierDetector.available(addresses);
+        if (!excluded.isEmpty()) {
+            List<String> others = new ArrayList<>(available);
+            others.removeAll(excluded);
+            if (!others.isEmpty()) {
+                available = others;
+            }
+        }
+        return loadBalance.selectServiceAddress(available, request);
+    }
+
+    /**
+     * 调用成功，摘除的地址探测成功恢复后在后台补充连接
+     *
+     * @param address 服务地址
+     * @param probe   是否为探测请求
+     */
+    public void onSuccess(String address, boolean probe) {
+        if (outlierDetector.onSuccess(address, probe)) {
+            replenisher.execute(() -> replenish(address));
+        }
+    }
+
+    /**
+     * 调用失败（超时、连接异常），地址被摘除时关闭其空闲连接
+     *
+     * @param address 服务地址
+     * @param probe   是否为探测请求
+     */
+    public void onFailure(String address, boolean probe) {
+        if (outlierDetector.onFailure(address, probe, addresses.size())) {
+            clear(address);
+        }
+    }
+
+    /**
+     * 调用被取消，未得到结果，探测请求释放探测资格
+     *
+     * @param address 服务地址
+     * @param probe   是否为探测请求
+     */
+    public void onCancel(String address, boolean probe) {
+        outlierDetector.onCancel(address, probe);
+    }
+
+    /**
+     * 借用服务地址的连接，记录等待耗时，用于判断调用耗时是否来自连接池不足；
+     * 发送缓冲区积压的连接优先换用其它空闲连接，均积压时仍使用第一个连接，请求由Netty缓冲后发送
+     *
+     * @param address 服务地址
+     * @return
+     * @throws Exception
+     */
+    @Override
+    public IRpcConnection borrowObject(String address) throws Exception {
+        long start = System.nanoTime();
+        //积压的连接
+        List<IRpcConnection> backlogged = null;
+        try {
+            IRpcConnection connection = super.borrowObject(address);
+            //最多尝试借用时的空闲连接数，不为换用连接新建连接
+            for (int idle = getNumIdle(address); !connection.isWritable() && idle > 0 && getNumIdle(address) > 0; idle--) {
+                if (backlogged == null) {
+                    backlogged = new ArrayList<>(2);
+                }
+                backlogged.add(connection);
+                connection = super.borrowObject(address);
+            }
+            if (backlogged != null && !connection.isWritable()) {
+                //均积压，使用第一个连接
+                backlogged.add(connection);
+                connection = backlogged.remove(0);
+            }
+            return connection;
+        } finally {
+            if (backlogged != null) {
+                for (IRpcConnection other : backlogged) {
+                    returnObject(address, other);
+                }
+            }
+            metrics.recordBorrow(address, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 获取当前服务地址列表
+     *
+     * @return
+     */
+    public List<String> getAddresses() {
+        return addresses;
+    }
+
+    /**
+     * 重试改投线程池，用于在非I/O线程中重新借用连接并发送
+     *
+     * @return
+     */
+    public ExecutorService getRetryExecutor() {
+        return retryExecutor;
+    }
+
+    public IRpcClientMetrics getMetrics() {
+        return metrics;
     }
 
-    public IRpcObjectPool(PooledObjectFactory<IRpcConnection> factory, GenericObjectPoolConfig<IRpcConnection> config, AbandonedConfig abandonedConfig) {
-        super(factory, config, abandonedConfig);
+    @Override
+    public void close() {
+        replenisher.shutdownNow();
+        retryExecutor.shutdownNow();
+        super.close();
     }
 }
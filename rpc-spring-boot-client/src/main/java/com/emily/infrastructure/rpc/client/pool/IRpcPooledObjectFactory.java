@@ -1,59 +1,99 @@
 package com.emily.infrastructure.rpc.client.pool;
 
 import com.emily.infrastructure.rpc.client.IRpcClientProperties;
-import com.emily.infrastructure.rpc.client.loadbalance.LoadBalance;
+import com.emily.infrastructure.rpc.client.metrics.IRpcClientMetrics;
+import com.emily.infrastructure.rpc.core.transport.IRpcEventLoopGroups;
+import com.emily.infrastructure.rpc.core.transport.IRpcTransport;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.EventLoopGroup;
+import org.apache.commons.pool2.KeyedPooledObjectFactory;
 import org.apache.commons.pool2.PooledObject;
-import org.apache.commons.pool2.PooledObjectFactory;
 import org.apache.commons.pool2.impl.DefaultPooledObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * @program: spring-parent
- * @description: 池化工厂类
+ * @description: 池化工厂类，连接固定建立在池的key对应的服务地址上，不可用时由对象池销毁，不再改连其它地址
  * @author: Emily
  * @create: 2021/09/28
  */
-public class IRpcPooledObjectFactory implements PooledObjectFactory<IRpcConnection> {
+public class IRpcPooledObjectFactory implements KeyedPooledObjectFactory<String, IRpcConnection> {
 
     private Logger logger = LoggerFactory.getLogger(IRpcPooledObjectFactory.class);
 
     private IRpcClientProperties properties;
-    private LoadBalance loadBalance;
+    /**
+     * I/O线程组，所有连接共用
+     */
+    private EventLoopGroup group;
+    /**
+     * 客户端启动对象模板
+     */
+    private Bootstrap bootstrap;
+    /**
+     * 预热或后台补充时已异步建立的连接，创建对象时优先使用，key-服务地址
+     */
+    private final ConcurrentMap<String, Queue<IRpcConnection>> prepared = new ConcurrentHashMap<>();
+    /**
+     * 监控指标
+     */
+    private final IRpcClientMetrics metrics;
+
+    public IRpcPooledObjectFactory(IRpcClientProperties properties) {
+        this(properties, IRpcClientMetrics.NOOP);
+    }
 
-    public IRpcPooledObjectFactory(IRpcClientProperties properties, LoadBalance loadBalance) {
+    public IRpcPooledObjectFactory(IRpcClientProperties properties, IRpcClientMetrics metrics) {
         this.properties = properties;
-        this.loadBalance = loadBalance;
+        this.metrics = metrics;
+        IRpcClientProperties.Transport transport = properties.getTransport();
+        //共享时与同一JVM内的Rpc服务端使用同一I/O线程组
+        if (transport.isShared()) {
+            this.group = IRpcEventLoopGroups.acquireShared(transport.getType(), transport.getIoThreads());
+        } else {
+            this.group = transport.getType().newEventLoopGroup(transport.getIoThreads(), "rpc-client-io");
+        }
+        this.bootstrap = IRpcConnection.createBootstrap(group, properties);
+        logger.info("Rpc客户端传输类型：{}", IRpcTransport.from(group));
     }
 
     /**
      * 创建可由对象池服务的实例，并将其包装到PooledObject对象交由池管理
      *
+     * @param address 服务地址
      * @return
      * @throws Exception
      */
     @Override
-    public PooledObject<IRpcConnection> makeObject() throws Exception {
-        logger.info("创建对象...");
-        //获取RPC服务器地址
-        String address = loadBalance.selectServiceAddress(properties.getAddress());
-        //RPC连接对象
-        IRpcConnection connection = new IRpcConnection(properties);
-        //建立Rpc连接
-        connection.connect(address);
+    public PooledObject<IRpcConnection> makeObject(String address) throws Exception {
+        logger.info("创建对象...{}", address);
+        //优先使用已异步建立的连接
+        IRpcConnection connection = poll(address);
+        if (connection == null) {
+            //RPC连接对象
+            connection = newConnection();
+            //建立Rpc连接
+            connection.connect(address);
+        }
         return new DefaultPooledObject<>(connection);
     }
 
     /**
      * 销毁对象
      *
+     * @param address      服务地址
      * @param pooledObject
      * @throws Exception
      */
     @Override
-    public void destroyObject(PooledObject<IRpcConnection> pooledObject) throws Exception {
+    public void destroyObject(String address, PooledObject<IRpcConnection> pooledObject) throws Exception {
         logger.info("销毁对象...");
         IRpcConnection connection = pooledObject.getObject();
         if (Objects.nonNull(connection)) {
@@ -64,51 +104,97 @@ public class IRpcPooledObjectFactory implements PooledObjectFactory<IRpcConnecti
     /**
      * 激活对象
      *
+     * @param address      服务地址
      * @param pooledObject
      * @throws Exception
      */
     @Override
-    public void activateObject(PooledObject<IRpcConnection> pooledObject) throws Exception {
+    public void activateObject(String address, PooledObject<IRpcConnection> pooledObject) throws Exception {
         logger.info("激活对象...");
-        IRpcConnection connection = pooledObject.getObject();
-        if (!connection.isAvailable()) {
-            //获取RPC服务器地址
-            String address = loadBalance.selectServiceAddress(properties.getAddress());
-            //建立Rpc连接
-            connection.connect(address);
-        }
     }
 
     /**
      * 钝化(初始化|归还)一个对象，也可以理解为反初始化
      *
+     * @param address      服务地址
      * @param pooledObject
      * @throws Exception
      */
     @Override
-    public void passivateObject(PooledObject<IRpcConnection> pooledObject) throws Exception {
+    public void passivateObject(String address, PooledObject<IRpcConnection> pooledObject) throws Exception {
         logger.info("钝化对象...");
     }
 
     /**
      * 验证对象是否可用
      *
+     * @param address      服务地址
      * @param pooledObject
-     * @return
+     * @return 不可用时返回false，由对象池销毁
      */
     @Override
-    public boolean validateObject(PooledObject<IRpcConnection> pooledObject) {
+    public boolean validateObject(String address, PooledObject<IRpcConnection> pooledObject) {
         IRpcConnection connection = pooledObject.getObject();
-        if (!connection.isAvailable()) {
-            //连接不可用，关闭连接
-            connection.close();
-            //获取RPC服务器地址
-            String address = loadBalance.selectServiceAddress(properties.getAddress());
-            //重新连接
-            connection.connect(address);
-        }
         logger.info("验证对象是否可用:{}", connection.isAvailable());
         return connection.isAvailable();
     }
 
+    /**
+     * 创建未连接的RPC连接对象
+     *
+     * @return
+     */
+    public IRpcConnection newConnection() {
+        return new IRpcConnection(properties, bootstrap, metrics);
+    }
+
+    /**
+     * 放入已建立的连接，供下次创建对象时使用
+     *
+     * @param address    服务地址
+     * @param connection 已建立的连接
+     */
+    public void offer(String address, IRpcConnection connection) {
+        prepared.computeIfAbsent(address, key -> new ConcurrentLinkedQueue<>()).offer(connection);
+    }
+
+    /**
+     * 取出一个已建立且可用的连接，不可用的连接直接关闭
+     *
+     * @param address 服务地址
+     * @return 无可用连接时返回null
+     */
+    public IRpcConnection poll(String address) {
+        Queue<IRpcConnection> queue = prepared.get(address);
+        if (queue == null) {
+            return null;
+        }
+        IRpcConnection connection;
+        while ((connection = queue.poll()) != null) {
+            if (connection.isAvailable()) {
+                return connection;
+            }
+            connection.close();
+        }
+        return null;
+    }
+
+    public Bootstrap getBootstrap() {
+        return bootstrap;
+    }
+
+    public IRpcClientMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 关闭I/O线程组，共享线程组由最后一个使用者关闭
+     */
+    public void close() {
+        if (properties.getTransport().isShared()) {
+            IRpcEventLoopGroups.releaseShared(group);
+        } else {
+            group.shutdownGracefully();
+        }
+    }
 }
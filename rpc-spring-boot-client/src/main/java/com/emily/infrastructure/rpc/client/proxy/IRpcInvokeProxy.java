@@ -3,20 +3,52 @@ package com.emily.infrastructure.rpc.client.proxy;
 import com.emily.infrastructure.common.enums.AppHttpStatus;
 import com.emily.infrastructure.common.exception.BasicException;
 import com.emily.infrastructure.common.exception.PrintExceptionInfo;
-import com.emily.infrastructure.common.utils.json.JSONUtils;
+import com.emily.infrastructure.core.context.holder.ContextHolder;
+import com.emily.infrastructure.core.context.holder.TraceSpan;
 import com.emily.infrastructure.core.context.ioc.IOCContext;
+import com.emily.infrastructure.rpc.client.IRpcClientProperties;
+import com.emily.infrastructure.rpc.client.cache.IRpcResponseCache;
+import com.emily.infrastructure.rpc.client.handler.IRpcClientChannelHandler;
+import com.emily.infrastructure.rpc.client.loadbalance.AddressStatus;
 import com.emily.infrastructure.rpc.client.logger.RecordLogger;
 import com.emily.infrastructure.rpc.client.pool.IRpcConnection;
 import com.emily.infrastructure.rpc.client.pool.IRpcObjectPool;
+import com.emily.infrastructure.rpc.client.stream.IRpcClientStream;
+import com.emily.infrastructure.rpc.core.annotation.IRpcCacheable;
+import com.emily.infrastructure.rpc.core.context.IRpcDeadline;
 import com.emily.infrastructure.rpc.core.message.IRpcMessage;
 import com.emily.infrastructure.rpc.core.message.IRpcRequest;
 import com.emily.infrastructure.rpc.core.message.IRpcResponse;
+import com.emily.infrastructure.rpc.core.serializer.IRpcSerializer;
+import com.emily.infrastructure.rpc.core.serializer.IRpcSerializerFactory;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.util.ClassUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * @program: spring-parent
@@ -27,7 +59,14 @@ import java.lang.reflect.Proxy;
 public class IRpcInvokeProxy {
 
     private static final Logger logger = LoggerFactory.getLogger(IRpcInvokeProxy.class);
-
+    /**
+     * 是否引入了reactor依赖，引入后接口方法可以声明Mono返回值类型
+     */
+    private static final boolean REACTOR_PRESENT = ClassUtils.isPresent("reactor.core.publisher.Mono", IRpcInvokeProxy.class.getClassLoader());
+    /**
+     * 是否引入了caffeine依赖，引入后标注IRpcCacheable的方法缓存响应结果
+     */
+    private static final boolean CAFFEINE_PRESENT = ClassUtils.isPresent("com.github.benmanes.caffeine.cache.Caffeine", IRpcInvokeProxy.class.getClassLoader());
 
     /**
      * 获取一个动态代理对象
@@ -56,48 +95,359 @@ public class IRpcInvokeProxy {
 
         @Override
         public Object invoke(Object proxy, Method method, Object[] args) {
-            //开始时间
-            long startTime = System.currentTimeMillis();
             //组装传输类的属性值
             IRpcRequest request = IRpcRequest.build(className, method.getName(), method.getParameterTypes(), args);
+            //返回值类型
+            Class<?> returnType = method.getReturnType();
+            //异步调用，立即返回Future，在Netty事件循环线程中完成
+            if (CompletableFuture.class.equals(returnType) || CompletionStage.class.equals(returnType)) {
+                return invokeAsync(method, request, resolveGenericType(method));
+            }
+            //响应式调用，订阅时才发送请求
+            if (REACTOR_PRESENT && ReactorAdapter.isMono(returnType)) {
+                return ReactorAdapter.toMono(() -> invokeAsync(method, request, resolveGenericType(method)));
+            }
+            //流式调用，服务端分批发送数据块，调用方边读取边授予信用
+            if (Iterator.class.equals(returnType)) {
+                return invokeStream(request, resolveGenericType(method));
+            }
+            if (Stream.class.equals(returnType)) {
+                return toStream(invokeStream(request, resolveGenericType(method)));
+            }
+            if (REACTOR_PRESENT && ReactorAdapter.isFlux(returnType)) {
+                return ReactorAdapter.toFlux(() -> toStream(invokeStream(request, resolveGenericType(method))));
+            }
+            //开始计时，同步调用期间在当前线程中开始的区间作为其子区间
+            TraceSpan span = ContextHolder.startSpan(ContextHolder.Stage.RPC, getSpanName(request));
             //响应结果
             IRpcResponse rpcResponse = null;
             try {
-                //运行线程，发送数据
-                rpcResponse = invokeTargetMethod(IRpcMessage.build(JSONUtils.toByteArray(request)));
+                //运行线程，发送数据，响应数据直接反序列化为方法的返回值类型
+                rpcResponse = IRpcClientChannelHandler.await(send(method, request, method.getGenericReturnType()));
                 //判定返回结果是否为null
-                return JSONUtils.parseObject(rpcResponse.getData(), method.getReturnType());
+                return getData(rpcResponse);
             } catch (Exception ex) {
                 //异常信息
                 rpcResponse = IRpcResponse.buildResponse(AppHttpStatus.ERROR.getStatus(), AppHttpStatus.ERROR.getMessage(), PrintExceptionInfo.printErrorInfo(ex));
                 throw ex;
             } finally {
-                RecordLogger.recordResponse(request, rpcResponse, startTime);
+                record(request, rpcResponse, span);
+            }
+        }
+
+        /**
+         * 异步调用服务，响应结果到达后记录日志并获取响应数据
+         *
+         * @param method    接口方法
+         * @param request   请求协议
+         * @param valueType Future中的数据类型
+         * @return
+         */
+        private CompletableFuture<Object> invokeAsync(Method method, IRpcRequest request, Type valueType) {
+            //异步调用在Netty事件循环线程中结束，不设为当前线程的当前区间
+            TraceSpan span = ContextHolder.startAsyncSpan(ContextHolder.Stage.RPC, getSpanName(request));
+            CompletableFuture<IRpcResponse<Object>> future;
+            try {
+                future = send(method, request, valueType);
+            } catch (Exception ex) {
+                future = CompletableFuture.failedFuture(ex);
+            }
+            return future.whenComplete((rpcResponse, cause) -> {
+                if (cause != null) {
+                    rpcResponse = IRpcResponse.buildResponse(AppHttpStatus.ERROR.getStatus(), AppHttpStatus.ERROR.getMessage(), PrintExceptionInfo.printErrorInfo(cause));
+                }
+                record(request, rpcResponse, span);
+            }).thenApply(this::getData);
+        }
+
+        /**
+         * 流式调用，连接支持多路复用，请求发出后立即归还连接；流结束时记录日志，连接异常计入服务地址的连续失败次数
+         *
+         * @param request     请求协议
+         * @param elementType 元素类型
+         * @return 按到达顺序读取元素的迭代器，提前结束读取时需关闭
+         */
+        private IRpcClientStream invokeStream(IRpcRequest request, Type elementType) {
+            IRpcClientProperties properties = IOCContext.getBean(IRpcClientProperties.class);
+            int window = Math.max(properties.getStreaming().getWindow(), 1);
+            request.setWindow(window);
+            request.setTimeout(IRpcDeadline.timeout(properties.getReadTimeOut().toMillis()));
+            IRpcObjectPool pool = IOCContext.getBean(IRpcObjectPool.class);
+            //服务地址，优先放行摘除时间已结束的探测请求
+            String probeAddress = pool.probeAddress();
+            boolean probe = probeAddress != null;
+            String address = probe ? probeAddress : pool.selectAddress(request);
+            IRpcConnection connection = null;
+            //流结束时结束，不设为当前线程的当前区间
+            TraceSpan span = ContextHolder.startAsyncSpan(ContextHolder.Stage.RPC, getSpanName(request));
+            try {
+                connection = pool.borrowObject(address);
+                IRpcSerializer serializer = connection.getSerializer();
+                IRpcMessage message = IRpcMessage.build((byte) 0, serializer.getSerializerId(), 0L, serializeRequest(connection.getConnection().alloc(), serializer, request));
+                IRpcClientStream stream = new IRpcClientStream(connection.getClientChannelHandler(), elementType, window, properties.getReadTimeOut().toMillis());
+                stream.open(message).whenComplete((rpcResponse, cause) -> {
+                    if (cause == null) {
+                        pool.onSuccess(address, probe);
+                    } else if (cause instanceof CancellationException) {
+                        //调用方提前关闭流，探测请求未得到结果
+                        pool.onCancel(address, probe);
+                    } else {
+                        pool.onFailure(address, probe);
+                    }
+                    if (cause != null) {
+                        rpcResponse = IRpcResponse.buildResponse(AppHttpStatus.ERROR.getStatus(), AppHttpStatus.ERROR.getMessage(), PrintExceptionInfo.printErrorInfo(cause));
+                    }
+                    record(request, rpcResponse, span);
+                });
+                return stream;
+            } catch (Exception exception) {
+                logger.error(PrintExceptionInfo.printErrorInfo(exception));
+                //未能建立连接或发送失败
+                pool.onFailure(address, probe);
+                ContextHolder.endSpan(span);
+                throw new BasicException(AppHttpStatus.EXCEPTION.getStatus(), "Rpc调用异常");
+            } finally {
+                if (connection != null) {
+                    pool.returnObject(address, connection);
+                }
+            }
+        }
+
+        /**
+         * 记录请求响应日志及调用耗时指标
+         *
+         * @param request     请求协议
+         * @param rpcResponse 响应结果
+         * @param span        调用耗时区间
+         */
+        private void record(IRpcRequest request, IRpcResponse<?> rpcResponse, TraceSpan span) {
+            ContextHolder.endSpan(span);
+            RecordLogger.recordResponse(request, rpcResponse, span.getDurationMillis());
+            IOCContext.getBean(IRpcObjectPool.class).getMetrics().recordCall(request.getClassName(), request.getMethodName(), rpcResponse.getStatus(), span.getDurationNanos());
+        }
+
+        /**
+         * 耗时区间名称，类名.方法名
+         *
+         * @param request 请求协议
+         * @return
+         */
+        private String getSpanName(IRpcRequest request) {
+            return request.getClassName() + "." + request.getMethodName();
+        }
+
+        /**
+         * 将流式调用的迭代器包装为Stream，关闭Stream时通知服务端停止发送
+         *
+         * @param iterator 流式调用迭代器
+         * @return
+         */
+        private Stream<Object> toStream(IRpcClientStream iterator) {
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false).onClose(iterator::close);
+        }
+
+        /**
+         * 获取响应数据，服务端调用失败时抛出异常
+         *
+         * @param rpcResponse 响应结果
+         * @return
+         */
+        private Object getData(IRpcResponse<?> rpcResponse) {
+            if (rpcResponse.getStatus() != AppHttpStatus.OK.getStatus()) {
+                throw new BasicException(rpcResponse.getStatus(), String.valueOf(rpcResponse.getData()));
             }
+            return rpcResponse.getData();
         }
 
         /**
-         * 通过连接池发送
+         * 获取返回值泛型的实际类型，如：CompletableFuture<Result>中的Result
          *
-         * @param message
+         * @param method 方法
          * @return
          */
-        public IRpcResponse invokeTargetMethod(IRpcMessage message) {
+        private Type resolveGenericType(Method method) {
+            Type type = method.getGenericReturnType();
+            if (type instanceof ParameterizedType) {
+                return ((ParameterizedType) type).getActualTypeArguments()[0];
+            }
+            return Object.class;
+        }
+
+        /**
+         * 发送请求，标注IRpcCacheable的方法优先读取缓存的响应结果，相同参数的并发请求合并为一次调用
+         *
+         * @param method   接口方法
+         * @param request  请求协议
+         * @param dataType 响应数据类型
+         * @return 异步响应结果
+         */
+        private CompletableFuture<IRpcResponse<Object>> send(Method method, IRpcRequest request, Type dataType) {
+            IRpcCacheable cacheable = CAFFEINE_PRESENT ? method.getAnnotation(IRpcCacheable.class) : null;
+            if (cacheable == null) {
+                return invokeTargetMethod(request, dataType);
+            }
+            IRpcSerializer serializer = IRpcSerializerFactory.getSerializer(IOCContext.getBean(IRpcClientProperties.class).getSerializer());
+            return IRpcResponseCache.get(method, cacheable, request, serializer, key -> invokeTargetMethod(key, dataType));
+        }
+
+        /**
+         * 通过连接池发送，连接支持多路复用，请求发出后立即归还连接，由其它线程继续复用该连接发送请求；
+         * 先选择服务地址再从该地址的连接池借用连接，调用超时或连接异常计入该地址的连续失败次数
+         *
+         * @param request  请求协议
+         * @param dataType 响应数据类型
+         * @return 异步响应结果
+         */
+        public CompletableFuture<IRpcResponse<Object>> invokeTargetMethod(IRpcRequest request, Type dataType) {
+            IRpcClientProperties properties = IOCContext.getBean(IRpcClientProperties.class);
+            //本地读取超时时间与上游调用的剩余时间取较小值，作为本次调用（含重试）的截止时间
+            long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(IRpcDeadline.timeout(properties.getReadTimeOut().toMillis()));
+            return invokeTargetMethod(request, dataType, properties.getOverloadRetries(), new HashSet<>(), deadlineNanos);
+        }
+
+        /**
+         * 发送请求，服务端过载或繁忙拒绝请求时改投其它服务节点，请求未被执行因此可以安全重试
+         *
+         * @param request       请求协议
+         * @param dataType      响应数据类型
+         * @param retries       剩余重试次数
+         * @param excluded      已拒绝请求的服务地址
+         * @param deadlineNanos 截止时间，System.nanoTime()
+         * @return 异步响应结果
+         */
+        private CompletableFuture<IRpcResponse<Object>> invokeTargetMethod(IRpcRequest request, Type dataType, int retries, Set<String> excluded, long deadlineNanos) {
+            //剩余超时时间随请求传递给服务端，已超时则不再发送
+            long timeout = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+            if (timeout <= 0) {
+                return CompletableFuture.failedFuture(new TimeoutException());
+            }
+            request.setTimeout(timeout);
             //运行线程，发送数据
             IRpcObjectPool pool = IOCContext.getBean(IRpcObjectPool.class);
+            //服务地址，重试时不发起探测，优先放行摘除时间已结束的探测请求
+            String probeAddress = excluded.isEmpty() ? pool.probeAddress() : null;
+            boolean probe = probeAddress != null;
+            String address = probe ? probeAddress : pool.selectAddress(request, excluded);
             //Channel对象
             IRpcConnection connection = null;
             try {
-                connection = pool.borrowObject();
-                return connection.getClientChannelHandler().send(message);
+                connection = pool.borrowObject(address);
+                //按连接配置的序列化器将请求直接序列化到通道分配器分配的缓冲区中
+                IRpcSerializer serializer = connection.getSerializer();
+                IRpcMessage message = IRpcMessage.build((byte) 0, serializer.getSerializerId(), 0L, serializeRequest(connection.getConnection().alloc(), serializer, request));
+                //记录服务地址的在途请求数及响应耗时，供负载均衡策略选择地址
+                AddressStatus status = AddressStatus.get(address);
+                status.begin();
+                long start = System.nanoTime();
+                //服务端以请求使用的序列化器响应，响应到达后在Netty事件循环线程中直接从输入缓冲区反序列化
+                return connection.getClientChannelHandler().sendAsync(message, timeout)
+                        .whenComplete((response, cause) -> {
+                            status.end(System.nanoTime() - start);
+                            if (cause == null) {
+                                pool.onSuccess(address, probe);
+                            } else if (cause instanceof CancellationException) {
+                                pool.onCancel(address, probe);
+                            } else {
+                                pool.onFailure(address, probe);
+                            }
+                        })
+                        .thenApply(response -> deserializeResponse(response, dataType))
+                        .thenCompose(rpcResponse -> {
+                            if (retries > 0 && isRetryable(rpcResponse)) {
+                                logger.warn("Rpc服务地址{}拒绝请求：{}，改投其它服务节点", address, rpcResponse.getStatus());
+                                excluded.add(address);
+                                //响应在Netty事件循环线程中完成，改投需借用连接，可能阻塞或建立连接，交给重试线程执行
+                                return CompletableFuture.supplyAsync(() -> invokeTargetMethod(request, dataType, retries - 1, excluded, deadlineNanos), pool.getRetryExecutor())
+                                        .thenCompose(Function.identity());
+                            }
+                            return CompletableFuture.completedFuture(rpcResponse);
+                        });
             } catch (Exception exception) {
                 logger.error(PrintExceptionInfo.printErrorInfo(exception));
+                //未能建立连接或发送失败
+                pool.onFailure(address, probe);
                 throw new BasicException(AppHttpStatus.EXCEPTION.getStatus(), "Rpc调用异常");
             } finally {
                 if (connection != null) {
-                    pool.returnObject(connection);
+                    pool.returnObject(address, connection);
                 }
             }
         }
+
+        /**
+         * 服务端因过载或业务线程池已满拒绝的请求未被执行，可以重试
+         *
+         * @param rpcResponse 响应结果
+         * @return
+         */
+        private boolean isRetryable(IRpcResponse<?> rpcResponse) {
+            return rpcResponse.getStatus() == AppHttpStatus.SERVER_OVERLOAD_EXCEPTION.getStatus()
+                    || rpcResponse.getStatus() == AppHttpStatus.SERVER_REJECTED_EXCEPTION.getStatus();
+        }
+
+        /**
+         * 序列化请求，失败时释放已分配的缓冲区
+         *
+         * @param allocator  缓冲区分配器
+         * @param serializer 序列化器
+         * @param request    请求协议
+         * @return
+         */
+        private ByteBuf serializeRequest(ByteBufAllocator allocator, IRpcSerializer serializer, IRpcRequest request) {
+            ByteBuf body = allocator.ioBuffer();
+            try {
+                serializer.serializeRequest(request, body);
+                return body;
+            } catch (RuntimeException ex) {
+                body.release();
+                throw ex;
+            }
+        }
+
+        /**
+         * 反序列化响应，记录消息体字节数供响应缓存计算大小，完成后释放响应消息
+         *
+         * @param response 响应消息
+         * @param dataType 响应数据类型
+         * @return
+         */
+        private IRpcResponse<Object> deserializeResponse(IRpcMessage response, Type dataType) {
+            try {
+                int bodySize = response.getBody().readableBytes();
+                IRpcResponse<Object> rpcResponse = IRpcSerializerFactory.getSerializer(response.getSerializerId()).deserializeResponse(response.getBody(), dataType);
+                rpcResponse.setBodySize(bodySize);
+                return rpcResponse;
+            } finally {
+                response.release();
+            }
+        }
+    }
+
+    /**
+     * reactor适配，单独成类避免未引入reactor依赖时加载Mono、Flux类
+     */
+    private static class ReactorAdapter {
+
+        static boolean isMono(Class<?> returnType) {
+            return Mono.class.equals(returnType);
+        }
+
+        static Mono<Object> toMono(Supplier<CompletableFuture<Object>> supplier) {
+            return Mono.fromFuture(supplier);
+        }
+
+        static boolean isFlux(Class<?> returnType) {
+            return Flux.class.equals(returnType);
+        }
+
+        /**
+         * 订阅时发送请求，读取数据块会阻塞等待，在弹性线程池中读取；取消订阅或读取完成时关闭Stream
+         *
+         * @param supplier 流式调用
+         * @return
+         */
+        static Flux<Object> toFlux(Supplier<Stream<?>> supplier) {
+            return Flux.<Object>fromStream(supplier::get).subscribeOn(Schedulers.boundedElastic());
+        }
     }
 }
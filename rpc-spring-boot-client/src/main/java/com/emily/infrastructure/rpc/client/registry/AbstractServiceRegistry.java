@@ -0,0 +1,66 @@
+package com.emily.infrastructure.rpc.client.registry;
+
+import com.emily.infrastructure.common.exception.PrintExceptionInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * @program: spring-parent
+ * @description: 服务地址注册表基类，保存当前地址列表，地址列表变化时通知订阅者；
+ * 新的地址列表为空时保留原地址列表，避免地址来源短暂异常（如文件正在写入）时清空所有地址
+ * @author: Emily
+ * @create: 2022/04/26
+ */
+public abstract class AbstractServiceRegistry implements ServiceRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(AbstractServiceRegistry.class);
+    /**
+     * 当前地址列表
+     */
+    private volatile List<String> addresses = Collections.emptyList();
+    /**
+     * 订阅者
+     */
+    private final List<Consumer<List<String>>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public List<String> getAddresses() {
+        return addresses;
+    }
+
+    @Override
+    public void subscribe(Consumer<List<String>> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 更新地址列表，去重后与当前地址列表不同时通知订阅者
+     *
+     * @param latest 最新的地址列表
+     */
+    protected synchronized void update(List<String> latest) {
+        List<String> distinct = List.copyOf(new LinkedHashSet<>(latest));
+        if (distinct.isEmpty() && !addresses.isEmpty()) {
+            logger.warn("Rpc服务地址列表为空，保留原地址列表：{}", addresses);
+            return;
+        }
+        if (distinct.equals(addresses)) {
+            return;
+        }
+        logger.info("Rpc服务地址列表变化：{} -> {}", addresses, distinct);
+        addresses = distinct;
+        for (Consumer<List<String>> listener : listeners) {
+            try {
+                listener.accept(distinct);
+            } catch (Exception ex) {
+                logger.error(PrintExceptionInfo.printErrorInfo(ex));
+            }
+        }
+    }
+}
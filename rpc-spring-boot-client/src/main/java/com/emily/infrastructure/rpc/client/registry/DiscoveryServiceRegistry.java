@@ -0,0 +1,81 @@
+package com.emily.infrastructure.rpc.client.registry;
+
+import com.emily.infrastructure.common.constant.CharacterInfo;
+import com.emily.infrastructure.common.enums.AppHttpStatus;
+import com.emily.infrastructure.common.exception.BasicException;
+import com.emily.infrastructure.common.exception.PrintExceptionInfo;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @program: spring-parent
+ * @description: 基于Spring Cloud服务发现的注册表，按刷新间隔查询Rpc服务端的健康实例；
+ * Rpc端口号优先取实例元数据中的配置，服务端同时提供HTTP服务时HTTP端口号与Rpc端口号不同
+ * @author: Emily
+ * @create: 2022/04/26
+ */
+public class DiscoveryServiceRegistry extends AbstractServiceRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiscoveryServiceRegistry.class);
+
+    private final DiscoveryClient discoveryClient;
+    /**
+     * Rpc服务端的服务名
+     */
+    private final String serviceId;
+    /**
+     * 实例元数据中Rpc端口号的键名
+     */
+    private final String portMetadata;
+    /**
+     * 刷新线程
+     */
+    private final ScheduledExecutorService refresher;
+
+    public DiscoveryServiceRegistry(DiscoveryClient discoveryClient, String serviceId, String portMetadata, Duration refreshInterval) {
+        if (StringUtils.isEmpty(serviceId)) {
+            throw new BasicException(AppHttpStatus.EXCEPTION.getStatus(), "Rpc服务发现的服务名未配置");
+        }
+        this.discoveryClient = discoveryClient;
+        this.serviceId = serviceId;
+        this.portMetadata = portMetadata;
+        refresh();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("rpc-registry-discovery-");
+        threadFactory.setDaemon(true);
+        this.refresher = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        long interval = refreshInterval.toMillis();
+        refresher.scheduleWithFixedDelay(this::refresh, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 查询服务实例并更新地址列表，查询失败时保留原地址列表
+     */
+    private void refresh() {
+        try {
+            List<String> addresses = new ArrayList<>();
+            for (ServiceInstance instance : discoveryClient.getInstances(serviceId)) {
+                String port = instance.getMetadata() == null ? null : instance.getMetadata().get(portMetadata);
+                addresses.add(instance.getHost() + CharacterInfo.COLON_EN + (StringUtils.isEmpty(port) ? String.valueOf(instance.getPort()) : port));
+            }
+            update(addresses);
+        } catch (Exception ex) {
+            logger.error("Rpc服务{}实例查询失败：{}", serviceId, PrintExceptionInfo.printErrorInfo(ex));
+        }
+    }
+
+    @Override
+    public void close() {
+        refresher.shutdownNow();
+    }
+}
@@ -0,0 +1,123 @@
+package com.emily.infrastructure.rpc.client.registry;
+
+import com.emily.infrastructure.common.enums.AppHttpStatus;
+import com.emily.infrastructure.common.exception.BasicException;
+import com.emily.infrastructure.common.exception.PrintExceptionInfo;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @program: spring-parent
+ * @description: 地址文件注册表，文件每行一个地址（主机地址:端口号），#开头为注释；
+ * 监听文件所在目录，文件被修改或替换（如编辑器保存、配置下发时重命名覆盖）后重新加载
+ * @author: Emily
+ * @create: 2022/04/26
+ */
+public class FileServiceRegistry extends AbstractServiceRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileServiceRegistry.class);
+    /**
+     * 地址文件
+     */
+    private final Path file;
+    /**
+     * 目录监听服务
+     */
+    private final WatchService watchService;
+    /**
+     * 监听线程
+     */
+    private final Thread watcher;
+
+    public FileServiceRegistry(Path file) {
+        if (file == null) {
+            throw new BasicException(AppHttpStatus.EXCEPTION.getStatus(), "Rpc服务地址文件未配置");
+        }
+        this.file = file.toAbsolutePath();
+        update(load());
+        try {
+            this.watchService = this.file.getFileSystem().newWatchService();
+            this.file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException ex) {
+            throw new BasicException(AppHttpStatus.IO_EXCEPTION.getStatus(), "Rpc服务地址文件监听失败：" + ex.getMessage());
+        }
+        this.watcher = new Thread(this::watch, "rpc-registry-file-watcher");
+        this.watcher.setDaemon(true);
+        this.watcher.start();
+    }
+
+    /**
+     * 监听文件变化，目录中其它文件的变化忽略
+     */
+    private void watch() {
+        while (!Thread.currentThread().isInterrupted()) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException ex) {
+                return;
+            }
+            boolean changed = false;
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context())) {
+                    changed = true;
+                }
+            }
+            if (changed) {
+                update(load());
+            }
+            if (!key.reset()) {
+                logger.warn("Rpc服务地址文件所在目录已不可访问，停止监听：{}", file);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 读取地址文件
+     *
+     * @return 地址列表，文件不存在或读取失败时为空
+     */
+    private List<String> load() {
+        try {
+            List<String> addresses = new ArrayList<>();
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String address = StringUtils.trim(line);
+                if (StringUtils.isNotEmpty(address) && !address.startsWith("#")) {
+                    addresses.add(address);
+                }
+            }
+            return addresses;
+        } catch (NoSuchFileException ex) {
+            logger.warn("Rpc服务地址文件不存在：{}", file);
+        } catch (IOException ex) {
+            logger.error("Rpc服务地址文件读取失败：{}", PrintExceptionInfo.printErrorInfo(ex));
+        }
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void close() {
+        watcher.interrupt();
+        try {
+            watchService.close();
+        } catch (IOException ex) {
+            logger.error(PrintExceptionInfo.printErrorInfo(ex));
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.emily.infrastructure.rpc.client.registry;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * @program: spring-parent
+ * @description: 服务地址注册表，提供Rpc服务端的当前地址列表，地址列表变化时通知订阅者
+ * @author: Emily
+ * @create: 2022/04/26
+ */
+public interface ServiceRegistry extends AutoCloseable {
+    /**
+     * 获取当前服务地址列表
+     *
+     * @return 服务地址列表（主机地址:端口号），不可修改
+     */
+    List<String> getAddresses();
+
+    /**
+     * 订阅地址列表变化，地址列表变化时以新的地址列表回调
+     *
+     * @param listener 订阅者
+     */
+    void subscribe(Consumer<List<String>> listener);
+
+    /**
+     * 停止刷新地址列表
+     */
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,22 @@
+package com.emily.infrastructure.rpc.client.registry;
+
+/**
+ * @program: spring-parent
+ * @description: 内置服务地址来源
+ * @author: Emily
+ * @create: 2022/04/26
+ */
+public enum ServiceRegistryType {
+    /**
+     * address属性配置的固定地址
+     */
+    STATIC,
+    /**
+     * 地址文件，文件变化时重新加载
+     */
+    FILE,
+    /**
+     * Spring Cloud服务发现
+     */
+    DISCOVERY
+}
@@ -0,0 +1,16 @@
+package com.emily.infrastructure.rpc.client.registry;
+
+import java.util.List;
+
+/**
+ * @program: spring-parent
+ * @description: 固定地址列表，地址来自address属性配置，运行期间不变化
+ * @author: Emily
+ * @create: 2022/04/26
+ */
+public class StaticServiceRegistry extends AbstractServiceRegistry {
+
+    public StaticServiceRegistry(List<String> addresses) {
+        update(addresses);
+    }
+}
@@ -0,0 +1,217 @@
+package com.emily.infrastructure.rpc.client.stream;
+
+import com.emily.infrastructure.common.enums.AppHttpStatus;
+import com.emily.infrastructure.common.exception.BasicException;
+import com.emily.infrastructure.common.exception.PrintExceptionInfo;
+import com.emily.infrastructure.rpc.client.handler.IRpcClientChannelHandler;
+import com.emily.infrastructure.rpc.core.message.IRpcMessage;
+import com.emily.infrastructure.rpc.core.message.IRpcResponse;
+import com.emily.infrastructure.rpc.core.serializer.IRpcSerializerFactory;
+import org.springframework.core.ResolvableType;
+
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @program: spring-parent
+ * @description: 客户端流式响应，数据块到达后在I/O线程中反序列化为元素列表放入队列，调用方按迭代器逐个读取元素；
+ * 每消费一个数据块计一个信用，累计达到信用窗口的一半时授予服务端，队列中缓存的数据块数不超过信用窗口；
+ * 等待数据块超过读取超时时间或提前关闭时通知服务端停止发送
+ * @author: Emily
+ * @create: 2022/04/23
+ */
+public class IRpcClientStream implements Iterator<Object>, AutoCloseable {
+    /**
+     * 流结束标记
+     */
+    private static final Object END = new Object();
+    /**
+     * 已到达尚未消费的数据块、异常或结束标记
+     */
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private final IRpcClientChannelHandler handler;
+    /**
+     * 数据块的数据类型，即元素列表类型
+     */
+    private final Type chunkType;
+    /**
+     * 信用窗口
+     */
+    private final int window;
+    /**
+     * 等待下一个数据块的超时时间，单位：毫秒
+     */
+    private final long timeout;
+    /**
+     * 流式调用请求消息，发送后分配请求唯一标识
+     */
+    private IRpcMessage message;
+    /**
+     * 流结束时的响应消息
+     */
+    private CompletableFuture<IRpcMessage> future;
+    /**
+     * 当前正在读取的数据块
+     */
+    private Iterator<?> current = Collections.emptyIterator();
+    /**
+     * 已消费尚未授予服务端的信用数
+     */
+    private int consumed;
+    /**
+     * 是否已读取完成或已关闭
+     */
+    private boolean finished;
+
+    /**
+     * @param handler     客户端处理器
+     * @param elementType 元素类型
+     * @param window      信用窗口
+     * @param timeout     等待下一个数据块的超时时间，单位：毫秒
+     */
+    public IRpcClientStream(IRpcClientChannelHandler handler, Type elementType, int window, long timeout) {
+        this.handler = handler;
+        this.chunkType = ResolvableType.forClassWithGenerics(List.class, ResolvableType.forType(elementType)).getType();
+        this.window = window;
+        this.timeout = timeout;
+    }
+
+    /**
+     * 发送流式调用请求
+     *
+     * @param message 请求消息
+     * @return 流结束时的响应结果，服务端以单个结果响应时数据为元素列表
+     */
+    public CompletableFuture<IRpcResponse<Object>> open(IRpcMessage message) {
+        this.message = message;
+        this.future = handler.sendStream(message, this::onChunk);
+        CompletableFuture<IRpcResponse<Object>> end = future.thenApply(this::deserialize);
+        end.whenComplete((rpcResponse, cause) -> {
+            if (cause != null) {
+                queue.offer(cause instanceof CompletionException ? cause.getCause() : cause);
+            } else if (rpcResponse.getStatus() != AppHttpStatus.OK.getStatus()) {
+                queue.offer(new BasicException(rpcResponse.getStatus(), String.valueOf(rpcResponse.getData())));
+            } else {
+                //服务方法未返回流式结果时，结果随结束响应一起到达
+                if (rpcResponse.getData() != null) {
+                    queue.offer(rpcResponse.getData());
+                }
+                queue.offer(END);
+            }
+        });
+        return end;
+    }
+
+    /**
+     * 数据块到达，在I/O线程中反序列化后释放
+     *
+     * @param chunk 数据块消息
+     */
+    private void onChunk(IRpcMessage chunk) {
+        try {
+            queue.offer(deserialize(chunk).getData());
+        } catch (RuntimeException ex) {
+            queue.offer(ex);
+        }
+    }
+
+    /**
+     * 反序列化数据块或结束响应，完成后释放消息
+     *
+     * @param response 响应消息
+     * @return
+     */
+    private IRpcResponse<Object> deserialize(IRpcMessage response) {
+        try {
+            return IRpcSerializerFactory.getSerializer(response.getSerializerId()).deserializeResponse(response.getBody(), chunkType);
+        } finally {
+            response.release();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (finished) {
+                return false;
+            }
+            Object item = take();
+            if (item == END) {
+                finished = true;
+                return false;
+            }
+            if (item instanceof Throwable) {
+                close();
+                if (item instanceof BasicException) {
+                    throw (BasicException) item;
+                }
+                throw new BasicException(AppHttpStatus.EXCEPTION.getStatus(), PrintExceptionInfo.printErrorInfo((Throwable) item));
+            }
+            current = ((List<?>) item).iterator();
+            credit();
+        }
+        return true;
+    }
+
+    @Override
+    public Object next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    /**
+     * 等待下一个数据块，超时则取消流式调用
+     *
+     * @return
+     */
+    private Object take() {
+        try {
+            Object item = queue.poll(timeout, TimeUnit.MILLISECONDS);
+            if (item == null) {
+                close();
+                throw new BasicException(AppHttpStatus.IO_EXCEPTION.getStatus(), "Rpc流式响应读取超时");
+            }
+            return item;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new BasicException(AppHttpStatus.EXCEPTION.getStatus(), PrintExceptionInfo.printErrorInfo(exception));
+        }
+    }
+
+    /**
+     * 消费一个数据块，累计达到信用窗口的一半时授予服务端，减少信用帧的数量
+     */
+    private void credit() {
+        if (++consumed >= Math.max(window / 2, 1)) {
+            handler.credit(message.getRequestId(), message.getSerializerId(), consumed);
+            consumed = 0;
+        }
+    }
+
+    /**
+     * 提前关闭时通知服务端停止发送，可重复调用
+     */
+    @Override
+    public void close() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        current = Collections.emptyIterator();
+        if (future != null) {
+            future.cancel(false);
+        }
+        queue.clear();
+    }
+}
@@ -0,0 +1,35 @@
+package com.emily.infrastructure.rpc.core.annotation;
+
+import java.lang.annotation.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Description: 标注在Rpc服务接口的幂等查询方法上，客户端按类名、方法及序列化后的参数缓存调用成功的响应结果；
+ * 缓存的返回值为共享对象，调用方不可修改，需引入caffeine依赖
+ * @Author: Emily
+ * @create: 2022/4/22
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface IRpcCacheable {
+    /**
+     * 缓存有效时间，写入后开始计算
+     */
+    long ttl() default 60;
+
+    /**
+     * 缓存有效时间单位
+     */
+    TimeUnit unit() default TimeUnit.SECONDS;
+
+    /**
+     * 最大缓存条数，maxBytes大于0时不生效
+     */
+    long maxSize() default 1000;
+
+    /**
+     * 最大缓存字节数，按响应结果序列化后的大小计算，大于0时按大小淘汰
+     */
+    long maxBytes() default 0;
+}
@@ -0,0 +1,183 @@
+package com.emily.infrastructure.rpc.core.compress;
+
+import com.emily.infrastructure.common.enums.AppHttpStatus;
+import com.emily.infrastructure.common.exception.BasicException;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.handler.codec.compression.Snappy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * @program: spring-parent
+ * @description: Rpc消息体压缩算法，压缩与解压直接在ByteBuf之间流式进行，不经过中间字节数组；
+ * 标识写入消息头序列化器标识字节的高位，接收方按标识解压
+ * @author: Emily
+ * @create: 2022/04/21
+ */
+public enum IRpcCompressor {
+    /**
+     * 不压缩
+     */
+    NONE(0),
+    /**
+     * gzip，压缩率高，CPU开销较大
+     */
+    GZIP(1) {
+        @Override
+        protected void doCompress(ByteBuf in, ByteBuf out) throws IOException {
+            try (OutputStream gzip = new GZIPOutputStream(new ByteBufOutputStream(out), BUFFER_SIZE)) {
+                in.readBytes(gzip, in.readableBytes());
+            }
+        }
+
+        @Override
+        protected void doDecompress(ByteBuf in, ByteBuf out, int maxLength) throws IOException {
+            try (InputStream gzip = new GZIPInputStream(new ByteBufInputStream(in), BUFFER_SIZE)) {
+                while (out.writeBytes(gzip, BUFFER_SIZE) > 0) {
+                    checkLength(out, maxLength);
+                }
+            }
+        }
+    },
+    /**
+     * snappy，压缩率较低，速度快；按32KB分块压缩，每块前写入压缩后的长度
+     */
+    SNAPPY(2) {
+        @Override
+        protected void doCompress(ByteBuf in, ByteBuf out) {
+            Snappy snappy = new Snappy();
+            while (in.isReadable()) {
+                ByteBuf chunk = in.readSlice(Math.min(in.readableBytes(), SNAPPY_CHUNK_SIZE));
+                int lengthIndex = out.writerIndex();
+                out.writeInt(0);
+                snappy.encode(chunk, out, chunk.readableBytes());
+                out.setInt(lengthIndex, out.writerIndex() - lengthIndex - 4);
+                snappy.reset();
+            }
+        }
+
+        @Override
+        protected void doDecompress(ByteBuf in, ByteBuf out, int maxLength) {
+            Snappy snappy = new Snappy();
+            while (in.isReadable()) {
+                ByteBuf chunk = in.readSlice(in.readInt());
+                //每块以变长整数记录原始长度，解压前校验，避免分配过大的缓冲区
+                checkLength(out.readableBytes() + readPreamble(chunk.duplicate()), maxLength);
+                snappy.decode(chunk, out);
+                snappy.reset();
+            }
+        }
+    };
+
+    private static final int BUFFER_SIZE = 8192;
+    /**
+     * snappy分块大小，netty的snappy实现以short记录块内偏移，块不能超过32KB
+     */
+    private static final int SNAPPY_CHUNK_SIZE = 32768;
+
+    private final int id;
+
+    IRpcCompressor(int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * 压缩，不改变输入缓冲区的引用计数
+     *
+     * @param allocator 缓冲区分配器
+     * @param in        原始消息体
+     * @return 压缩后的消息体
+     */
+    public ByteBuf compress(ByteBufAllocator allocator, ByteBuf in) {
+        ByteBuf out = allocator.ioBuffer(in.readableBytes() / 2);
+        try {
+            doCompress(in.duplicate(), out);
+            return out;
+        } catch (Exception ex) {
+            out.release();
+            throw new BasicException(AppHttpStatus.EXCEPTION.getStatus(), "Rpc消息体压缩异常，" + ex);
+        }
+    }
+
+    /**
+     * 解压，不改变输入缓冲区的引用计数
+     *
+     * @param allocator 缓冲区分配器
+     * @param in        压缩后的消息体
+     * @param maxLength 解压后的最大长度
+     * @return 原始消息体
+     */
+    public ByteBuf decompress(ByteBufAllocator allocator, ByteBuf in, int maxLength) {
+        ByteBuf out = allocator.ioBuffer(in.readableBytes() * 2);
+        try {
+            doDecompress(in.duplicate(), out, maxLength);
+            return out;
+        } catch (Exception ex) {
+            out.release();
+            throw new BasicException(AppHttpStatus.EXCEPTION.getStatus(), "Rpc消息体解压异常，" + ex);
+        }
+    }
+
+    protected void doCompress(ByteBuf in, ByteBuf out) throws IOException {
+        out.writeBytes(in);
+    }
+
+    protected void doDecompress(ByteBuf in, ByteBuf out, int maxLength) throws IOException {
+        checkLength(in.readableBytes(), maxLength);
+        out.writeBytes(in);
+    }
+
+    /**
+     * 根据标识获取压缩算法
+     *
+     * @param id 压缩算法标识
+     * @return
+     */
+    public static IRpcCompressor of(int id) {
+        for (IRpcCompressor compressor : values()) {
+            if (compressor.id == id) {
+                return compressor;
+            }
+        }
+        throw new BasicException(AppHttpStatus.EXCEPTION.getStatus(), "不支持的Rpc压缩算法标识：" + id);
+    }
+
+    private static void checkLength(ByteBuf out, int maxLength) {
+        checkLength(out.readableBytes(), maxLength);
+    }
+
+    private static void checkLength(int length, int maxLength) {
+        if (length < 0 || length > maxLength) {
+            throw new BasicException(AppHttpStatus.EXCEPTION.getStatus(), "Rpc消息体解压后长度超过限制：" + maxLength);
+        }
+    }
+
+    /**
+     * 读取snappy压缩块开头的原始长度
+     *
+     * @param in 压缩块
+     * @return
+     */
+    private static int readPreamble(ByteBuf in) {
+        int length = 0;
+        for (int shift = 0; shift < 32 && in.isReadable(); shift += 7) {
+            int b = in.readUnsignedByte();
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,107 @@
+package com.emily.infrastructure.rpc.core.context;
+
+import com.alibaba.ttl.TransmittableThreadLocal;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @program: spring-parent
+ * @description: Rpc调用截止时间，服务端按请求携带的剩余超时时间创建并绑定到执行服务方法的线程，
+ * 服务代码可据此提前结束；服务内发起的下游Rpc调用以剩余时间作为超时时间继续传递
+ * @author: Emily
+ * @create: 2022/04/20
+ */
+public class IRpcDeadline {
+
+    private static final ThreadLocal<IRpcDeadline> CURRENT = new TransmittableThreadLocal<>();
+    /**
+     * 截止时间，System.nanoTime()
+     */
+    private final long deadlineNanos;
+    /**
+     * 调用方是否已取消请求
+     */
+    private volatile boolean cancelled;
+
+    private IRpcDeadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * 创建截止时间
+     *
+     * @param startNanos 开始时间，System.nanoTime()
+     * @param timeout    超时时间，单位：毫秒
+     * @return
+     */
+    public static IRpcDeadline of(long startNanos, long timeout) {
+        return new IRpcDeadline(startNanos + TimeUnit.MILLISECONDS.toNanos(timeout));
+    }
+
+    /**
+     * 当前线程正在执行的Rpc调用的截止时间
+     *
+     * @return 不在Rpc调用中或请求未携带超时时间时返回null
+     */
+    public static IRpcDeadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 绑定到当前线程
+     *
+     * @param deadline 截止时间
+     */
+    public static void set(IRpcDeadline deadline) {
+        CURRENT.set(deadline);
+    }
+
+    /**
+     * 解除当前线程绑定
+     */
+    public static void remove() {
+        CURRENT.remove();
+    }
+
+    /**
+     * 计算下游调用的超时时间，取本地超时时间与当前调用剩余时间的较小值
+     *
+     * @param timeout 本地超时时间，单位：毫秒
+     * @return 超时时间，单位：毫秒，小于等于0表示已超时
+     */
+    public static long timeout(long timeout) {
+        IRpcDeadline deadline = current();
+        if (deadline == null) {
+            return timeout;
+        }
+        return Math.min(timeout, deadline.remainingMillis());
+    }
+
+    /**
+     * 剩余时间，单位：毫秒
+     */
+    public long remainingMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+    }
+
+    /**
+     * 是否已超过截止时间或已被调用方取消，服务代码可据此放弃后续处理
+     */
+    public boolean isExpired() {
+        return cancelled || deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * 调用方是否已取消请求
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * 取消请求
+     */
+    public void cancel() {
+        this.cancelled = true;
+    }
+}
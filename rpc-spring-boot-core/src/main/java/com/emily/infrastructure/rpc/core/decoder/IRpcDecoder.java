@@ -1,36 +1,82 @@
 package com.emily.infrastructure.rpc.core.decoder;
 
+import com.emily.infrastructure.rpc.core.compress.IRpcCompressor;
 import com.emily.infrastructure.rpc.core.message.IRpcMessage;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.ByteToMessageDecoder;
-
-import java.util.List;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 
 /**
  * @program: spring-parent
- * @description:
+ * @description: Rpc解码器，按消息头中的消息体长度字段拆包，半包时等待后续数据到达，超过最大帧长度的消息直接拒绝
+ * 消息格式：包类型(1字节)|序列化器标识(1字节)|请求唯一标识(8字节)|消息体长度(4字节)|消息体
+ * 序列化器标识字节：低4位-序列化器标识，4~5位-消息体压缩算法标识，第6位-发送方可以解压压缩后的响应
  * @author: Emily
  * @create: 2021/09/23
  */
-public class IRpcDecoder extends ByteToMessageDecoder {
+public class IRpcDecoder extends LengthFieldBasedFrameDecoder {
+    /**
+     * 消息体长度字段的偏移量：包类型(1字节)+序列化器标识(1字节)+请求唯一标识(8字节)
+     */
+    public static final int LENGTH_FIELD_OFFSET = 10;
+    /**
+     * 消息体长度字段占用字节数
+     */
+    public static final int LENGTH_FIELD_LENGTH = 4;
+    /**
+     * 最大帧长度，同时作为解压后消息体的最大长度
+     */
+    private final int maxFrameLength;
+
+    /**
+     * @param maxFrameLength 最大帧长度（字节），包含消息头
+     */
+    public IRpcDecoder(int maxFrameLength) {
+        super(maxFrameLength, LENGTH_FIELD_OFFSET, LENGTH_FIELD_LENGTH, 0, 0);
+        this.maxFrameLength = maxFrameLength;
+    }
 
     @Override
-    protected void decode(ChannelHandlerContext ctx, ByteBuf byteBuf, List<Object> list) throws Exception {
-        //包类型，0-正常RPC请求，1-心跳包
-        byte packageType = byteBuf.readByte();
-        //读取消息长度
-        int length = byteBuf.readInt();
-        if (length == 0) {
-            return;
+    protected Object decode(ChannelHandlerContext ctx, ByteBuf in) throws Exception {
+        //获取一个完整的帧，数据不足时返回null
+        ByteBuf frame = (ByteBuf) super.decode(ctx, in);
+        if (frame == null) {
+            return null;
+        }
+        try {
+            //包类型，0-正常RPC请求，1-心跳包，2-取消请求，3-缓存失效通知，4-流式响应数据块，5-流式调用信用
+            byte packageType = frame.readByte();
+            //序列化器标识及压缩标识
+            byte flags = frame.readByte();
+            byte serializerId = (byte) (flags & IRpcMessage.SERIALIZER_MASK);
+            int compressorId = (flags & IRpcMessage.COMPRESSOR_MASK) >>> IRpcMessage.COMPRESSOR_SHIFT;
+            //请求唯一标识
+            long requestId = frame.readLong();
+            //读取消息长度
+            int length = frame.readInt();
+            if (length == 0) {
+                frame.release();
+                //取消请求只有消息头，其它空消息丢弃
+                return packageType == 2 ? IRpcMessage.build(packageType, serializerId, requestId, Unpooled.EMPTY_BUFFER) : null;
+            }
+            IRpcMessage message;
+            if (compressorId == 0) {
+                //帧的剩余部分即为消息体，不复制，帧的所有权转移给消息
+                message = IRpcMessage.build(packageType, serializerId, requestId, frame);
+            } else {
+                //解压到新的缓冲区，释放帧
+                ByteBuf body = IRpcCompressor.of(compressorId).decompress(ctx.alloc(), frame, maxFrameLength);
+                frame.release();
+                message = IRpcMessage.build(packageType, serializerId, requestId, body);
+            }
+            //对端是否可以解压压缩后的响应
+            message.setCompressible((flags & IRpcMessage.ACCEPT_COMPRESSED) != 0);
+            return message;
+        } catch (Exception e) {
+            //释放帧，帧是输入缓冲区的引用
+            frame.release();
+            throw e;
         }
-        //初始化存储数据字节数组
-        byte[] data = new byte[length];
-        //将字节流中的数据读入到字节数组
-        byteBuf.readBytes(data);
-        //添加消息体
-        list.add(IRpcMessage.build(packageType, data));
-        //重置readerIndex和writerIndex为0
-        byteBuf.clear();
     }
 }
@@ -1,31 +1,70 @@
 package com.emily.infrastructure.rpc.core.encoder;
 
+import com.emily.infrastructure.rpc.core.compress.IRpcCompressor;
+import com.emily.infrastructure.rpc.core.decoder.IRpcDecoder;
 import com.emily.infrastructure.rpc.core.message.IRpcMessage;
-import com.emily.infrastructure.rpc.core.message.IRpcTail;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.handler.codec.MessageToMessageEncoder;
+
+import java.util.List;
 
 /**
  * @program: spring-parent
- * @description: Rpc编码器 protobuf[https://github.com/protocolbuffers/protobuf/releases]
+ * @description: Rpc编码器，消息头单独写入一个小缓冲区，消息体直接随后写出，不复制到新的缓冲区；
+ * 开启压缩时超过阈值的消息体压缩后写出，压缩算法标识写入序列化器标识字节的高位
  * @author: Emily
  * @create: 2021/09/23
  */
-public class IRpcEncoder extends MessageToByteEncoder<IRpcMessage> {
+public class IRpcEncoder extends MessageToMessageEncoder<IRpcMessage> {
+    /**
+     * 消息头长度
+     */
+    private static final int HEADER_LENGTH = IRpcDecoder.LENGTH_FIELD_OFFSET + IRpcDecoder.LENGTH_FIELD_LENGTH;
+    /**
+     * 压缩算法
+     */
+    private final IRpcCompressor compressor;
+    /**
+     * 压缩阈值，消息体长度不小于此值时压缩，单位：字节
+     */
+    private final int threshold;
+
+    public IRpcEncoder() {
+        this(IRpcCompressor.NONE, Integer.MAX_VALUE);
+    }
+
+    public IRpcEncoder(IRpcCompressor compressor, int threshold) {
+        this.compressor = compressor;
+        this.threshold = threshold;
+    }
 
     @Override
-    protected void encode(ChannelHandlerContext ctx, IRpcMessage message, ByteBuf byteBuf) throws Exception {
-        if (message == null) {
-            return;
+    protected void encode(ChannelHandlerContext ctx, IRpcMessage message, List<Object> out) throws Exception {
+        ByteBuf body = message.getBody();
+        int flags = message.getSerializerId() & IRpcMessage.SERIALIZER_MASK;
+        //开启压缩即表示可以解压对端压缩后的消息
+        if (compressor != IRpcCompressor.NONE) {
+            flags |= IRpcMessage.ACCEPT_COMPRESSED;
+        }
+        //只压缩超过阈值的正常请求、响应及流式响应数据块，小消息压缩收益低于CPU开销
+        if (compressor != IRpcCompressor.NONE && (message.getPackageType() == 0 || message.getPackageType() == 4) && message.isCompressible() && body.readableBytes() >= threshold) {
+            body = compressor.compress(ctx.alloc(), body);
+            flags |= compressor.getId() << IRpcMessage.COMPRESSOR_SHIFT;
+        } else {
+            body.retain();
         }
+        ByteBuf header = ctx.alloc().ioBuffer(HEADER_LENGTH);
         //写入包类型
-        byteBuf.writeByte(message.getPackageType());
+        header.writeByte(message.getPackageType());
+        //写入序列化器标识及压缩标识
+        header.writeByte(flags);
+        //写入请求唯一标识
+        header.writeLong(message.getRequestId());
         //请求|响应体长度
-        byteBuf.writeInt(message.getLen());
-        //写入编码数据字节流
-        byteBuf.writeBytes(message.getBody());
-        //写入编码数据结束的行尾标识
-        byteBuf.writeBytes(IRpcTail.TAIL);
+        header.writeInt(body.readableBytes());
+        out.add(header);
+        //消息体，编码完成后父类会释放消息，原消息体需增加引用，压缩后的消息体为新分配的缓冲区
+        out.add(body);
     }
 }
@@ -1,34 +1,61 @@
 package com.emily.infrastructure.rpc.core.message;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.ReferenceCounted;
+
 /**
  * @program: spring-parent
- * @description: Rpc客户端及服务端交互消息
+ * @description: Rpc客户端及服务端交互消息，消息体为ByteBuf，引用计数委托给消息体，解码得到的消息体是输入缓冲区的切片，
+ * 使用完后需调用release释放
  * @author: Emily
  * @create: 2021/10/09
  */
-public class IRpcMessage {
+public class IRpcMessage implements ReferenceCounted {
+    /**
+     * 消息头序列化器标识字节中序列化器标识所占的位，高位用于压缩标识
+     */
+    public static final int SERIALIZER_MASK = 0x0F;
+    /**
+     * 消息体压缩算法标识所占的位，0-未压缩
+     */
+    public static final int COMPRESSOR_MASK = 0x30;
+    public static final int COMPRESSOR_SHIFT = 4;
+    /**
+     * 发送方可以解压压缩后的响应
+     */
+    public static final int ACCEPT_COMPRESSED = 0x40;
     /**
-     * 包类型，0-正常RPC请求，1-心跳包
+     * 包类型，0-正常RPC请求，1-心跳包，2-取消请求（请求唯一标识为被取消的请求，消息体为空），
+     * 3-服务端推送的缓存失效通知（消息体为UTF-8编码的类名或类名#方法名），
+     * 4-流式响应的数据块（消息体为数据为元素列表的响应结果，流结束时以0类型的响应结束），5-流式调用的信用（消息体为4字节的数据块数）
      */
     private byte packageType = (byte) 0;
     /**
-     * 消息体长度
+     * 序列化器标识，默认：0-json
+     */
+    private byte serializerId = (byte) 0;
+    /**
+     * 请求唯一标识，客户端按此标识将响应与等待中的请求对应起来，心跳包为0
      */
-    private int len;
+    private long requestId;
     /**
      * 消息
      */
-    private byte[] body;
+    private ByteBuf body = Unpooled.EMPTY_BUFFER;
+    /**
+     * 发送时表示消息体超过压缩阈值时是否可以压缩；解码得到的请求表示对端是否可以解压压缩后的响应
+     */
+    private boolean compressible = true;
 
     public IRpcMessage() {
     }
 
+    /**
+     * 消息体长度
+     */
     public int getLen() {
-        return len;
-    }
-
-    public void setLen(int len) {
-        this.len = len;
+        return body.readableBytes();
     }
 
     public byte getPackageType() {
@@ -39,25 +66,99 @@ public class IRpcMessage {
         this.packageType = packageType;
     }
 
-    public byte[] getBody() {
+    public byte getSerializerId() {
+        return serializerId;
+    }
+
+    public void setSerializerId(byte serializerId) {
+        this.serializerId = serializerId;
+    }
+
+    public long getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(long requestId) {
+        this.requestId = requestId;
+    }
+
+    public boolean isCompressible() {
+        return compressible;
+    }
+
+    public void setCompressible(boolean compressible) {
+        this.compressible = compressible;
+    }
+
+    public ByteBuf getBody() {
         return body;
     }
 
-    public void setBody(byte[] body) {
+    public void setBody(ByteBuf body) {
         this.body = body;
     }
 
+    @Override
+    public int refCnt() {
+        return body.refCnt();
+    }
+
+    @Override
+    public IRpcMessage retain() {
+        body.retain();
+        return this;
+    }
+
+    @Override
+    public IRpcMessage retain(int increment) {
+        body.retain(increment);
+        return this;
+    }
+
+    @Override
+    public IRpcMessage touch() {
+        body.touch();
+        return this;
+    }
+
+    @Override
+    public IRpcMessage touch(Object hint) {
+        body.touch(hint);
+        return this;
+    }
+
+    @Override
+    public boolean release() {
+        return body.release();
+    }
+
+    @Override
+    public boolean release(int decrement) {
+        return body.release(decrement);
+    }
+
     public static IRpcMessage build(byte[] body) {
         return build((byte) 0, body);
     }
 
     public static IRpcMessage build(byte packageType, byte[] body) {
+        return build(packageType, (byte) 0, 0L, body);
+    }
+
+    public static IRpcMessage build(byte packageType, byte serializerId, long requestId, byte[] body) {
+        //包装字节数组，不复制
+        return build(packageType, serializerId, requestId, Unpooled.wrappedBuffer(body));
+    }
+
+    public static IRpcMessage build(byte packageType, byte serializerId, long requestId, ByteBuf body) {
         IRpcMessage message = new IRpcMessage();
         //设置包类型为心跳包
         message.setPackageType(packageType);
-        //包长度
-        message.setLen(body.length);
-        //设置心跳包内容
+        //序列化器标识
+        message.setSerializerId(serializerId);
+        //请求唯一标识
+        message.setRequestId(requestId);
+        //设置消息体，消息体的所有权转移给消息
         message.setBody(body);
         return message;
     }
@@ -17,6 +17,14 @@ public class IRpcRequest implements Serializable {
      * 事务唯一标识, 36位
      */
     private String traceId;
+    /**
+     * 剩余超时时间，单位：毫秒，服务端超过此时间未执行的请求直接丢弃，0-不限制
+     */
+    private long timeout;
+    /**
+     * 流式调用时客户端授予的初始信用数，即服务端在收到更多信用前最多可发送的数据块数，0-非流式调用
+     */
+    private int window;
     /**
      * 类名
      */
@@ -46,6 +54,22 @@ public class IRpcRequest implements Serializable {
         this.traceId = traceId;
     }
 
+    public long getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    public void setWindow(int window) {
+        this.window = window;
+    }
+
     public String getClassName() {
         return className;
     }
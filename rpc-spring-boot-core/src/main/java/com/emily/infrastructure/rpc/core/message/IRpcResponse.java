@@ -2,6 +2,7 @@ package com.emily.infrastructure.rpc.core.message;
 
 import com.emily.infrastructure.common.enums.AppHttpStatus;
 import com.emily.infrastructure.core.context.holder.ContextHolder;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import java.io.Serializable;
 
@@ -28,6 +29,10 @@ public class IRpcResponse<T> implements Serializable {
      * 响应结果
      */
     private T data;
+    /**
+     * 响应消息体字节数，客户端反序列化时记录，不参与序列化
+     */
+    private transient int bodySize;
 
     public String getTraceId() {
         return traceId;
@@ -61,6 +66,16 @@ public class IRpcResponse<T> implements Serializable {
         this.data = data;
     }
 
+    @JsonIgnore
+    public int getBodySize() {
+        return bodySize;
+    }
+
+    @JsonIgnore
+    public void setBodySize(int bodySize) {
+        this.bodySize = bodySize;
+    }
+
 
     public static <T> IRpcResponse<T> buildResponse(T data) {
         return buildResponse(AppHttpStatus.OK.getStatus(), AppHttpStatus.OK.getMessage(), data);
@@ -0,0 +1,92 @@
+package com.emily.infrastructure.rpc.core.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @program: spring-parent
+ * @description: Rpc调用耗时指标，按服务接口、方法及响应状态码分别统计并输出直方图，客户端、服务端共用；需引入micrometer依赖
+ * @author: Emily
+ * @create: 2022/04/28
+ */
+public class IRpcCallTimers {
+
+    private final MeterRegistry registry;
+    /**
+     * 指标名称
+     */
+    private final String name;
+    /**
+     * 指标描述
+     */
+    private final String description;
+    /**
+     * 调用耗时指标
+     */
+    private final ConcurrentMap<CallKey, Timer> timers = new ConcurrentHashMap<>();
+
+    public IRpcCallTimers(MeterRegistry registry, String name, String description) {
+        this.registry = registry;
+        this.name = name;
+        this.description = description;
+    }
+
+    /**
+     * 记录一次调用耗时
+     *
+     * @param className    服务接口名称
+     * @param methodName   方法名称
+     * @param status       响应状态码
+     * @param elapsedNanos 耗时，单位：纳秒
+     */
+    public void record(String className, String methodName, int status, long elapsedNanos) {
+        //按服务接口、方法及响应状态码缓存，不在每次调用时构建并注册
+        CallKey callKey = new CallKey(className, methodName, status);
+        Timer timer = timers.get(callKey);
+        if (timer == null) {
+            timer = timers.computeIfAbsent(callKey, key -> Timer.builder(name)
+                    .description(description)
+                    .tags("service", className, "method", methodName, "status", String.valueOf(status))
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+        timer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 调用耗时指标的缓存键
+     */
+    private static final class CallKey {
+        private final String className;
+        private final String methodName;
+        private final int status;
+
+        CallKey(String className, String methodName, int status) {
+            this.className = className;
+            this.methodName = methodName;
+            this.status = status;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CallKey)) {
+                return false;
+            }
+            CallKey other = (CallKey) o;
+            return status == other.status && Objects.equals(className, other.className) && Objects.equals(methodName, other.methodName);
+        }
+
+        @Override
+        public int hashCode() {
+            return (Objects.hashCode(className) * 31 + Objects.hashCode(methodName)) * 31 + status;
+        }
+    }
+}
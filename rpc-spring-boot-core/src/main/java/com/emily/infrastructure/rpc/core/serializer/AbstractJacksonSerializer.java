@@ -0,0 +1,267 @@
+package com.emily.infrastructure.rpc.core.serializer;
+
+import com.emily.infrastructure.common.enums.AppHttpStatus;
+import com.emily.infrastructure.common.enums.DateFormat;
+import com.emily.infrastructure.common.exception.BasicException;
+import com.emily.infrastructure.rpc.core.message.IRpcRequest;
+import com.emily.infrastructure.rpc.core.message.IRpcResponse;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @program: spring-parent
+ * @description: 基于Jackson流式读写的序列化器，请求中参数类型先于参数写入，反序列化时每个参数直接按声明类型读取，
+ * 不再经过 对象->JSON字符串->对象 的二次转换；提供泛型参数类型解析器时按目标方法的泛型参数类型读取
+ * @author: Emily
+ * @create: 2022/04/12
+ */
+public abstract class AbstractJacksonSerializer implements IRpcSerializer {
+
+    private static final String TRACE_ID = "traceId";
+    private static final String TIMEOUT = "timeout";
+    private static final String WINDOW = "window";
+    private static final String CLASS_NAME = "className";
+    private static final String METHOD_NAME = "methodName";
+    private static final String TYPES = "types";
+    private static final String PARAMS = "params";
+    private static final String STATUS = "status";
+    private static final String MESSAGE = "message";
+    private static final String DATA = "data";
+
+    private final ObjectMapper objectMapper;
+    /**
+     * 参数类型对应的JavaType缓存，避免每次请求重新构建泛型类型
+     */
+    private final Map<Type, JavaType> javaTypes = new ConcurrentHashMap<>();
+
+    protected AbstractJacksonSerializer(JsonFactory jsonFactory) {
+        this.objectMapper = new ObjectMapper(jsonFactory);
+        //取消默认转换timestamps
+        objectMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+        //所有的日期格式都统一为以下的样式，即yyyy-MM-dd HH:mm:ss
+        objectMapper.setDateFormat(new SimpleDateFormat(DateFormat.YYYY_MM_DD_HH_MM_SS.getFormat()));
+        //忽略空Bean转json的错误
+        objectMapper.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
+        //同一个生成器中连续写入多个值，无需每次写入后flush
+        objectMapper.configure(SerializationFeature.FLUSH_AFTER_WRITE_VALUE, false);
+        //忽略，在json字符串中存在但是在java对象中不存在的属性
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        //序列化和反序列化java.Time时间对象
+        objectMapper.registerModule(new JavaTimeModule());
+    }
+
+    @Override
+    public void serializeRequest(IRpcRequest request, OutputStream out) {
+        try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeStringField(TRACE_ID, request.getTraceId());
+            generator.writeNumberField(TIMEOUT, request.getTimeout());
+            generator.writeNumberField(WINDOW, request.getWindow());
+            generator.writeStringField(CLASS_NAME, request.getClassName());
+            generator.writeStringField(METHOD_NAME, request.getMethodName());
+            //参数类型必须先于参数写入
+            generator.writeArrayFieldStart(TYPES);
+            if (request.getTypes() != null) {
+                for (Class<?> type : request.getTypes()) {
+                    generator.writeString(type.getName());
+                }
+            }
+            generator.writeEndArray();
+            generator.writeArrayFieldStart(PARAMS);
+            if (request.getParams() != null) {
+                for (Object param : request.getParams()) {
+                    objectMapper.writeValue(generator, param);
+                }
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new BasicException(AppHttpStatus.JSON_PARSE_EXCEPTION.getStatus(), "Rpc请求序列化异常，" + e);
+        }
+    }
+
+    @Override
+    public IRpcRequest deserializeRequest(InputStream in) {
+        return deserializeRequest(in, null);
+    }
+
+    @Override
+    public IRpcRequest deserializeRequest(InputStream in, IRpcParameterTypeResolver resolver) {
+        IRpcRequest request = new IRpcRequest();
+        try (JsonParser parser = objectMapper.createParser(in)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                parser.nextToken();
+                switch (fieldName) {
+                    case TRACE_ID:
+                        request.setTraceId(parser.getValueAsString());
+                        break;
+                    case TIMEOUT:
+                        request.setTimeout(parser.getValueAsLong());
+                        break;
+                    case WINDOW:
+                        request.setWindow(parser.getValueAsInt());
+                        break;
+                    case CLASS_NAME:
+                        request.setClassName(parser.getValueAsString());
+                        break;
+                    case METHOD_NAME:
+                        request.setMethodName(parser.getValueAsString());
+                        break;
+                    case TYPES:
+                        request.setTypes(readTypes(parser));
+                        break;
+                    case PARAMS:
+                        request.setParams(readParams(parser, request, resolver));
+                        break;
+                    default:
+                        parser.skipChildren();
+                        break;
+                }
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            throw new BasicException(AppHttpStatus.JSON_PARSE_EXCEPTION.getStatus(), "Rpc请求反序列化异常，" + e);
+        }
+        return request;
+    }
+
+    @Override
+    public void serializeResponse(IRpcResponse<?> response, OutputStream out) {
+        try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeStringField(TRACE_ID, response.getTraceId());
+            //状态码必须先于响应数据写入
+            generator.writeNumberField(STATUS, response.getStatus());
+            generator.writeStringField(MESSAGE, response.getMessage());
+            generator.writeFieldName(DATA);
+            objectMapper.writeValue(generator, response.getData());
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new BasicException(AppHttpStatus.JSON_PARSE_EXCEPTION.getStatus(), "Rpc响应序列化异常，" + e);
+        }
+    }
+
+    @Override
+    public IRpcResponse<Object> deserializeResponse(InputStream in, Type dataType) {
+        IRpcResponse<Object> response = new IRpcResponse<>();
+        try (JsonParser parser = objectMapper.createParser(in)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                parser.nextToken();
+                switch (fieldName) {
+                    case TRACE_ID:
+                        response.setTraceId(parser.getValueAsString());
+                        break;
+                    case STATUS:
+                        response.setStatus(parser.getIntValue());
+                        break;
+                    case MESSAGE:
+                        response.setMessage(parser.getValueAsString());
+                        break;
+                    case DATA:
+                        response.setData(readData(parser, response.getStatus(), dataType));
+                        break;
+                    default:
+                        parser.skipChildren();
+                        break;
+                }
+            }
+        } catch (IOException e) {
+            throw new BasicException(AppHttpStatus.JSON_PARSE_EXCEPTION.getStatus(), "Rpc响应反序列化异常，" + e);
+        }
+        return response;
+    }
+
+    /**
+     * 读取参数类型列表
+     */
+    private Class<?>[] readTypes(JsonParser parser) throws IOException, ClassNotFoundException {
+        List<Class<?>> types = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            types.add(ClassUtils.forName(parser.getValueAsString(), getClass().getClassLoader()));
+        }
+        return types.toArray(new Class<?>[0]);
+    }
+
+    /**
+     * 按目标方法的泛型参数类型逐个读取参数，无法解析时按请求中声明的参数类型读取
+     */
+    private Object[] readParams(JsonParser parser, IRpcRequest request, IRpcParameterTypeResolver resolver) throws IOException {
+        Class<?>[] types = request.getTypes();
+        if (types == null) {
+            throw new BasicException(AppHttpStatus.JSON_PARSE_EXCEPTION.getStatus(), "Rpc请求参数类型缺失");
+        }
+        Type[] genericTypes = resolver == null ? null : resolver.resolve(request.getClassName(), request.getMethodName(), types);
+        if (genericTypes == null || genericTypes.length != types.length) {
+            genericTypes = types;
+        }
+        Object[] params = new Object[types.length];
+        int index = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            //参数个数多于参数类型个数或消息被截断
+            if (token == null || index >= types.length) {
+                throw new BasicException(AppHttpStatus.JSON_PARSE_EXCEPTION.getStatus(), "Rpc请求参数个数与参数类型个数不一致，期望" + types.length + "个");
+            }
+            params[index] = objectMapper.readValue(parser, getJavaType(genericTypes[index]));
+            index++;
+        }
+        if (index != types.length) {
+            throw new BasicException(AppHttpStatus.JSON_PARSE_EXCEPTION.getStatus(), "Rpc请求参数个数与参数类型个数不一致，期望" + types.length + "个实际为" + index + "个");
+        }
+        return params;
+    }
+
+    /**
+     * 获取参数类型对应的JavaType
+     */
+    private JavaType getJavaType(Type type) {
+        JavaType javaType = javaTypes.get(type);
+        if (javaType == null) {
+            javaType = objectMapper.getTypeFactory().constructType(type);
+            javaTypes.putIfAbsent(type, javaType);
+        }
+        return javaType;
+    }
+
+    /**
+     * 读取响应数据，调用失败时响应数据为异常信息，按Object类型读取
+     */
+    private Object readData(JsonParser parser, int status, Type dataType) throws IOException {
+        if (status != AppHttpStatus.OK.getStatus()) {
+            return objectMapper.readValue(parser, Object.class);
+        }
+        JavaType javaType = objectMapper.getTypeFactory().constructType(dataType);
+        if (javaType.isTypeOrSubTypeOf(Void.class) || javaType.hasRawClass(void.class)) {
+            parser.skipChildren();
+            return null;
+        }
+        return objectMapper.readValue(parser, javaType);
+    }
+
+    private void expect(JsonToken actual, JsonToken expected) {
+        if (actual != expected) {
+            throw new BasicException(AppHttpStatus.JSON_PARSE_EXCEPTION.getStatus(), "Rpc消息格式错误，期望" + expected + "实际为" + actual);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.emily.infrastructure.rpc.core.serializer;
+
+import java.lang.reflect.Type;
+
+/**
+ * @program: spring-parent
+ * @description: 请求参数的泛型类型解析，反序列化请求时按目标方法的泛型参数类型读取参数，
+ * 如：List<Student>中的元素直接反序列化为Student，而不是LinkedHashMap
+ * @author: Emily
+ * @create: 2022/04/28
+ */
+@FunctionalInterface
+public interface IRpcParameterTypeResolver {
+    /**
+     * 获取目标方法的泛型参数类型
+     *
+     * @param className  接口名称
+     * @param methodName 方法名称
+     * @param types      请求中声明的参数类型
+     * @return 泛型参数类型，方法不存在时返回null，按请求中声明的参数类型读取
+     */
+    Type[] resolve(String className, String methodName, Class<?>[] types);
+}
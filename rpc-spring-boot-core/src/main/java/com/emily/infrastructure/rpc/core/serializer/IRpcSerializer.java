@@ -0,0 +1,178 @@
+package com.emily.infrastructure.rpc.core.serializer;
+
+import com.emily.infrastructure.rpc.core.message.IRpcRequest;
+import com.emily.infrastructure.rpc.core.message.IRpcResponse;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+
+/**
+ * @program: spring-parent
+ * @description: Rpc序列化器扩展点，序列化器标识写入消息头，服务端按请求消息头中的标识选择序列化器并以同一序列化器响应；
+ * 自定义实现可通过META-INF/services/com.emily.infrastructure.rpc.core.serializer.IRpcSerializer注册
+ * @author: Emily
+ * @create: 2022/04/12
+ */
+public interface IRpcSerializer {
+    /**
+     * 序列化器唯一标识，写入消息头
+     *
+     * @return
+     */
+    byte getSerializerId();
+
+    /**
+     * 序列化器名称，用于属性配置
+     *
+     * @return
+     */
+    String getName();
+
+    /**
+     * 序列化请求
+     *
+     * @param request 请求协议
+     * @param out     输出流
+     */
+    void serializeRequest(IRpcRequest request, OutputStream out);
+
+    /**
+     * 反序列化请求，参数直接按请求中声明的参数类型反序列化
+     *
+     * @param in 消息体输入流
+     * @return 请求协议
+     */
+    IRpcRequest deserializeRequest(InputStream in);
+
+    /**
+     * 反序列化请求，参数按目标方法的泛型参数类型反序列化，默认忽略解析器按请求中声明的参数类型反序列化
+     *
+     * @param in       消息体输入流
+     * @param resolver 泛型参数类型解析器
+     * @return 请求协议
+     */
+    default IRpcRequest deserializeRequest(InputStream in, IRpcParameterTypeResolver resolver) {
+        return deserializeRequest(in);
+    }
+
+    /**
+     * 序列化响应
+     *
+     * @param response 响应结果
+     * @param out      输出流
+     */
+    void serializeResponse(IRpcResponse<?> response, OutputStream out);
+
+    /**
+     * 反序列化响应，调用成功时响应数据直接按调用方声明的返回值类型反序列化
+     *
+     * @param in       消息体输入流
+     * @param dataType 响应数据类型
+     * @return 响应结果
+     */
+    IRpcResponse<Object> deserializeResponse(InputStream in, Type dataType);
+
+    /**
+     * 序列化请求并直接写入缓冲区
+     *
+     * @param request 请求协议
+     * @param out     缓冲区
+     */
+    default void serializeRequest(IRpcRequest request, ByteBuf out) {
+        serializeRequest(request, new ByteBufOutputStream(out));
+    }
+
+    /**
+     * 直接从缓冲区反序列化请求
+     *
+     * @param body 消息体
+     * @return 请求协议
+     */
+    default IRpcRequest deserializeRequest(ByteBuf body) {
+        return deserializeRequest(new ByteBufInputStream(body));
+    }
+
+    /**
+     * 直接从缓冲区反序列化请求，参数按目标方法的泛型参数类型反序列化
+     *
+     * @param body     消息体
+     * @param resolver 泛型参数类型解析器
+     * @return 请求协议
+     */
+    default IRpcRequest deserializeRequest(ByteBuf body, IRpcParameterTypeResolver resolver) {
+        return deserializeRequest(new ByteBufInputStream(body), resolver);
+    }
+
+    /**
+     * 序列化响应并直接写入缓冲区
+     *
+     * @param response 响应结果
+     * @param out      缓冲区
+     */
+    default void serializeResponse(IRpcResponse<?> response, ByteBuf out) {
+        serializeResponse(response, new ByteBufOutputStream(out));
+    }
+
+    /**
+     * 直接从缓冲区反序列化响应
+     *
+     * @param body     消息体
+     * @param dataType 响应数据类型
+     * @return 响应结果
+     */
+    default IRpcResponse<Object> deserializeResponse(ByteBuf body, Type dataType) {
+        return deserializeResponse(new ByteBufInputStream(body), dataType);
+    }
+
+    /**
+     * 序列化请求
+     *
+     * @param request 请求协议
+     * @return 字节数组
+     */
+    default byte[] serializeRequest(IRpcRequest request) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        serializeRequest(request, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * 反序列化请求
+     *
+     * @param body 消息体
+     * @return 请求协议
+     */
+    default IRpcRequest deserializeRequest(byte[] body) {
+        return deserializeRequest(new ByteArrayInputStream(body));
+    }
+
+    /**
+     * 序列化响应
+     *
+     * @param response 响应结果
+     * @return 字节数组
+     */
+    default byte[] serializeResponse(IRpcResponse<?> response) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        serializeResponse(response, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * 反序列化响应
+     *
+     * @param body     消息体
+     * @param dataType 响应数据类型
+     * @return 响应结果
+     */
+    default IRpcResponse<Object> deserializeResponse(byte[] body, Type dataType) {
+        return deserializeResponse(new ByteArrayInputStream(body), dataType);
+    }
+}
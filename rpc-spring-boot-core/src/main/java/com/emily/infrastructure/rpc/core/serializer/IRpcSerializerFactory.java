@@ -0,0 +1,69 @@
+package com.emily.infrastructure.rpc.core.serializer;
+
+import com.emily.infrastructure.common.enums.AppHttpStatus;
+import com.emily.infrastructure.common.exception.BasicException;
+
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @program: spring-parent
+ * @description: Rpc序列化器注册表，内置json、smile两种序列化器，并通过ServiceLoader加载自定义序列化器
+ * @author: Emily
+ * @create: 2022/04/12
+ */
+public class IRpcSerializerFactory {
+    /**
+     * 按序列化器标识注册
+     */
+    private static final Map<Byte, IRpcSerializer> SERIALIZER_ID_MAP = new ConcurrentHashMap<>();
+    /**
+     * 按序列化器名称注册
+     */
+    private static final Map<String, IRpcSerializer> SERIALIZER_NAME_MAP = new ConcurrentHashMap<>();
+
+    static {
+        register(new JsonSerializer());
+        register(new SmileSerializer());
+        ServiceLoader.load(IRpcSerializer.class).forEach(IRpcSerializerFactory::register);
+    }
+
+    /**
+     * 注册序列化器
+     *
+     * @param serializer 序列化器
+     */
+    public static void register(IRpcSerializer serializer) {
+        SERIALIZER_ID_MAP.put(serializer.getSerializerId(), serializer);
+        SERIALIZER_NAME_MAP.put(serializer.getName(), serializer);
+    }
+
+    /**
+     * 根据消息头中的序列化器标识获取序列化器
+     *
+     * @param serializerId 序列化器标识
+     * @return
+     */
+    public static IRpcSerializer getSerializer(byte serializerId) {
+        IRpcSerializer serializer = SERIALIZER_ID_MAP.get(serializerId);
+        if (serializer == null) {
+            throw new BasicException(AppHttpStatus.NOT_FOUND.getStatus(), "Rpc序列化器" + serializerId + "不存在");
+        }
+        return serializer;
+    }
+
+    /**
+     * 根据配置的序列化器名称获取序列化器
+     *
+     * @param name 序列化器名称
+     * @return
+     */
+    public static IRpcSerializer getSerializer(String name) {
+        IRpcSerializer serializer = SERIALIZER_NAME_MAP.get(name);
+        if (serializer == null) {
+            throw new BasicException(AppHttpStatus.NOT_FOUND.getStatus(), "Rpc序列化器" + name + "不存在");
+        }
+        return serializer;
+    }
+}
@@ -0,0 +1,34 @@
+package com.emily.infrastructure.rpc.core.serializer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+
+/**
+ * @program: spring-parent
+ * @description: JSON文本序列化器，便于抓包排查问题
+ * @author: Emily
+ * @create: 2022/04/12
+ */
+public class JsonSerializer extends AbstractJacksonSerializer {
+    /**
+     * 序列化器标识
+     */
+    public static final byte SERIALIZER_ID = 0;
+    /**
+     * 序列化器名称
+     */
+    public static final String NAME = "json";
+
+    public JsonSerializer() {
+        super(new JsonFactory());
+    }
+
+    @Override
+    public byte getSerializerId() {
+        return SERIALIZER_ID;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+}
@@ -0,0 +1,37 @@
+package com.emily.infrastructure.rpc.core.serializer;
+
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+
+/**
+ * @program: spring-parent
+ * @description: Smile二进制序列化器，数据模型与JSON一致，体积更小、编解码更快，重复的字段名及短字符串以引用方式写入
+ * @author: Emily
+ * @create: 2022/04/12
+ */
+public class SmileSerializer extends AbstractJacksonSerializer {
+    /**
+     * 序列化器标识
+     */
+    public static final byte SERIALIZER_ID = 1;
+    /**
+     * 序列化器名称
+     */
+    public static final String NAME = "smile";
+
+    public SmileSerializer() {
+        super(SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build());
+    }
+
+    @Override
+    public byte getSerializerId() {
+        return SERIALIZER_ID;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+}
@@ -0,0 +1,39 @@
+package com.emily.infrastructure.rpc.core.transport;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+
+/**
+ * @program: spring-parent
+ * @description: Rpc缓冲区分配器类型，消息体在解码、反序列化、序列化、编码过程中始终使用此分配器分配的缓冲区
+ * @author: Emily
+ * @create: 2022/04/16
+ */
+public enum IRpcAllocator {
+    /**
+     * 池化分配器，减少频繁分配缓冲区带来的GC压力
+     */
+    POOLED,
+    /**
+     * 非池化分配器
+     */
+    UNPOOLED;
+
+    /**
+     * 创建分配器
+     *
+     * @param preferDirect 是否优先使用堆外内存
+     * @return
+     */
+    public ByteBufAllocator create(boolean preferDirect) {
+        if (this == UNPOOLED) {
+            return new UnpooledByteBufAllocator(preferDirect);
+        }
+        //与netty默认配置一致时复用全局池，避免重复创建内存池
+        if (preferDirect == PooledByteBufAllocator.defaultPreferDirect()) {
+            return PooledByteBufAllocator.DEFAULT;
+        }
+        return new PooledByteBufAllocator(preferDirect);
+    }
+}
@@ -0,0 +1,54 @@
+package com.emily.infrastructure.rpc.core.transport;
+
+import io.netty.channel.EventLoopGroup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * @program: spring-parent
+ * @description: 同一JVM内Rpc客户端与服务端共享的I/O线程组，按引用计数管理，最后一个使用者释放时关闭
+ * @author: Emily
+ * @create: 2022/04/15
+ */
+public class IRpcEventLoopGroups {
+
+    private static final Logger logger = LoggerFactory.getLogger(IRpcEventLoopGroups.class);
+    /**
+     * 共享线程组
+     */
+    private static EventLoopGroup sharedGroup;
+    /**
+     * 引用计数
+     */
+    private static int refCount;
+
+    /**
+     * 获取共享线程组，首个使用者的传输类型及线程数生效
+     *
+     * @param transport 传输类型
+     * @param threads   线程数，0表示使用netty默认值
+     * @return
+     */
+    public static synchronized EventLoopGroup acquireShared(IRpcTransport transport, int threads) {
+        if (sharedGroup == null) {
+            sharedGroup = transport.newEventLoopGroup(threads, "rpc-io");
+        } else if (IRpcTransport.from(sharedGroup) != transport.resolve()) {
+            logger.warn("共享I/O线程组已使用{}传输创建，忽略配置的{}", IRpcTransport.from(sharedGroup), transport);
+        }
+        refCount++;
+        return sharedGroup;
+    }
+
+    /**
+     * 释放共享线程组，引用计数为0时关闭
+     *
+     * @param group 线程组
+     */
+    public static synchronized void releaseShared(EventLoopGroup group) {
+        if (group != sharedGroup || --refCount > 0) {
+            return;
+        }
+        sharedGroup.shutdownGracefully();
+        sharedGroup = null;
+    }
+}
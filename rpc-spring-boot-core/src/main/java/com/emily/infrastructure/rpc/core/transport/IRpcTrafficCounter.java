@@ -0,0 +1,59 @@
+package com.emily.infrastructure.rpc.core.transport;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @program: spring-parent
+ * @description: 通道收发字节数统计，需添加在管道的最前面，统计的是编码后写出及解码前读入的字节数；
+ * 可由多个通道共享，按服务地址或服务端汇总
+ * @author: Emily
+ * @create: 2022/04/25
+ */
+@ChannelHandler.Sharable
+public class IRpcTrafficCounter extends ChannelDuplexHandler {
+    /**
+     * 读入字节数
+     */
+    private final LongAdder bytesRead = new LongAdder();
+    /**
+     * 写出字节数
+     */
+    private final LongAdder bytesWritten = new LongAdder();
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        bytesRead.add(sizeOf(msg));
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        bytesWritten.add(sizeOf(msg));
+        ctx.write(msg, promise);
+    }
+
+    private static long sizeOf(Object msg) {
+        if (msg instanceof ByteBuf) {
+            return ((ByteBuf) msg).readableBytes();
+        }
+        if (msg instanceof ByteBufHolder) {
+            return ((ByteBufHolder) msg).content().readableBytes();
+        }
+        return 0;
+    }
+
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+}
@@ -0,0 +1,95 @@
+package com.emily.infrastructure.rpc.core.transport;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * @program: spring-parent
+ * @description: Rpc网络传输类型，epoll为Linux原生传输（默认边缘触发），不可用时回退为NIO
+ * @author: Emily
+ * @create: 2022/04/15
+ */
+public enum IRpcTransport {
+    /**
+     * 自动选择，Linux下epoll可用时使用epoll，否则使用NIO
+     */
+    AUTO,
+    /**
+     * Linux原生epoll
+     */
+    EPOLL,
+    /**
+     * JDK NIO
+     */
+    NIO;
+
+    private static final Logger logger = LoggerFactory.getLogger(IRpcTransport.class);
+
+    /**
+     * 解析实际使用的传输类型
+     *
+     * @return EPOLL或NIO
+     */
+    public IRpcTransport resolve() {
+        if (this == NIO) {
+            return NIO;
+        }
+        if (Epoll.isAvailable()) {
+            return EPOLL;
+        }
+        if (this == EPOLL) {
+            logger.warn("epoll不可用，Rpc传输回退为NIO：{}", Epoll.unavailabilityCause().getMessage());
+        }
+        return NIO;
+    }
+
+    /**
+     * 根据线程组获取传输类型，通道类型必须与线程组类型一致
+     *
+     * @param group 线程组
+     * @return
+     */
+    public static IRpcTransport from(EventLoopGroup group) {
+        return group instanceof EpollEventLoopGroup ? EPOLL : NIO;
+    }
+
+    /**
+     * 创建I/O线程组
+     *
+     * @param threads 线程数，0表示使用netty默认值（CPU核数*2）
+     * @param name    线程名称前缀
+     * @return
+     */
+    public EventLoopGroup newEventLoopGroup(int threads, String name) {
+        DefaultThreadFactory threadFactory = new DefaultThreadFactory(name);
+        if (resolve() == EPOLL) {
+            return new EpollEventLoopGroup(threads, threadFactory);
+        }
+        return new NioEventLoopGroup(threads, threadFactory);
+    }
+
+    /**
+     * 客户端通道类型
+     */
+    public Class<? extends SocketChannel> socketChannelClass() {
+        return resolve() == EPOLL ? EpollSocketChannel.class : NioSocketChannel.class;
+    }
+
+    /**
+     * 服务端通道类型
+     */
+    public Class<? extends ServerSocketChannel> serverSocketChannelClass() {
+        return resolve() == EPOLL ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+    }
+}
@@ -1,11 +1,17 @@
 package com.emily.infrastructure.rpc.server;
 
 import com.emily.infrastructure.rpc.server.connection.IRpcServerConnection;
+import com.emily.infrastructure.rpc.server.metrics.IRpcServerMetrics;
+import com.emily.infrastructure.rpc.server.metrics.MicrometerServerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
@@ -27,8 +33,23 @@ public class IRpcServerAutoConfiguration implements InitializingBean, Disposable
     private static final Logger logger = LoggerFactory.getLogger(IRpcServerAutoConfiguration.class);
 
     @Bean(initMethod = "startServer")
-    public IRpcServerConnection rpcServer(IRpcServerProperties properties) {
-        return new IRpcServerConnection(properties);
+    public IRpcServerConnection rpcServer(IRpcServerProperties properties, ObjectProvider<IRpcServerMetrics> metrics) {
+        return new IRpcServerConnection(properties, metrics.getIfAvailable(() -> IRpcServerMetrics.NOOP));
+    }
+
+    /**
+     * 引入micrometer依赖且存在MeterRegistry时输出监控指标，可通过actuator的metrics端点查看
+     */
+    @Configuration
+    @ConditionalOnClass(MeterRegistry.class)
+    static class MetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean(IRpcServerMetrics.class)
+        public IRpcServerMetrics rpcServerMetrics(ObjectProvider<MeterRegistry> registry) {
+            MeterRegistry meterRegistry = registry.getIfUnique();
+            return meterRegistry == null ? IRpcServerMetrics.NOOP : new MicrometerServerMetrics(meterRegistry);
+        }
     }
 
 
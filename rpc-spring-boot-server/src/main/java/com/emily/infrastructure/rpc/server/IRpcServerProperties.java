@@ -1,8 +1,14 @@
 package com.emily.infrastructure.rpc.server;
 
+import com.emily.infrastructure.rpc.core.compress.IRpcCompressor;
+import com.emily.infrastructure.rpc.core.transport.IRpcAllocator;
+import com.emily.infrastructure.rpc.core.transport.IRpcTransport;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 
 import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * @program: spring-parent
@@ -28,6 +34,30 @@ public class IRpcServerProperties {
      * 超过多长时间未发生读写就发送一次心跳包，默认：30秒
      */
     private Duration idleTimeOut = Duration.ofSeconds(30);
+    /**
+     * 单个消息帧（消息头+消息体）的最大长度，超过则拒绝，客户端与服务端需保持一致，默认：16MB
+     */
+    private DataSize maxFrameSize = DataSize.ofMegabytes(16);
+    /**
+     * 业务线程池配置，服务方法调用、序列化响应及记录日志均在业务线程池中执行，不占用I/O线程
+     */
+    private Executor executor = new Executor();
+    /**
+     * 并发限制配置，超过限制的请求立即拒绝
+     */
+    private Limiter limiter = new Limiter();
+    /**
+     * 网络传输配置
+     */
+    private Transport transport = new Transport();
+    /**
+     * 消息体压缩配置
+     */
+    private Compression compression = new Compression();
+    /**
+     * 流式响应配置
+     */
+    private Streaming streaming = new Streaming();
 
     public boolean isEnabled() {
         return enabled;
@@ -52,4 +82,382 @@ public class IRpcServerProperties {
     public void setIdleTimeOut(Duration idleTimeOut) {
         this.idleTimeOut = idleTimeOut;
     }
+
+    public DataSize getMaxFrameSize() {
+        return maxFrameSize;
+    }
+
+    public void setMaxFrameSize(DataSize maxFrameSize) {
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public Limiter getLimiter() {
+        return limiter;
+    }
+
+    public void setLimiter(Limiter limiter) {
+        this.limiter = limiter;
+    }
+
+    public Transport getTransport() {
+        return transport;
+    }
+
+    public void setTransport(Transport transport) {
+        this.transport = transport;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    public void setCompression(Compression compression) {
+        this.compression = compression;
+    }
+
+    public Streaming getStreaming() {
+        return streaming;
+    }
+
+    public void setStreaming(Streaming streaming) {
+        this.streaming = streaming;
+    }
+
+    /**
+     * 线程池配置
+     */
+    public static class Pool {
+        /**
+         * 核心线程数，默认：CPU核数*2
+         */
+        private int coreSize = Runtime.getRuntime().availableProcessors() * 2;
+        /**
+         * 最大线程数，默认：200
+         */
+        private int maxSize = 200;
+        /**
+         * 等待队列容量，队列已满且线程数达到最大值时拒绝请求，默认：1000
+         */
+        private int queueCapacity = 1000;
+        /**
+         * 非核心线程空闲存活时间，默认：60秒
+         */
+        private Duration keepAlive = Duration.ofSeconds(60);
+
+        public int getCoreSize() {
+            return coreSize;
+        }
+
+        public void setCoreSize(int coreSize) {
+            this.coreSize = coreSize;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public Duration getKeepAlive() {
+            return keepAlive;
+        }
+
+        public void setKeepAlive(Duration keepAlive) {
+            this.keepAlive = keepAlive;
+        }
+    }
+
+    /**
+     * 业务线程池配置，未单独配置的服务共享默认线程池
+     */
+    public static class Executor extends Pool {
+        /**
+         * 是否开启业务线程池，关闭后在I/O线程中直接调用服务方法，默认：true
+         */
+        private boolean enabled = true;
+        /**
+         * 服务独立线程池，key-服务接口名称，value-线程池配置，慢服务隔离后不会占满默认线程池
+         */
+        private Map<String, Pool> services = new HashMap<>();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Map<String, Pool> getServices() {
+            return services;
+        }
+
+        public void setServices(Map<String, Pool> services) {
+            this.services = services;
+        }
+    }
+
+    /**
+     * 并发限制配置
+     */
+    public static class Limit {
+        /**
+         * 是否根据响应耗时自适应调整并发限制，关闭后固定为最大并发数，默认：true
+         */
+        private boolean adaptive = true;
+        /**
+         * 初始并发限制，默认：100
+         */
+        private int initialLimit = 100;
+        /**
+         * 最小并发限制，默认：10
+         */
+        private int minLimit = 10;
+        /**
+         * 最大并发限制，默认：1000
+         */
+        private int maxLimit = 1000;
+        /**
+         * 耗时容忍倍数，短期平均耗时超过长期平均耗时的此倍数时开始降低并发限制，默认：1.5
+         */
+        private double tolerance = 1.5;
+        /**
+         * 并发限制调整的平滑系数，越大调整越快，默认：0.2
+         */
+        private double smoothing = 0.2;
+        /**
+         * 采样窗口，每个窗口结束时调整一次并发限制，默认：1秒
+         */
+        private Duration window = Duration.ofSeconds(1);
+
+        public boolean isAdaptive() {
+            return adaptive;
+        }
+
+        public void setAdaptive(boolean adaptive) {
+            this.adaptive = adaptive;
+        }
+
+        public int getInitialLimit() {
+            return initialLimit;
+        }
+
+        public void setInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+        }
+
+        public int getMinLimit() {
+            return minLimit;
+        }
+
+        public void setMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+        }
+
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        public void setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+        }
+
+        public double getTolerance() {
+            return tolerance;
+        }
+
+        public void setTolerance(double tolerance) {
+            this.tolerance = tolerance;
+        }
+
+        public double getSmoothing() {
+            return smoothing;
+        }
+
+        public void setSmoothing(double smoothing) {
+            this.smoothing = smoothing;
+        }
+
+        public Duration getWindow() {
+            return window;
+        }
+
+        public void setWindow(Duration window) {
+            this.window = window;
+        }
+    }
+
+    /**
+     * 并发限制，全局限制对所有服务生效，单独配置的服务同时受全局及服务限制
+     */
+    public static class Limiter extends Limit {
+        /**
+         * 是否开启并发限制，默认：false
+         */
+        private boolean enabled;
+        /**
+         * 服务独立并发限制，key-服务接口名称，value-并发限制配置
+         */
+        private Map<String, Limit> services = new HashMap<>();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Map<String, Limit> getServices() {
+            return services;
+        }
+
+        public void setServices(Map<String, Limit> services) {
+            this.services = services;
+        }
+    }
+
+    /**
+     * 网络传输配置
+     */
+    public static class Transport {
+        /**
+         * 传输类型：auto-Linux下优先使用epoll，epoll、nio，默认：auto
+         */
+        private IRpcTransport type = IRpcTransport.AUTO;
+        /**
+         * 处理连接请求的线程数，默认：1
+         */
+        private int bossThreads = 1;
+        /**
+         * I/O线程数，0表示使用netty默认值（CPU核数*2），默认：0
+         */
+        private int ioThreads;
+        /**
+         * 是否与同一JVM内的Rpc客户端共享I/O线程组，默认：false
+         */
+        private boolean shared;
+        /**
+         * 缓冲区分配器：pooled-池化、unpooled-非池化，默认：pooled
+         */
+        private IRpcAllocator allocator = IRpcAllocator.POOLED;
+        /**
+         * 是否优先分配堆外内存，默认：true
+         */
+        private boolean preferDirect = true;
+
+        public IRpcTransport getType() {
+            return type;
+        }
+
+        public void setType(IRpcTransport type) {
+            this.type = type;
+        }
+
+        public int getBossThreads() {
+            return bossThreads;
+        }
+
+        public void setBossThreads(int bossThreads) {
+            this.bossThreads = bossThreads;
+        }
+
+        public int getIoThreads() {
+            return ioThreads;
+        }
+
+        public void setIoThreads(int ioThreads) {
+            this.ioThreads = ioThreads;
+        }
+
+        public boolean isShared() {
+            return shared;
+        }
+
+        public void setShared(boolean shared) {
+            this.shared = shared;
+        }
+
+        public IRpcAllocator getAllocator() {
+            return allocator;
+        }
+
+        public void setAllocator(IRpcAllocator allocator) {
+            this.allocator = allocator;
+        }
+
+        public boolean isPreferDirect() {
+            return preferDirect;
+        }
+
+        public void setPreferDirect(boolean preferDirect) {
+            this.preferDirect = preferDirect;
+        }
+    }
+
+    /**
+     * 消息体压缩配置，压缩算法标识随消息头传递，接收方按标识解压
+     */
+    public static class Compression {
+        /**
+         * 压缩算法：none-不压缩、gzip、snappy，默认：none
+         */
+        private IRpcCompressor compressor = IRpcCompressor.NONE;
+        /**
+         * 压缩阈值，消息体不小于此值时才压缩，默认：8KB
+         */
+        private DataSize threshold = DataSize.ofKilobytes(8);
+
+        public IRpcCompressor getCompressor() {
+            return compressor;
+        }
+
+        public void setCompressor(IRpcCompressor compressor) {
+            this.compressor = compressor;
+        }
+
+        public DataSize getThreshold() {
+            return threshold;
+        }
+
+        public void setThreshold(DataSize threshold) {
+            this.threshold = threshold;
+        }
+    }
+
+    /**
+     * 流式响应配置，服务方法返回Iterator、Stream或Publisher时按数据块分批发送，每发送一个数据块消耗客户端授予的一个信用
+     */
+    public static class Streaming {
+        /**
+         * 每个数据块包含的元素个数，默认：100
+         */
+        private int batchSize = 100;
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+    }
 }
@@ -3,25 +3,32 @@ package com.emily.infrastructure.rpc.server.connection;
 import com.emily.infrastructure.common.exception.PrintExceptionInfo;
 import com.emily.infrastructure.rpc.core.decoder.IRpcDecoder;
 import com.emily.infrastructure.rpc.core.encoder.IRpcEncoder;
-import com.emily.infrastructure.rpc.core.message.IRpcTail;
+import com.emily.infrastructure.rpc.core.message.IRpcMessage;
+import com.emily.infrastructure.rpc.core.transport.IRpcEventLoopGroups;
+import com.emily.infrastructure.rpc.core.transport.IRpcTrafficCounter;
+import com.emily.infrastructure.rpc.core.transport.IRpcTransport;
 import com.emily.infrastructure.rpc.server.IRpcServerProperties;
 import com.emily.infrastructure.rpc.server.annotation.IRpcService;
+import com.emily.infrastructure.rpc.server.executor.IRpcServerExecutor;
 import com.emily.infrastructure.rpc.server.handler.IRpcServerChannelHandler;
+import com.emily.infrastructure.rpc.server.limiter.IRpcServerLimiter;
+import com.emily.infrastructure.rpc.server.metrics.IRpcServerMetrics;
 import com.emily.infrastructure.rpc.server.registry.IRpcProviderRegistry;
 import io.netty.bootstrap.ServerBootstrap;
-import io.netty.buffer.Unpooled;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
-import io.netty.handler.codec.DelimiterBasedFrameDecoder;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
 import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.concurrent.GlobalEventExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
+import org.springframework.util.ClassUtils;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.TimeUnit;
@@ -42,18 +49,60 @@ public class IRpcServerConnection implements ApplicationContextAware, Disposable
     /**
      * 用于处理客户端的连接请求
      */
-    private EventLoopGroup bossGroup = new NioEventLoopGroup();
+    private EventLoopGroup bossGroup;
     /**
      * 用于处理各个客户端的I/O操作
      */
-    private EventLoopGroup workerGroup = new NioEventLoopGroup();
+    private EventLoopGroup workerGroup;
+    /**
+     * 实际使用的传输类型，与I/O线程组类型一致
+     */
+    private IRpcTransport transport;
     /**
      * 属性配置
      */
     private IRpcServerProperties properties;
+    /**
+     * 业务线程池，未开启时为null
+     */
+    private IRpcServerExecutor executor;
+    /**
+     * 并发限制，未开启时为null
+     */
+    private IRpcServerLimiter limiter;
+    /**
+     * 已建立的客户端连接，通道关闭后自动移除，用于推送缓存失效通知
+     */
+    private final ChannelGroup channels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+    /**
+     * 监控指标
+     */
+    private IRpcServerMetrics metrics;
 
     public IRpcServerConnection(IRpcServerProperties properties) {
+        this(properties, IRpcServerMetrics.NOOP);
+    }
+
+    public IRpcServerConnection(IRpcServerProperties properties, IRpcServerMetrics metrics) {
         this.properties = properties;
+        this.metrics = metrics;
+        metrics.bindConnections(channels);
+        IRpcServerProperties.Transport transportProperties = properties.getTransport();
+        //I/O线程组，共享时与同一JVM内的Rpc客户端使用同一线程组
+        if (transportProperties.isShared()) {
+            this.workerGroup = IRpcEventLoopGroups.acquireShared(transportProperties.getType(), transportProperties.getIoThreads());
+        } else {
+            this.workerGroup = transportProperties.getType().newEventLoopGroup(transportProperties.getIoThreads(), "rpc-server-io");
+        }
+        //通道及连接线程组类型需与I/O线程组一致
+        this.transport = IRpcTransport.from(workerGroup);
+        this.bossGroup = transport.newEventLoopGroup(transportProperties.getBossThreads(), "rpc-server-boss");
+        if (properties.getExecutor().isEnabled()) {
+            this.executor = new IRpcServerExecutor(properties.getExecutor());
+        }
+        if (properties.getLimiter().isEnabled()) {
+            this.limiter = new IRpcServerLimiter(properties.getLimiter());
+        }
     }
 
     /**
@@ -66,10 +115,10 @@ public class IRpcServerConnection implements ApplicationContextAware, Disposable
             //设置两个线程组
             serverBootstrap.group(bossGroup, workerGroup)
                     /**
-                     * 使用NioServerSocketChannel 作为服务器的通道实现
+                     * 使用EpollServerSocketChannel或NioServerSocketChannel作为服务器的通道实现
                      * 用来处理客户端连接操作
                      */
-                    .channel(NioServerSocketChannel.class)
+                    .channel(transport.serverSocketChannelClass())
                     /**
                      * 用于构造服务端套接字ServerSocket对象，标识当服务器请求处理线程全满时，
                      * 用于临时存放已完成三次握手的请求的队列的最大长度。如果未设置或所设置的值小于1，Java将使用默认值50。
@@ -88,54 +137,70 @@ public class IRpcServerConnection implements ApplicationContextAware, Disposable
                      * 如果要减少发送次数减少网络交互，就设置为false等累积一定大小后再发送。默认为false。
                      */
                     .childOption(ChannelOption.TCP_NODELAY, true)
+                    /**
+                     * 缓冲区分配器，请求解码及响应序列化均使用此分配器
+                     */
+                    .childOption(ChannelOption.ALLOCATOR, properties.getTransport().getAllocator().create(properties.getTransport().isPreferDirect()))
                     /**
                      * 用来处理用户I/O操作
                      */
                     .childHandler(new ChannelInitializer<>() {
                         @Override
                         protected void initChannel(Channel ch) throws Exception {
+                            channels.add(ch);
                             ChannelPipeline pipeline = ch.pipeline();
+                            //收发字节数统计，位于编解码器之前，统计的是实际收发的字节数
+                            IRpcTrafficCounter trafficCounter = metrics.trafficCounter();
+                            if (trafficCounter != null) {
+                                pipeline.addLast(trafficCounter);
+                            }
                             //空闲状态处理器，参数说明：读时间空闲时间，0禁用时间|写事件空闲时间，0则禁用|读或写空闲时间，0则禁用
                             pipeline.addLast(new IdleStateHandler(0, 0, properties.getIdleTimeOut().getSeconds(), TimeUnit.SECONDS));
-                            //分隔符解码器
-                            pipeline.addLast(new DelimiterBasedFrameDecoder(8192, Unpooled.copiedBuffer(IRpcTail.TAIL)));
                             //自定义编码器
-                            pipeline.addLast(new IRpcEncoder());
-                            //自定义解码器
-                            pipeline.addLast(new IRpcDecoder());
+                            pipeline.addLast(new IRpcEncoder(properties.getCompression().getCompressor(), Math.toIntExact(properties.getCompression().getThreshold().toBytes())));
+                            //自定义解码器，按长度字段拆包
+                            pipeline.addLast(new IRpcDecoder(Math.toIntExact(properties.getMaxFrameSize().toBytes())));
                             //自定义处理器
-                            pipeline.addLast(new IRpcServerChannelHandler(registry));
+                            pipeline.addLast(new IRpcServerChannelHandler(registry, executor, limiter, properties.getStreaming(), metrics));
                         }
                     });
             //启动服务器，并绑定端口并且同步
             ChannelFuture channelFuture = serverBootstrap.bind(properties.getPort()).sync();
-            logger.info("Rpc server start success，port is {}", properties.getPort());
+            logger.info("Rpc server start success，port is {}, transport is {}", properties.getPort(), transport);
             //对关闭通道进行监听,监听到通道关闭后，往下执行
             channelFuture.channel().closeFuture().sync();
         } catch (InterruptedException e) {
             logger.error("occur exception when start server: {}", PrintExceptionInfo.printErrorInfo(e));
         } finally {
             logger.error("shutdown bossGroup and workerGroup");
-            if (Objects.nonNull(bossGroup)) {
-                bossGroup.shutdownGracefully();
-            }
-            if (Objects.nonNull(workerGroup)) {
-                workerGroup.shutdownGracefully();
-            }
+            shutdown();
         }
     }
 
+    /**
+     * 通知所有已连接的客户端清除缓存的响应结果，服务端数据变更后调用
+     *
+     * @param className  服务接口类名
+     * @param methodName 方法名，为null时清除接口所有方法的缓存
+     */
+    public void invalidateCache(String className, String methodName) {
+        byte[] body = (methodName == null ? className : className + "#" + methodName).getBytes(StandardCharsets.UTF_8);
+        //每个通道单独构建消息，编码器写出后会释放消息
+        channels.forEach(channel -> channel.writeAndFlush(IRpcMessage.build((byte) 3, body)));
+    }
+
     @Override
     public void setApplicationContext(ApplicationContext context) throws BeansException {
         Map<String, Object> beanMap = context.getBeansWithAnnotation(IRpcService.class);
         beanMap.forEach((beanName, bean) -> {
-            Class<?>[] interfaces = bean.getClass().getInterfaces();
+            //CGLIB代理的bean取用户定义的类获取接口
+            Class<?>[] interfaces = ClassUtils.getUserClass(bean).getInterfaces();
             if (interfaces.length > 0) {
                 String interfaceName = interfaces[0].getSimpleName();
                 logger.info("find rpc service {}", interfaceName);
 
-                //将@RpcService标注的bean注入到注册表当中
-                registry.registerServiceBean(interfaceName, bean);
+                //将@RpcService标注的bean注入到注册表当中，并预先解析方法调用表
+                registry.registerServiceBean(interfaces[0], bean);
             } else {
                 logger.debug("当前service服务{}没有实现接口", beanName);
             }
@@ -144,11 +209,27 @@ public class IRpcServerConnection implements ApplicationContextAware, Disposable
 
     @Override
     public void destroy() throws Exception {
+        shutdown();
+    }
+
+    /**
+     * 关闭线程组及业务线程池，共享的I/O线程组由最后一个使用者关闭，可重复调用
+     */
+    private synchronized void shutdown() {
         if (Objects.nonNull(bossGroup)) {
             bossGroup.shutdownGracefully();
+            bossGroup = null;
         }
         if (Objects.nonNull(workerGroup)) {
-            workerGroup.shutdownGracefully();
+            if (properties.getTransport().isShared()) {
+                IRpcEventLoopGroups.releaseShared(workerGroup);
+            } else {
+                workerGroup.shutdownGracefully();
+            }
+            workerGroup = null;
+        }
+        if (Objects.nonNull(executor)) {
+            executor.shutdown();
         }
     }
 }
@@ -0,0 +1,69 @@
+package com.emily.infrastructure.rpc.server.executor;
+
+import com.emily.infrastructure.rpc.server.IRpcServerProperties;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @program: spring-parent
+ * @description: Rpc服务端业务线程池，队列有界，已满时拒绝请求，避免慢服务阻塞Netty I/O线程
+ * @author: Emily
+ * @create: 2022/04/14
+ */
+public class IRpcServerExecutor {
+    /**
+     * 默认线程池，未单独配置的服务共享
+     */
+    private final ThreadPoolExecutor sharedExecutor;
+    /**
+     * 服务独立线程池，key-服务接口名称
+     */
+    private final Map<String, ThreadPoolExecutor> serviceExecutors = new HashMap<>();
+
+    public IRpcServerExecutor(IRpcServerProperties.Executor properties) {
+        this.sharedExecutor = createExecutor("shared", properties);
+        properties.getServices().forEach((interfaceName, pool) -> serviceExecutors.put(interfaceName, createExecutor(interfaceName, pool)));
+    }
+
+    /**
+     * 在服务对应的线程池中执行任务
+     *
+     * @param interfaceName 服务接口名称
+     * @param task          任务
+     * @throws RejectedExecutionException 线程池队列已满
+     */
+    public void execute(String interfaceName, Runnable task) {
+        serviceExecutors.getOrDefault(interfaceName, sharedExecutor).execute(task);
+    }
+
+    /**
+     * 关闭所有线程池，已提交的任务继续执行完成
+     */
+    public void shutdown() {
+        sharedExecutor.shutdown();
+        serviceExecutors.values().forEach(ThreadPoolExecutor::shutdown);
+    }
+
+    /**
+     * 创建有界线程池，拒绝策略为抛出RejectedExecutionException
+     *
+     * @param name 线程池名称
+     * @param pool 线程池配置
+     * @return
+     */
+    private static ThreadPoolExecutor createExecutor(String name, IRpcServerProperties.Pool pool) {
+        return new ThreadPoolExecutor(pool.getCoreSize(),
+                Math.max(pool.getCoreSize(), pool.getMaxSize()),
+                pool.getKeepAlive().toMillis(),
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(pool.getQueueCapacity()),
+                new CustomizableThreadFactory("rpc-server-" + name + "-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -1,13 +1,23 @@
 package com.emily.infrastructure.rpc.server.handler;
 
 import com.emily.infrastructure.common.enums.AppHttpStatus;
+import com.emily.infrastructure.common.exception.BasicException;
 import com.emily.infrastructure.common.exception.PrintExceptionInfo;
-import com.emily.infrastructure.common.utils.json.JSONUtils;
+import com.emily.infrastructure.rpc.core.context.IRpcDeadline;
 import com.emily.infrastructure.rpc.core.message.IRpcMessage;
 import com.emily.infrastructure.rpc.core.message.IRpcRequest;
 import com.emily.infrastructure.rpc.core.message.IRpcResponse;
+import com.emily.infrastructure.rpc.core.serializer.IRpcSerializer;
+import com.emily.infrastructure.rpc.core.serializer.IRpcSerializerFactory;
+import com.emily.infrastructure.rpc.server.IRpcServerProperties;
+import com.emily.infrastructure.rpc.server.executor.IRpcServerExecutor;
+import com.emily.infrastructure.rpc.server.limiter.IRpcServerLimiter;
 import com.emily.infrastructure.rpc.server.logger.RecordLogger;
+import com.emily.infrastructure.rpc.server.metrics.IRpcServerMetrics;
+import com.emily.infrastructure.rpc.server.registry.IRpcMethodInvoker;
 import com.emily.infrastructure.rpc.server.registry.IRpcProviderRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.handler.timeout.IdleStateEvent;
@@ -15,9 +25,12 @@ import io.netty.util.ReferenceCountUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.Method;
 import java.nio.charset.StandardCharsets;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * @program: spring-parent
@@ -32,9 +45,41 @@ public class IRpcServerChannelHandler extends ChannelInboundHandlerAdapter {
      * RPC服务注册中心
      */
     private IRpcProviderRegistry registry;
+    /**
+     * 业务线程池，为null时在I/O线程中调用服务方法
+     */
+    private IRpcServerExecutor executor;
+    /**
+     * 并发限制，为null时不限制
+     */
+    private IRpcServerLimiter limiter;
+    /**
+     * 当前通道在途请求的截止时间，收到取消帧时标记取消，key-请求唯一标识
+     */
+    private final Map<Long, IRpcDeadline> deadlines = new ConcurrentHashMap<>();
+    /**
+     * 当前通道的流式调用，key-请求唯一标识
+     */
+    private final Map<Long, IRpcServerStream> streams = new ConcurrentHashMap<>();
+    /**
+     * 流式响应配置
+     */
+    private IRpcServerProperties.Streaming streaming;
+    /**
+     * 监控指标
+     */
+    private IRpcServerMetrics metrics;
 
-    public IRpcServerChannelHandler(IRpcProviderRegistry registry) {
+    public IRpcServerChannelHandler(IRpcProviderRegistry registry, IRpcServerExecutor executor, IRpcServerLimiter limiter, IRpcServerProperties.Streaming streaming) {
+        this(registry, executor, limiter, streaming, IRpcServerMetrics.NOOP);
+    }
+
+    public IRpcServerChannelHandler(IRpcProviderRegistry registry, IRpcServerExecutor executor, IRpcServerLimiter limiter, IRpcServerProperties.Streaming streaming, IRpcServerMetrics metrics) {
         this.registry = registry;
+        this.executor = executor;
+        this.limiter = limiter;
+        this.streaming = streaming;
+        this.metrics = metrics;
     }
 
     @Override
@@ -46,11 +91,13 @@ public class IRpcServerChannelHandler extends ChannelInboundHandlerAdapter {
     @Override
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
         logger.info("Rpc服务器连接断开：{}", ctx.channel().remoteAddress());
+        //连接断开，停止发送流式响应并关闭数据源
+        streams.values().forEach(IRpcServerStream::cancel);
         ctx.channel().close();
     }
 
     /**
-     * 接收客户端传入的值，将值解析为类对象，获取其中的属性，然后反射调用实现类的方法
+     * 接收客户端传入的值，在I/O线程中反序列化请求后，将服务方法调用交给业务线程池执行
      *
      * @param ctx
      * @param msg
@@ -61,78 +108,239 @@ public class IRpcServerChannelHandler extends ChannelInboundHandlerAdapter {
         if (msg == null) {
             return;
         }
-        //开始时间
-        long startTime = System.currentTimeMillis();
+        //接收时间，作为开始时间，请求携带的剩余超时时间由此开始计算，单位：纳秒
+        long startTime = System.nanoTime();
+        //请求消息
+        IRpcMessage message = (IRpcMessage) msg;
+        //心跳包，无需响应
+        if (message.getPackageType() == 1) {
+            logger.info("通道{}的心跳包是：{}", ctx.channel().remoteAddress(), message.getBody().toString(StandardCharsets.UTF_8));
+            //手动释放消息，否则会导致内存泄漏
+            ReferenceCountUtil.release(msg);
+            return;
+        }
+        //取消帧，客户端已放弃等待，标记取消后尚未执行的请求直接跳过
+        if (message.getPackageType() == 2) {
+            IRpcDeadline deadline = deadlines.get(message.getRequestId());
+            if (deadline != null) {
+                deadline.cancel();
+            }
+            IRpcServerStream stream = streams.get(message.getRequestId());
+            if (stream != null) {
+                stream.cancel();
+            }
+            ReferenceCountUtil.release(msg);
+            return;
+        }
+        //流式调用信用，客户端消费数据块后授予，流已结束时忽略
+        if (message.getPackageType() == 5) {
+            IRpcServerStream stream = streams.get(message.getRequestId());
+            if (stream != null) {
+                stream.grant(message.getBody().readInt());
+            }
+            ReferenceCountUtil.release(msg);
+            return;
+        }
+        //按请求消息头中的标识获取序列化器，并以同一序列化器响应，序列化器不存在时由exceptionCaught关闭连接
+        IRpcSerializer serializer;
+        try {
+            serializer = IRpcSerializerFactory.getSerializer(message.getSerializerId());
+        } catch (BasicException ex) {
+            ReferenceCountUtil.release(msg);
+            throw ex;
+        }
         //请求协议
-        IRpcRequest request = null;
-        //返回结果
-        IRpcResponse rpcResponse = null;
+        IRpcRequest request;
         try {
-            //请求消息
-            IRpcMessage message = (IRpcMessage) msg;
-            //消息类型
-            byte packageType = message.getPackageType();
-            //心跳包
-            if (packageType == 1) {
-                String heartBeat = new String(message.getBody(), StandardCharsets.UTF_8);
-                logger.info("通道{}的心跳包是：{}", ctx.channel().remoteAddress(), heartBeat);
-                return;
-            }
-            //请求协议
-            request = JSONUtils.toObject(message.getBody(), IRpcRequest.class);
-            //反射调用实现类的方法
-            String className = request.getClassName();
-            //从注册表中获取指定名称的实现类
-            Object serviceBean = registry.getServiceBean(className);
-            //获取实现类的class实例
-            Class<?> clazz = serviceBean.getClass();
-            //获取实现类的bean对象
-            Object bean = clazz.getDeclaredConstructor().newInstance();
-            //获取实现类的Method对象
-            Method method = clazz.getMethod(request.getMethodName(), request.getTypes());
-            //设置方法访问权限为true
-            method.setAccessible(true);
-            //将参数转换为真实数据类型
-            Object[] parameters = getParameters(request.getTypes(), request.getParams());
-            //调用具体实现方法
-            Object response = method.invoke(bean, parameters);
-            //Rpc响应结果
-            rpcResponse = IRpcResponse.buildResponse(response);
+            //请求协议，直接从输入缓冲区反序列化，参数按目标方法的泛型参数类型反序列化，需根据服务名称选择业务线程池
+            request = serializer.deserializeRequest(message.getBody(), registry);
         } catch (Exception ex) {
-            //异常结果
-            Object response = PrintExceptionInfo.printErrorInfo(ex);
-            //Rpc响应结果
-            rpcResponse = IRpcResponse.buildResponse(AppHttpStatus.ERROR.getStatus(), AppHttpStatus.ERROR.getMessage(), response);
+            writeResponse(ctx, message, serializer, null, IRpcResponse.buildResponse(AppHttpStatus.ERROR.getStatus(), AppHttpStatus.ERROR.getMessage(), PrintExceptionInfo.printErrorInfo(ex)), startTime);
+            return;
         } finally {
-            //设置请求上下文的事物唯一标识
-            if (Objects.nonNull(request)) {
-                rpcResponse.setTraceId(request.getTraceId());
-            }
-            //发送调用方法调用结果
-            ctx.writeAndFlush(IRpcMessage.build(JSONUtils.toByteArray(rpcResponse)));
             //手动释放消息，否则会导致内存泄漏
             ReferenceCountUtil.release(msg);
-            //记录请求相依日志
+        }
+        //超过并发限制，立即拒绝，客户端可据此状态码重试其它服务节点
+        IRpcServerLimiter.Permit permit = null;
+        if (limiter != null && (permit = limiter.acquire(request.getClassName())) == null) {
+            writeResponse(ctx, message, serializer, request, IRpcResponse.buildResponse(AppHttpStatus.SERVER_OVERLOAD_EXCEPTION.getStatus(), AppHttpStatus.SERVER_OVERLOAD_EXCEPTION.getMessage(), AppHttpStatus.SERVER_OVERLOAD_EXCEPTION.getMessage()), startTime);
+            return;
+        }
+        //请求携带剩余超时时间时登记截止时间，供跳过已超时请求及服务代码查询
+        IRpcDeadline deadline = null;
+        if (request.getTimeout() > 0) {
+            deadline = IRpcDeadline.of(startTime, request.getTimeout());
+            deadlines.put(message.getRequestId(), deadline);
+        }
+        //流式调用，先登记以便接收取消帧，服务方法返回流式结果后开始发送
+        if (request.getWindow() > 0) {
+            streams.put(message.getRequestId(), newStream(ctx, message, serializer, request, startTime));
+        }
+        //未开启业务线程池，直接在I/O线程中调用
+        if (executor == null) {
+            invoke(ctx, message, serializer, request, deadline, permit, startTime);
+            return;
+        }
+        IRpcServerLimiter.Permit acquired = permit;
+        IRpcDeadline registered = deadline;
+        try {
+            executor.execute(request.getClassName(), () -> invoke(ctx, message, serializer, request, registered, acquired, startTime));
+        } catch (RejectedExecutionException ex) {
+            if (acquired != null) {
+                acquired.cancel();
+            }
+            deadlines.remove(message.getRequestId());
+            streams.remove(message.getRequestId());
+            //业务线程池已满，立即拒绝，客户端可据此状态码重试其它服务节点
+            writeResponse(ctx, message, serializer, request, IRpcResponse.buildResponse(AppHttpStatus.SERVER_REJECTED_EXCEPTION.getStatus(), AppHttpStatus.SERVER_REJECTED_EXCEPTION.getMessage(), AppHttpStatus.SERVER_REJECTED_EXCEPTION.getMessage()), startTime);
+        }
+    }
+
+    /**
+     * 调用服务方法并响应调用结果，已超过截止时间或已被客户端取消的请求不再执行
+     *
+     * @param ctx        通道上下文
+     * @param message    请求消息
+     * @param serializer 序列化器
+     * @param request    请求协议
+     * @param deadline   截止时间，请求未携带超时时间时为null
+     * @param permit     并发许可，未开启并发限制时为null
+     * @param startTime  开始时间
+     */
+    private void invoke(ChannelHandlerContext ctx, IRpcMessage message, IRpcSerializer serializer, IRpcRequest request, IRpcDeadline deadline, IRpcServerLimiter.Permit permit, long startTime) {
+        //返回结果
+        IRpcResponse rpcResponse;
+        //是否执行了服务方法
+        boolean executed = false;
+        //是否开始发送流式结果
+        boolean streaming = false;
+        if (deadline != null && deadline.isExpired()) {
+            rpcResponse = IRpcResponse.buildResponse(AppHttpStatus.SERVER_DEADLINE_EXCEEDED.getStatus(), AppHttpStatus.SERVER_DEADLINE_EXCEEDED.getMessage(), AppHttpStatus.SERVER_DEADLINE_EXCEEDED.getMessage());
+        } else {
+            executed = true;
+            //服务代码可通过IRpcDeadline.current()获取截止时间，下游Rpc调用以剩余时间作为超时时间
+            IRpcDeadline.set(deadline);
+            try {
+                //从方法调用表中获取启动时已解析好的方法调用器
+                IRpcMethodInvoker invoker = registry.getInvoker(request.getClassName(), request.getMethodName(), request.getTypes());
+                //调用注册的服务bean的方法
+                Object response = invoker.invoke(request.getParams());
+                IRpcServerStream stream = streams.get(message.getRequestId());
+                if (IRpcServerStream.isStream(response)) {
+                    if (stream == null) {
+                        throw new BasicException(AppHttpStatus.EXCEPTION.getStatus(), "服务方法返回流式结果，客户端需声明Iterator、Stream或Flux返回值类型");
+                    }
+                    //流式结果由数据块发送，发送完成后再响应结束，并发许可由流持有直到流结束
+                    stream.start(response, permit == null ? null : permit::cancel);
+                    streaming = true;
+                    rpcResponse = null;
+                } else {
+                    //Rpc响应结果
+                    rpcResponse = IRpcResponse.buildResponse(response);
+                }
+            } catch (Throwable ex) {
+                //异常结果
+                Object response = PrintExceptionInfo.printErrorInfo(ex);
+                //Rpc响应结果
+                rpcResponse = IRpcResponse.buildResponse(AppHttpStatus.ERROR.getStatus(), AppHttpStatus.ERROR.getMessage(), response);
+            } finally {
+                IRpcDeadline.remove();
+            }
+        }
+        try {
+            if (rpcResponse != null) {
+                //非流式结果，客户端按单个响应结果处理
+                streams.remove(message.getRequestId());
+                writeResponse(ctx, message, serializer, request, rpcResponse, startTime);
+            }
+        } finally {
+            if (deadline != null) {
+                deadlines.remove(message.getRequestId());
+            }
+            //释放并发许可，耗时用于自适应调整并发限制，未执行的请求不计入耗时；流式结果在流结束时释放
+            if (permit != null && !streaming) {
+                if (executed) {
+                    permit.release();
+                } else {
+                    permit.cancel();
+                }
+            }
+        }
+    }
+
+    /**
+     * 创建流式响应，数据源在业务线程池中拉取，未开启业务线程池时在I/O线程中拉取；流结束时响应结束结果并记录日志
+     *
+     * @param ctx        通道上下文
+     * @param message    请求消息
+     * @param serializer 序列化器
+     * @param request    请求协议
+     * @param startTime  开始时间
+     * @return
+     */
+    private IRpcServerStream newStream(ChannelHandlerContext ctx, IRpcMessage message, IRpcSerializer serializer, IRpcRequest request, long startTime) {
+        Executor pullExecutor = executor == null ? ctx.executor() : task -> executor.execute(request.getClassName(), task);
+        return new IRpcServerStream(ctx, message.getRequestId(), serializer, message.isCompressible(), streaming.getBatchSize(), request.getWindow(), pullExecutor, rpcResponse -> {
+            streams.remove(message.getRequestId());
+            if (rpcResponse != null) {
+                writeResponse(ctx, message, serializer, request, rpcResponse, startTime);
+            }
+        });
+    }
+
+    /**
+     * 发送响应结果，记录日志及调用耗时指标
+     *
+     * @param ctx         通道上下文
+     * @param message     请求消息
+     * @param serializer  序列化器
+     * @param request     请求协议，反序列化失败时为null
+     * @param rpcResponse 响应结果
+     * @param startTime   开始时间，单位：纳秒
+     */
+    private void writeResponse(ChannelHandlerContext ctx, IRpcMessage message, IRpcSerializer serializer, IRpcRequest request, IRpcResponse rpcResponse, long startTime) {
+        //设置请求上下文的事物唯一标识
+        if (Objects.nonNull(request)) {
+            rpcResponse.setTraceId(request.getTraceId());
+        }
+        IRpcMessage response = IRpcMessage.build((byte) 0, serializer.getSerializerId(), message.getRequestId(), serializeResponse(ctx.alloc(), serializer, rpcResponse));
+        //客户端可以解压时才压缩响应
+        response.setCompressible(message.isCompressible());
+        //发送调用方法调用结果，携带请求唯一标识，客户端据此找到对应的请求
+        ctx.writeAndFlush(response);
+        //记录请求相依日志
+        if (Objects.nonNull(request)) {
             RecordLogger.recordResponse(request, rpcResponse, startTime);
+            metrics.recordCall(request.getClassName(), request.getMethodName(), rpcResponse.getStatus(), System.nanoTime() - startTime);
         }
     }
 
     /**
-     * 将参数转换为真实的数据类型
+     * 将响应结果直接序列化到通道分配器分配的缓冲区中，返回值无法序列化时改为响应异常信息
      *
-     * @param parameterTypes 参数类型数组
-     * @param parameters     参数数组
+     * @param allocator   缓冲区分配器
+     * @param serializer  序列化器
+     * @param rpcResponse 响应结果
      * @return
      */
-    private Object[] getParameters(Class<?>[] parameterTypes, Object[] parameters) {
-        if (parameters == null || parameters.length == 0) {
-            return parameters;
-        } else {
-            Object[] newParameters = new Object[parameters.length];
-            for (int i = 0; i < parameters.length; i++) {
-                newParameters[i] = JSONUtils.parseObject(parameters[i], parameterTypes[i]);
+    private ByteBuf serializeResponse(ByteBufAllocator allocator, IRpcSerializer serializer, IRpcResponse rpcResponse) {
+        ByteBuf body = allocator.ioBuffer();
+        try {
+            serializer.serializeResponse(rpcResponse, body);
+            return body;
+        } catch (Exception ex) {
+            IRpcResponse errorResponse = IRpcResponse.buildResponse(AppHttpStatus.ERROR.getStatus(), AppHttpStatus.ERROR.getMessage(), PrintExceptionInfo.printErrorInfo(ex));
+            errorResponse.setTraceId(rpcResponse.getTraceId());
+            //丢弃已写入的部分数据
+            body.clear();
+            try {
+                serializer.serializeResponse(errorResponse, body);
+                return body;
+            } catch (RuntimeException e) {
+                body.release();
+                throw e;
             }
-            return newParameters;
         }
     }
 
@@ -0,0 +1,392 @@
+package com.emily.infrastructure.rpc.server.handler;
+
+import com.emily.infrastructure.common.enums.AppHttpStatus;
+import com.emily.infrastructure.common.exception.PrintExceptionInfo;
+import com.emily.infrastructure.rpc.core.message.IRpcMessage;
+import com.emily.infrastructure.rpc.core.message.IRpcResponse;
+import com.emily.infrastructure.rpc.core.serializer.IRpcSerializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.ClassUtils;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * @program: spring-parent
+ * @description: 服务端流式响应，服务方法返回Iterator、Stream或Publisher时按批次拉取元素，每批元素作为一个数据块发送，
+ * 每发送一个数据块消耗客户端授予的一个信用，信用耗尽后暂停拉取，直到客户端消费后授予新的信用；
+ * 数据发送完成或出现异常时以正常的响应结果结束流，客户端取消时关闭数据源；流结束时释放服务调用的并发许可
+ * @author: Emily
+ * @create: 2022/04/23
+ */
+public class IRpcServerStream {
+
+    private static final Logger logger = LoggerFactory.getLogger(IRpcServerStream.class);
+    /**
+     * 是否引入了reactive-streams依赖，引入后服务方法可以返回Publisher
+     */
+    private static final boolean PUBLISHER_PRESENT = ClassUtils.isPresent("org.reactivestreams.Publisher", IRpcServerStream.class.getClassLoader());
+
+    private final ChannelHandlerContext ctx;
+    /**
+     * 请求唯一标识，数据块携带此标识
+     */
+    private final long requestId;
+    private final IRpcSerializer serializer;
+    /**
+     * 客户端是否可以解压压缩后的数据块
+     */
+    private final boolean compressible;
+    /**
+     * 每个数据块包含的元素个数
+     */
+    private final int batchSize;
+    /**
+     * 拉取数据源的线程池，未开启业务线程池时为I/O线程
+     */
+    private final Executor executor;
+    /**
+     * 流结束回调，参数为结束流的响应结果，客户端取消时为null
+     */
+    private final Consumer<IRpcResponse<?>> onTerminate;
+    /**
+     * 尚未使用的信用数
+     */
+    private final AtomicInteger credits;
+    /**
+     * 拉取任务计数，保证同一时刻只有一个线程拉取数据源
+     */
+    private final AtomicInteger wip = new AtomicInteger(0);
+    /**
+     * 流是否已结束
+     */
+    private final AtomicBoolean done = new AtomicBoolean(false);
+    /**
+     * Iterator、Stream数据源
+     */
+    private volatile Iterator<?> iterator;
+    /**
+     * 需要关闭的数据源，只在拉取线程中关闭
+     */
+    private AutoCloseable closeable;
+    /**
+     * Publisher数据源的订阅者
+     */
+    private volatile PublisherSubscriber subscriber;
+    /**
+     * 流结束时释放并发许可，开始发送后才持有许可
+     */
+    private volatile Runnable releasePermit;
+
+    public IRpcServerStream(ChannelHandlerContext ctx, long requestId, IRpcSerializer serializer, boolean compressible, int batchSize,
+                            int window, Executor executor, Consumer<IRpcResponse<?>> onTerminate) {
+        this.ctx = ctx;
+        this.requestId = requestId;
+        this.serializer = serializer;
+        this.compressible = compressible;
+        this.batchSize = Math.max(batchSize, 1);
+        this.credits = new AtomicInteger(window);
+        this.executor = executor;
+        this.onTerminate = onTerminate;
+    }
+
+    /**
+     * 服务方法返回值是否为流式结果
+     *
+     * @param result 服务方法返回值
+     * @return
+     */
+    public static boolean isStream(Object result) {
+        return result instanceof Iterator || result instanceof Stream || (PUBLISHER_PRESENT && PublisherSupport.isPublisher(result));
+    }
+
+    /**
+     * 开始发送服务方法返回的流式结果
+     *
+     * @param result        服务方法返回值
+     * @param releasePermit 释放并发许可，流结束时调用，未开启并发限制时为null
+     */
+    public void start(Object result, Runnable releasePermit) {
+        this.releasePermit = releasePermit;
+        //开始前客户端已取消
+        if (done.get()) {
+            releasePermit();
+        }
+        if (result instanceof Stream) {
+            Stream<?> stream = (Stream<?>) result;
+            this.closeable = stream;
+            this.iterator = stream.iterator();
+        } else if (result instanceof Iterator) {
+            if (result instanceof AutoCloseable) {
+                this.closeable = (AutoCloseable) result;
+            }
+            this.iterator = (Iterator<?>) result;
+        } else {
+            PublisherSubscriber subscriber = new PublisherSubscriber();
+            this.subscriber = subscriber;
+            subscriber.subscribe(result);
+            return;
+        }
+        schedule();
+    }
+
+    /**
+     * 客户端授予信用
+     *
+     * @param n 信用数，即允许继续发送的数据块数
+     */
+    public void grant(int n) {
+        credits.addAndGet(n);
+        PublisherSubscriber subscriber = this.subscriber;
+        if (subscriber != null) {
+            subscriber.requestPending();
+        } else if (iterator != null) {
+            schedule();
+        }
+    }
+
+    /**
+     * 客户端已取消，停止发送并关闭数据源
+     */
+    public void cancel() {
+        if (!done.compareAndSet(false, true)) {
+            return;
+        }
+        PublisherSubscriber subscriber = this.subscriber;
+        if (subscriber != null) {
+            subscriber.cancel();
+        } else if (iterator != null) {
+            //数据源在拉取线程中关闭
+            schedule();
+        }
+        onTerminate.accept(null);
+        releasePermit();
+    }
+
+    /**
+     * 安排拉取任务，线程池已满时以异常结束流
+     */
+    private void schedule() {
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException ex) {
+            fail(ex);
+            closeSource();
+        }
+    }
+
+    /**
+     * 在信用范围内拉取数据源并发送数据块，数据源拉取完成后结束流
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            while (!done.get() && credits.get() > 0) {
+                List<Object> batch = new ArrayList<>(batchSize);
+                boolean hasNext;
+                try {
+                    while (batch.size() < batchSize && iterator.hasNext()) {
+                        batch.add(iterator.next());
+                    }
+                    hasNext = batch.size() == batchSize && iterator.hasNext();
+                    if (!batch.isEmpty()) {
+                        credits.decrementAndGet();
+                        writeChunk(batch);
+                    }
+                } catch (Throwable ex) {
+                    fail(ex);
+                    break;
+                }
+                if (!hasNext) {
+                    complete();
+                }
+            }
+            if (done.get()) {
+                closeSource();
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    /**
+     * 发送一个数据块，消息体为数据为元素列表的响应结果
+     *
+     * @param batch 元素列表
+     */
+    private void writeChunk(List<Object> batch) {
+        ByteBuf body = ctx.alloc().ioBuffer();
+        try {
+            serializer.serializeResponse(IRpcResponse.buildResponse(batch), body);
+        } catch (RuntimeException ex) {
+            body.release();
+            throw ex;
+        }
+        IRpcMessage chunk = IRpcMessage.build((byte) 4, serializer.getSerializerId(), requestId, body);
+        chunk.setCompressible(compressible);
+        ctx.writeAndFlush(chunk);
+    }
+
+    /**
+     * 数据发送完成，以数据为空的成功响应结束流
+     */
+    private void complete() {
+        if (done.compareAndSet(false, true)) {
+            onTerminate.accept(IRpcResponse.buildResponse(null));
+            releasePermit();
+        }
+    }
+
+    /**
+     * 拉取数据源或发送数据块异常，以异常响应结束流
+     *
+     * @param cause 异常
+     */
+    private void fail(Throwable cause) {
+        if (done.compareAndSet(false, true)) {
+            onTerminate.accept(IRpcResponse.buildResponse(AppHttpStatus.ERROR.getStatus(), AppHttpStatus.ERROR.getMessage(), PrintExceptionInfo.printErrorInfo(cause)));
+            releasePermit();
+        }
+    }
+
+    /**
+     * 释放并发许可，许可只释放一次，流结束与开始发送并发时两处都可能调用
+     */
+    private void releasePermit() {
+        Runnable releasePermit = this.releasePermit;
+        if (releasePermit != null) {
+            releasePermit.run();
+        }
+    }
+
+    /**
+     * 关闭数据源，可重复调用
+     */
+    private void closeSource() {
+        AutoCloseable closeable = this.closeable;
+        if (closeable == null) {
+            return;
+        }
+        this.closeable = null;
+        try {
+            closeable.close();
+        } catch (Exception ex) {
+            logger.warn("Rpc流式响应数据源关闭异常：{}", PrintExceptionInfo.printErrorInfo(ex));
+        }
+    }
+
+    /**
+     * Publisher数据源的订阅者，每个信用向数据源请求一个数据块的元素，凑满一个数据块即发送，数据源结束时发送剩余元素
+     */
+    private class PublisherSubscriber implements Subscriber<Object> {
+        /**
+         * 当前数据块，元素按规范串行到达
+         */
+        private List<Object> batch = new ArrayList<>(batchSize);
+        private volatile Subscription subscription;
+
+        void subscribe(Object publisher) {
+            //订阅者接收任意类型的元素，可订阅任意元素类型的数据源
+            ((Publisher<?>) publisher).subscribe(this);
+        }
+
+        /**
+         * 将尚未使用的信用转换为对数据源的请求数
+         */
+        void requestPending() {
+            Subscription subscription = this.subscription;
+            if (subscription == null) {
+                return;
+            }
+            int n = credits.getAndSet(0);
+            if (n > 0) {
+                subscription.request((long) n * batchSize);
+            }
+        }
+
+        void cancel() {
+            Subscription subscription = this.subscription;
+            if (subscription != null) {
+                subscription.cancel();
+            }
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+            //订阅前客户端已取消
+            if (done.get()) {
+                subscription.cancel();
+                return;
+            }
+            requestPending();
+        }
+
+        @Override
+        public void onNext(Object item) {
+            if (done.get()) {
+                return;
+            }
+            batch.add(item);
+            if (batch.size() >= batchSize) {
+                List<Object> full = batch;
+                batch = new ArrayList<>(batchSize);
+                send(full);
+            }
+        }
+
+        @Override
+        public void onError(Throwable cause) {
+            fail(cause);
+        }
+
+        @Override
+        public void onComplete() {
+            if (!done.get() && !batch.isEmpty() && !send(batch)) {
+                return;
+            }
+            complete();
+        }
+
+        /**
+         * 发送数据块，失败时取消订阅并以异常结束流
+         *
+         * @param batch 元素列表
+         * @return 是否发送成功
+         */
+        private boolean send(List<Object> batch) {
+            try {
+                writeChunk(batch);
+                return true;
+            } catch (RuntimeException ex) {
+                cancel();
+                fail(ex);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 单独成类避免未引入reactive-streams依赖时加载Publisher类
+     */
+    private static class PublisherSupport {
+        static boolean isPublisher(Object result) {
+            return result instanceof Publisher;
+        }
+    }
+}
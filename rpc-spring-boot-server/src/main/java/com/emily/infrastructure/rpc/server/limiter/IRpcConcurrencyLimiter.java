@@ -0,0 +1,139 @@
+package com.emily.infrastructure.rpc.server.limiter;
+
+import com.emily.infrastructure.rpc.server.IRpcServerProperties;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @program: spring-parent
+ * @description: 并发限制器，在途请求数达到限制时拒绝；开启自适应时按梯度算法调整限制：
+ * 短期平均耗时相对长期平均耗时升高时按比例降低限制，耗时平稳时逐步增加限制
+ * @author: Emily
+ * @create: 2022/04/19
+ */
+public class IRpcConcurrencyLimiter {
+    /**
+     * 长期平均耗时的平滑窗口数，约为最近60个采样窗口
+     */
+    private static final int LONG_WINDOWS = 60;
+
+    private final IRpcServerProperties.Limit properties;
+    /**
+     * 在途请求数
+     */
+    private final AtomicInteger inflight = new AtomicInteger(0);
+    /**
+     * 当前并发限制
+     */
+    private volatile int limit;
+    /**
+     * 估算的并发限制，以下字段均在同步块中访问
+     */
+    private double estimatedLimit;
+    /**
+     * 长期平均耗时，单位：纳秒
+     */
+    private double longRtt;
+    /**
+     * 当前采样窗口的开始时间、耗时总和、样本数及最大在途请求数
+     */
+    private long windowStart = System.nanoTime();
+    private long windowRttSum;
+    private int windowCount;
+    private int windowMaxInflight;
+
+    public IRpcConcurrencyLimiter(IRpcServerProperties.Limit properties) {
+        this.properties = properties;
+        this.estimatedLimit = properties.isAdaptive() ? properties.getInitialLimit() : properties.getMaxLimit();
+        this.limit = (int) estimatedLimit;
+    }
+
+    /**
+     * 尝试获取许可
+     *
+     * @return 在途请求数已达限制时返回false
+     */
+    public boolean tryAcquire() {
+        for (; ; ) {
+            int current = inflight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 释放许可，不记录耗时，用于请求未实际执行的情况
+     */
+    public void release() {
+        inflight.decrementAndGet();
+    }
+
+    /**
+     * 释放许可并记录请求耗时
+     *
+     * @param rttNanos 请求耗时，单位：纳秒
+     */
+    public void release(long rttNanos) {
+        int current = inflight.getAndDecrement();
+        if (!properties.isAdaptive()) {
+            return;
+        }
+        synchronized (this) {
+            windowRttSum += rttNanos;
+            windowCount++;
+            windowMaxInflight = Math.max(windowMaxInflight, current);
+            long now = System.nanoTime();
+            if (now - windowStart >= properties.getWindow().toNanos()) {
+                update();
+                windowStart = now;
+                windowRttSum = 0;
+                windowCount = 0;
+                windowMaxInflight = 0;
+            }
+        }
+    }
+
+    /**
+     * 采样窗口结束，调整并发限制
+     */
+    private void update() {
+        double shortRtt = (double) windowRttSum / windowCount;
+        if (longRtt == 0) {
+            longRtt = shortRtt;
+        } else {
+            longRtt += (shortRtt - longRtt) * 2 / (LONG_WINDOWS + 1);
+        }
+        //过载恢复后短期耗时明显低于长期耗时，加速长期耗时回落，避免容忍度过高
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+        //在途请求数不足限制的一半时无法判断服务端容量，不调整
+        if (windowMaxInflight < estimatedLimit / 2) {
+            return;
+        }
+        //梯度在[0.5,1]之间，耗时升高时按比例降低，加上排队余量后耗时平稳时限制逐步增加
+        double gradient = Math.max(0.5, Math.min(1.0, properties.getTolerance() * longRtt / shortRtt));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        newLimit = estimatedLimit * (1 - properties.getSmoothing()) + newLimit * properties.getSmoothing();
+        estimatedLimit = Math.max(properties.getMinLimit(), Math.min(properties.getMaxLimit(), newLimit));
+        limit = (int) estimatedLimit;
+    }
+
+    /**
+     * 当前并发限制
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * 在途请求数
+     */
+    public int getInflight() {
+        return inflight.get();
+    }
+}
@@ -0,0 +1,93 @@
+package com.emily.infrastructure.rpc.server.limiter;
+
+import com.emily.infrastructure.rpc.server.IRpcServerProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @program: spring-parent
+ * @description: Rpc服务端并发限制，请求需同时获得全局及服务独立配置的许可，否则立即拒绝，避免下游变慢时请求无限堆积
+ * @author: Emily
+ * @create: 2022/04/19
+ */
+public class IRpcServerLimiter {
+    /**
+     * 全局并发限制
+     */
+    private final IRpcConcurrencyLimiter globalLimiter;
+    /**
+     * 服务独立并发限制，key-服务接口名称
+     */
+    private final Map<String, IRpcConcurrencyLimiter> serviceLimiters = new HashMap<>();
+
+    public IRpcServerLimiter(IRpcServerProperties.Limiter properties) {
+        this.globalLimiter = new IRpcConcurrencyLimiter(properties);
+        properties.getServices().forEach((interfaceName, limit) -> serviceLimiters.put(interfaceName, new IRpcConcurrencyLimiter(limit)));
+    }
+
+    /**
+     * 获取服务调用许可
+     *
+     * @param interfaceName 服务接口名称
+     * @return 许可，超过并发限制时返回null
+     */
+    public Permit acquire(String interfaceName) {
+        if (!globalLimiter.tryAcquire()) {
+            return null;
+        }
+        IRpcConcurrencyLimiter serviceLimiter = serviceLimiters.get(interfaceName);
+        if (serviceLimiter != null && !serviceLimiter.tryAcquire()) {
+            globalLimiter.release();
+            return null;
+        }
+        return new Permit(serviceLimiter);
+    }
+
+    /**
+     * 服务调用许可，调用完成后释放，只释放一次
+     */
+    public class Permit {
+        private final IRpcConcurrencyLimiter serviceLimiter;
+        /**
+         * 是否已释放
+         */
+        private final AtomicBoolean released = new AtomicBoolean(false);
+        /**
+         * 获取许可的时间，耗时包含在业务线程池中的排队时间
+         */
+        private final long startNanos = System.nanoTime();
+
+        private Permit(IRpcConcurrencyLimiter serviceLimiter) {
+            this.serviceLimiter = serviceLimiter;
+        }
+
+        /**
+         * 调用完成，释放许可并记录耗时
+         */
+        public void release() {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            long rttNanos = System.nanoTime() - startNanos;
+            globalLimiter.release(rttNanos);
+            if (serviceLimiter != null) {
+                serviceLimiter.release(rttNanos);
+            }
+        }
+
+        /**
+         * 释放许可不记录耗时，如未执行的调用、耗时取决于客户端消费速度的流式调用
+         */
+        public void cancel() {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            globalLimiter.release();
+            if (serviceLimiter != null) {
+                serviceLimiter.release();
+            }
+        }
+    }
+}
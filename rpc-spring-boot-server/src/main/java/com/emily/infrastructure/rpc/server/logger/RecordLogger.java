@@ -9,7 +9,7 @@ import org.slf4j.LoggerFactory;
 
 import java.text.MessageFormat;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @program: spring-parent
@@ -25,17 +25,18 @@ public class RecordLogger {
      * 记录请求响应日志
      *
      * @param request  请求协议
-     * @param response 响应结果
+     * @param response  响应结果
+     * @param startTime 开始时间，System.nanoTime()
      */
     public static void recordResponse(IRpcRequest request, Object response, long startTime) {
         try {
             BaseLogger baseLogger = new BaseLogger();
             baseLogger.setTraceId(request.getTraceId());
-            baseLogger.setTriggerTime(LocalDateTime.now().format(DateTimeFormatter.ofPattern(DateFormat.YYYY_MM_DD_HH_MM_SS_SSS.getFormat())));
+            baseLogger.setTriggerTime(LocalDateTime.now().format(DateFormat.YYYY_MM_DD_HH_MM_SS_SSS.getFormatter()));
             baseLogger.setUrl(MessageFormat.format("{0}.{1}", request.getClassName(), request.getMethodName()));
             baseLogger.setRequestParams(request.getParams());
             baseLogger.setBody(response);
-            baseLogger.setTime(System.currentTimeMillis() - startTime);
+            baseLogger.setTime(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
             logger.info(JSONUtils.toJSONString(baseLogger));
         } catch (Exception exception) {
 
@@ -0,0 +1,47 @@
+package com.emily.infrastructure.rpc.server.metrics;
+
+import com.emily.infrastructure.rpc.core.transport.IRpcTrafficCounter;
+import io.netty.channel.group.ChannelGroup;
+
+/**
+ * @program: spring-parent
+ * @description: Rpc服务端监控指标，记录服务方法调用耗时，并输出连接数及收发字节数指标；
+ * 默认不记录，引入micrometer依赖后由MicrometerServerMetrics实现
+ * @author: Emily
+ * @create: 2022/04/25
+ */
+public interface IRpcServerMetrics {
+    /**
+     * 不记录任何指标
+     */
+    IRpcServerMetrics NOOP = new IRpcServerMetrics() {
+    };
+
+    /**
+     * 记录一次调用，耗时从收到请求开始至写出响应结果，包含业务线程池排队及服务方法执行耗时
+     *
+     * @param className    服务接口类名
+     * @param methodName   方法名
+     * @param status       响应状态码
+     * @param elapsedNanos 耗时，单位：纳秒
+     */
+    default void recordCall(String className, String methodName, int status, long elapsedNanos) {
+    }
+
+    /**
+     * 获取收发字节数统计处理器，所有客户端连接共用
+     *
+     * @return 不统计时返回null
+     */
+    default IRpcTrafficCounter trafficCounter() {
+        return null;
+    }
+
+    /**
+     * 绑定已建立的客户端连接，输出连接数
+     *
+     * @param channels 客户端连接
+     */
+    default void bindConnections(ChannelGroup channels) {
+    }
+}
@@ -0,0 +1,58 @@
+package com.emily.infrastructure.rpc.server.metrics;
+
+import com.emily.infrastructure.rpc.core.metrics.IRpcCallTimers;
+import com.emily.infrastructure.rpc.core.transport.IRpcTrafficCounter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.group.ChannelGroup;
+
+/**
+ * @program: spring-parent
+ * @description: 基于Micrometer的Rpc服务端监控指标，调用耗时按服务接口、方法及响应状态码分别统计并输出直方图
+ * @author: Emily
+ * @create: 2022/04/25
+ */
+public class MicrometerServerMetrics implements IRpcServerMetrics {
+
+    private final MeterRegistry registry;
+    /**
+     * 收发字节数统计
+     */
+    private final IRpcTrafficCounter traffic = new IRpcTrafficCounter();
+    /**
+     * 调用耗时指标
+     */
+    private final IRpcCallTimers calls;
+
+    public MicrometerServerMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.calls = new IRpcCallTimers(registry, "rpc.server.requests", "Rpc服务端调用耗时");
+        FunctionCounter.builder("rpc.server.bytes.sent", traffic, IRpcTrafficCounter::getBytesWritten)
+                .description("Rpc服务端发送字节数")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("rpc.server.bytes.received", traffic, IRpcTrafficCounter::getBytesRead)
+                .description("Rpc服务端接收字节数")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    @Override
+    public void recordCall(String className, String methodName, int status, long elapsedNanos) {
+        calls.record(className, methodName, status, elapsedNanos);
+    }
+
+    @Override
+    public IRpcTrafficCounter trafficCounter() {
+        return traffic;
+    }
+
+    @Override
+    public void bindConnections(ChannelGroup channels) {
+        Gauge.builder("rpc.server.connections", channels, ChannelGroup::size)
+                .description("Rpc服务端已建立的客户端连接数")
+                .strongReference(true)
+                .register(registry);
+    }
+}
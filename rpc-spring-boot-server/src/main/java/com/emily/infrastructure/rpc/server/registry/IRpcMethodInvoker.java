@@ -0,0 +1,82 @@
+package com.emily.infrastructure.rpc.server.registry;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+
+/**
+ * @program: spring-parent
+ * @description: Rpc服务方法调用器，启动时将服务bean的方法解析为绑定了bean实例的MethodHandle，调用时无需反射查找方法
+ * @author: Emily
+ * @create: 2022/04/13
+ */
+public class IRpcMethodInvoker {
+    /**
+     * 统一的调用签名：(Object[])Object
+     */
+    private static final MethodType INVOKE_TYPE = MethodType.methodType(Object.class, Object[].class);
+    /**
+     * 服务接口方法
+     */
+    private final Method method;
+    /**
+     * 绑定了服务bean的方法句柄
+     */
+    private final MethodHandle handle;
+    /**
+     * 参数类型，Method.getParameterTypes()每次调用都会复制数组，查找方法时直接使用缓存
+     */
+    private final Class<?>[] parameterTypes;
+    /**
+     * 泛型参数类型，反序列化请求参数时使用
+     */
+    private final Type[] genericParameterTypes;
+
+    public IRpcMethodInvoker(Object bean, Method method) throws IllegalAccessException {
+        this.method = method;
+        this.parameterTypes = method.getParameterTypes();
+        this.genericParameterTypes = method.getGenericParameterTypes();
+        //接口非public时也允许调用
+        method.setAccessible(true);
+        this.handle = MethodHandles.lookup()
+                .unreflect(method)
+                .bindTo(bean)
+                .asSpreader(Object[].class, method.getParameterCount())
+                .asType(INVOKE_TYPE);
+    }
+
+    /**
+     * 调用服务方法，业务异常原样抛出
+     *
+     * @param params 参数列表
+     * @return 方法返回值，void方法返回null
+     * @throws Throwable
+     */
+    public Object invoke(Object[] params) throws Throwable {
+        return (Object) handle.invokeExact(params);
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * 参数类型，返回缓存的数组，调用方不可修改
+     *
+     * @return
+     */
+    public Class<?>[] getParameterTypes() {
+        return parameterTypes;
+    }
+
+    /**
+     * 泛型参数类型，返回缓存的数组，调用方不可修改
+     *
+     * @return
+     */
+    public Type[] getGenericParameterTypes() {
+        return genericParameterTypes;
+    }
+}
@@ -1,27 +1,54 @@
 package com.emily.infrastructure.rpc.server.registry;
 
+import com.emily.infrastructure.common.enums.AppHttpStatus;
+import com.emily.infrastructure.common.exception.BasicException;
+import com.emily.infrastructure.rpc.core.serializer.IRpcParameterTypeResolver;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @program: spring-parent
- * @description: RPC服务注册中心
+ * @description: RPC服务注册中心，注册服务时同时构建方法调用表，key-接口名称，value-(方法名称，同名方法调用器列表)；
+ * 同时为请求反序列化提供目标方法的泛型参数类型
  * @author: Emily
  * @create: 2021/09/18
  */
-public class IRpcProviderRegistry {
+public class IRpcProviderRegistry implements IRpcParameterTypeResolver {
     /**
      * rpc服务注册表，会将@RpcService注解标注的bean注册为RPC服务
      */
     private static final Map<String, Object> rpcServiceRegistry = new ConcurrentHashMap<>();
+    /**
+     * 方法调用表，注册时构建后不再修改
+     */
+    private static final Map<String, Map<String, List<IRpcMethodInvoker>>> rpcInvokerRegistry = new ConcurrentHashMap<>();
 
     /**
-     * 将@RpcService注解标注的服务存入注册表
+     * 将@RpcService注解标注的服务存入注册表，并解析接口中的所有方法
      *
-     * @param interfaceName
-     * @param bean
+     * @param interfaceClass 服务接口
+     * @param bean           服务bean，所有请求均调用此单例
      */
-    public void registerServiceBean(String interfaceName, Object bean) {
+    public void registerServiceBean(Class<?> interfaceClass, Object bean) {
+        String interfaceName = interfaceClass.getSimpleName();
+        Map<String, List<IRpcMethodInvoker>> invokers = new HashMap<>();
+        for (Method method : interfaceClass.getMethods()) {
+            try {
+                invokers.computeIfAbsent(method.getName(), name -> new ArrayList<>()).add(new IRpcMethodInvoker(bean, method));
+            } catch (IllegalAccessException e) {
+                throw new BasicException(AppHttpStatus.INIT_EXCEPTION.getStatus(), "Rpc服务方法" + interfaceName + "." + method.getName() + "解析失败");
+            }
+        }
+        invokers.replaceAll((name, list) -> Collections.unmodifiableList(list));
+        rpcInvokerRegistry.put(interfaceName, Collections.unmodifiableMap(invokers));
         rpcServiceRegistry.put(interfaceName, bean);
     }
 
@@ -33,4 +60,55 @@ public class IRpcProviderRegistry {
     public Object getServiceBean(String interfaceName) {
         return rpcServiceRegistry.get(interfaceName);
     }
+
+    /**
+     * 获取服务方法调用器
+     *
+     * @param interfaceName  接口名称
+     * @param methodName     方法名称
+     * @param parameterTypes 参数类型
+     * @return
+     */
+    public IRpcMethodInvoker getInvoker(String interfaceName, String methodName, Class<?>[] parameterTypes) {
+        Map<String, List<IRpcMethodInvoker>> invokers = rpcInvokerRegistry.get(interfaceName);
+        if (invokers == null) {
+            throw new BasicException(AppHttpStatus.NOT_FOUND.getStatus(), "Rpc服务" + interfaceName + "不存在");
+        }
+        IRpcMethodInvoker invoker = findInvoker(invokers, methodName, parameterTypes);
+        if (invoker == null) {
+            throw new BasicException(AppHttpStatus.NOT_FOUND.getStatus(), "Rpc服务方法" + interfaceName + "." + methodName + "不存在");
+        }
+        return invoker;
+    }
+
+    /**
+     * 获取目标方法的泛型参数类型，方法不存在时返回null，由调用时报告方法不存在
+     *
+     * @param interfaceName  接口名称
+     * @param methodName     方法名称
+     * @param parameterTypes 参数类型
+     * @return
+     */
+    @Override
+    public Type[] resolve(String interfaceName, String methodName, Class<?>[] parameterTypes) {
+        Map<String, List<IRpcMethodInvoker>> invokers = rpcInvokerRegistry.get(interfaceName);
+        if (invokers == null) {
+            return null;
+        }
+        IRpcMethodInvoker invoker = findInvoker(invokers, methodName, parameterTypes);
+        return invoker == null ? null : invoker.getGenericParameterTypes();
+    }
+
+    /**
+     * 按方法名称及参数类型查找调用器
+     */
+    private IRpcMethodInvoker findInvoker(Map<String, List<IRpcMethodInvoker>> invokers, String methodName, Class<?>[] parameterTypes) {
+        List<IRpcMethodInvoker> overloads = invokers.getOrDefault(methodName, Collections.emptyList());
+        for (IRpcMethodInvoker invoker : overloads) {
+            if (Arrays.equals(invoker.getParameterTypes(), parameterTypes)) {
+                return invoker;
+            }
+        }
+        return null;
+    }
 }